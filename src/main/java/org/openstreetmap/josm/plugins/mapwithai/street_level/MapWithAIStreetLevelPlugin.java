@@ -8,17 +8,24 @@ import java.awt.Component;
 
 import org.openstreetmap.josm.data.UndoRedoHandler;
 import org.openstreetmap.josm.data.osm.AbstractPrimitive;
+import org.openstreetmap.josm.data.validation.OsmValidator;
 import org.openstreetmap.josm.gui.IconToggleButton;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.MainMenu;
 import org.openstreetmap.josm.gui.MapFrame;
 import org.openstreetmap.josm.plugins.Plugin;
 import org.openstreetmap.josm.plugins.PluginInformation;
+import org.openstreetmap.josm.plugins.mapwithai.street_level.actions.CrossingGenerationAction;
+import org.openstreetmap.josm.plugins.mapwithai.street_level.actions.CrossingTagSynchronizationAction;
+import org.openstreetmap.josm.plugins.mapwithai.street_level.actions.LatencyStatisticsAction;
 import org.openstreetmap.josm.plugins.mapwithai.street_level.actions.ParallelSidewalkCreationAction;
+import org.openstreetmap.josm.plugins.mapwithai.street_level.actions.ParallelSidewalkUpdateAction;
 import org.openstreetmap.josm.plugins.mapwithai.street_level.actions.mapmode.SidewalkMode;
 import org.openstreetmap.josm.plugins.mapwithai.street_level.data.CrossingCommandListener;
+import org.openstreetmap.josm.plugins.mapwithai.street_level.data.osm.DataSetIndexes;
 import org.openstreetmap.josm.plugins.mapwithai.street_level.data.preferences.MapWithAIStreetLevelConfig;
 import org.openstreetmap.josm.plugins.mapwithai.street_level.data.preferences.MapWithAIStreetLevelUrls;
+import org.openstreetmap.josm.plugins.mapwithai.street_level.data.validation.InconsistentCrossingTags;
 import org.openstreetmap.josm.tools.Destroyable;
 
 /**
@@ -27,6 +34,7 @@ import org.openstreetmap.josm.tools.Destroyable;
  * @author Taylor Smock
  */
 public class MapWithAIStreetLevelPlugin extends Plugin implements Destroyable {
+    private final DataSetIndexes.LayerCleanup layerCleanup = new DataSetIndexes.LayerCleanup();
     private CrossingCommandListener crossingCommandListener;
 
     /**
@@ -38,8 +46,14 @@ public class MapWithAIStreetLevelPlugin extends Plugin implements Destroyable {
         super(info);
         final JMenu dataMenu = MainApplication.getMenu().dataMenu;
         MainMenu.add(dataMenu, new ParallelSidewalkCreationAction());
+        MainMenu.add(dataMenu, new ParallelSidewalkUpdateAction());
+        MainMenu.add(dataMenu, new CrossingGenerationAction());
+        MainMenu.add(dataMenu, new CrossingTagSynchronizationAction());
+        MainMenu.add(dataMenu, new LatencyStatisticsAction());
         MapWithAIStreetLevelConfig.setUrls(new MapWithAIStreetLevelUrls());
         AbstractPrimitive.getDiscardableKeys().add("suggestion-id");
+        OsmValidator.addTest(InconsistentCrossingTags.class);
+        MainApplication.getLayerManager().addLayerChangeListener(this.layerCleanup);
     }
 
     @Override
@@ -56,6 +70,8 @@ public class MapWithAIStreetLevelPlugin extends Plugin implements Destroyable {
 
     @Override
     public void destroy() {
+        OsmValidator.removeTest(InconsistentCrossingTags.class);
+        MainApplication.getLayerManager().removeLayerChangeListener(this.layerCleanup);
         final JMenu dataMenu = MainApplication.getMenu().dataMenu;
         for (Component menuComponent : dataMenu.getMenuComponents()) {
             if (menuComponent instanceof JMenuItem jMenu && jMenu.getAction() != null && jMenu.getAction().getClass()
@@ -0,0 +1,68 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.street_level.actions;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import javax.swing.JOptionPane;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.util.ArrayList;
+import java.util.Collection;
+
+import org.openstreetmap.josm.actions.JosmAction;
+import org.openstreetmap.josm.data.UndoRedoHandler;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.MainApplication;
+import org.openstreetmap.josm.gui.Notification;
+import org.openstreetmap.josm.gui.util.GuiHelper;
+import org.openstreetmap.josm.plugins.mapwithai.street_level.data.osm.CrossingEngine;
+import org.openstreetmap.josm.plugins.mapwithai.street_level.data.osm.CrossingGenerator;
+import org.openstreetmap.josm.tools.Shortcut;
+
+/**
+ * An action for generating crossings for the selected footways, or all footways if nothing is selected
+ *
+ * @author Taylor Smock
+ */
+public class CrossingGenerationAction extends JosmAction {
+    /**
+     * Create a new CrossingGeneration action
+     */
+    public CrossingGenerationAction() {
+        super(tr("Generate crossings"), (String) null, tr("Add crossings where footways cross roads"),
+                Shortcut.registerShortcut("data:auto_sidewalk:generate_crossings", tr("Generate crossings"),
+                        KeyEvent.CHAR_UNDEFINED, Shortcut.NONE),
+                true, "auto_sidewalk:generate_crossings", true);
+    }
+
+    @Override
+    public void actionPerformed(final ActionEvent e) {
+        final DataSet dataSet = MainApplication.getLayerManager().getEditDataSet();
+        if (dataSet == null) {
+            return;
+        }
+        final Collection<Way> footways = new ArrayList<>(
+                dataSet.getSelectedWays().isEmpty() ? dataSet.getWays() : dataSet.getSelectedWays());
+        footways.removeIf(way -> !CrossingGenerator.isFootway(way));
+        if (footways.isEmpty()) {
+            new Notification(tr("No footways to generate crossings for")).setIcon(JOptionPane.INFORMATION_MESSAGE)
+                    .show();
+            return;
+        }
+        final var staleDataCheck = new StaleDataCheck(dataSet,
+                tr("The data changed while generating crossings, please try again"));
+        MainApplication.worker.execute(() -> {
+            // The engine builds the indexes for the dataset if they don't exist yet
+            final var command = new CrossingEngine(dataSet).generateCrossings(footways);
+            GuiHelper.runInEDT(() -> {
+                if (command == null) {
+                    new Notification(tr("No crossings found")).setIcon(JOptionPane.INFORMATION_MESSAGE).show();
+                } else if (staleDataCheck.isCurrent()) {
+                    UndoRedoHandler.getInstance().add(command);
+                }
+            });
+        });
+    }
+}
@@ -0,0 +1,90 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.street_level.actions;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+import static org.openstreetmap.josm.tools.I18n.trn;
+
+import javax.swing.JOptionPane;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import org.openstreetmap.josm.actions.JosmAction;
+import org.openstreetmap.josm.command.Command;
+import org.openstreetmap.josm.data.UndoRedoHandler;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.MainApplication;
+import org.openstreetmap.josm.gui.Notification;
+import org.openstreetmap.josm.gui.util.GuiHelper;
+import org.openstreetmap.josm.plugins.mapwithai.street_level.data.CrossingConsistency;
+import org.openstreetmap.josm.tools.Shortcut;
+
+/**
+ * An action for copying missing crossing tags between crossing nodes and crossing ways, for the selection or the
+ * whole layer if nothing is selected
+ *
+ * @author Taylor Smock
+ */
+public class CrossingTagSynchronizationAction extends JosmAction {
+    /**
+     * Create a new CrossingTagSynchronization action
+     */
+    public CrossingTagSynchronizationAction() {
+        super(tr("Synchronize crossing tags"), (String) null,
+                tr("Copy missing crossing tags between crossing nodes and crossing ways"),
+                Shortcut.registerShortcut("data:auto_sidewalk:synchronize_crossing_tags",
+                        tr("Synchronize crossing tags"), KeyEvent.CHAR_UNDEFINED, Shortcut.NONE),
+                true, "auto_sidewalk:synchronize_crossing_tags", true);
+    }
+
+    @Override
+    public void actionPerformed(final ActionEvent e) {
+        final DataSet dataSet = MainApplication.getLayerManager().getEditDataSet();
+        if (dataSet == null) {
+            return;
+        }
+        final Collection<Node> nodes;
+        if (dataSet.getAllSelected().isEmpty()) {
+            nodes = null;
+        } else {
+            nodes = new LinkedHashSet<>(dataSet.getSelectedNodes());
+            for (Way way : dataSet.getSelectedWays()) {
+                nodes.addAll(way.getNodes());
+            }
+        }
+        // The tag values are read on the worker, so they would overwrite edits made in the meantime
+        final var staleDataCheck = new StaleDataCheck(dataSet,
+                tr("The data changed while checking crossing tags, please try again"));
+        MainApplication.worker.execute(() -> {
+            final Command command;
+            final int count;
+            dataSet.getReadLock().lock();
+            try {
+                final List<CrossingConsistency.Mismatch> mismatches = new ArrayList<>(
+                        nodes == null ? CrossingConsistency.scan(dataSet) : CrossingConsistency.scan(nodes));
+                mismatches.removeIf(mismatch -> !mismatch.isFixable());
+                // A crossing node can be on several crossing ways, so count the nodes instead of the mismatches
+                count = (int) mismatches.stream().map(CrossingConsistency.Mismatch::node).distinct().count();
+                command = CrossingConsistency.createFixCommand(mismatches);
+            } finally {
+                dataSet.getReadLock().unlock();
+            }
+            GuiHelper.runInEDT(() -> {
+                if (command == null) {
+                    new Notification(tr("No crossing tags to synchronize")).setIcon(JOptionPane.INFORMATION_MESSAGE)
+                            .show();
+                } else if (staleDataCheck.isCurrent()) {
+                    UndoRedoHandler.getInstance().add(command);
+                    new Notification(trn("Synchronized tags for {0} crossing", "Synchronized tags for {0} crossings",
+                            count, count)).setIcon(JOptionPane.INFORMATION_MESSAGE).show();
+                }
+            });
+        });
+    }
+}
@@ -0,0 +1,84 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.street_level.actions;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTextArea;
+
+import java.awt.BorderLayout;
+import java.awt.Font;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.openstreetmap.josm.actions.JosmAction;
+import org.openstreetmap.josm.actions.SaveActionBase;
+import org.openstreetmap.josm.gui.ExtendedDialog;
+import org.openstreetmap.josm.gui.MainApplication;
+import org.openstreetmap.josm.gui.Notification;
+import org.openstreetmap.josm.plugins.mapwithai.street_level.data.preferences.SidewalkSettings;
+import org.openstreetmap.josm.plugins.mapwithai.street_level.tools.LatencyStatistics;
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Shortcut;
+
+/**
+ * An action for showing (and saving) the sidewalk mode latency statistics
+ *
+ * @author Taylor Smock
+ */
+public class LatencyStatisticsAction extends JosmAction {
+    /**
+     * Create a new LatencyStatistics action
+     */
+    public LatencyStatisticsAction() {
+        super(tr("Sidewalk mode statistics"), (String) null, tr("Show how long sidewalk mode takes to handle clicks"),
+                Shortcut.registerShortcut("data:auto_sidewalk:latency_statistics", tr("Sidewalk mode statistics"),
+                        KeyEvent.CHAR_UNDEFINED, Shortcut.NONE),
+                false, "auto_sidewalk:latency_statistics", true);
+    }
+
+    @Override
+    public void actionPerformed(final ActionEvent e) {
+        final var report = LatencyStatistics.getReport();
+        final var textArea = new JTextArea(report);
+        textArea.setEditable(false);
+        textArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, textArea.getFont().getSize()));
+        final var panel = new JPanel(new BorderLayout());
+        if (!SidewalkSettings.get().isLatencyEnabled()) {
+            panel.add(new JLabel(tr("Statistics are only recorded when {0} is {1}", "sidewalk.latency.enabled",
+                    "true")), BorderLayout.NORTH);
+        }
+        panel.add(new JScrollPane(textArea), BorderLayout.CENTER);
+        final var dialog = new ExtendedDialog(MainApplication.getMainFrame(), tr("Sidewalk mode statistics"),
+                tr("Save"), tr("Reset"), tr("Close"));
+        dialog.setButtonIcons("save", "undo", "cancel");
+        dialog.setContent(panel, false);
+        dialog.setCancelButton(3);
+        switch (dialog.showDialog().getValue()) {
+        case 1 -> save(report);
+        case 2 -> LatencyStatistics.reset();
+        default -> Logging.trace("Latency statistics dialog closed");
+        }
+    }
+
+    private static void save(String report) {
+        final File file = SaveActionBase.createAndOpenSaveFileChooser(tr("Save sidewalk mode statistics"), "txt");
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.writeString(file.toPath(), report, StandardCharsets.UTF_8);
+        } catch (IOException ioException) {
+            Logging.error(ioException);
+            new Notification(tr("Could not save statistics: {0}", ioException.getMessage()))
+                    .setIcon(JOptionPane.ERROR_MESSAGE).show();
+        }
+    }
+}
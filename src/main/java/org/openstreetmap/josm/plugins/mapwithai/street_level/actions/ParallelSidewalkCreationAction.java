@@ -3,28 +3,44 @@ package org.openstreetmap.josm.plugins.mapwithai.street_level.actions;
 
 import static org.openstreetmap.josm.tools.I18n.tr;
 
+import javax.swing.JOptionPane;
+
 import java.awt.event.ActionEvent;
 import java.awt.event.KeyEvent;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 import org.openstreetmap.josm.actions.JosmAction;
-import org.openstreetmap.josm.command.AddPrimitivesCommand;
 import org.openstreetmap.josm.command.Command;
+import org.openstreetmap.josm.command.SequenceCommand;
 import org.openstreetmap.josm.data.UndoRedoHandler;
+import org.openstreetmap.josm.data.osm.BBox;
 import org.openstreetmap.josm.data.osm.DataSet;
-import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.PrimitiveData;
 import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.WayData;
+import org.openstreetmap.josm.gui.ConditionalOptionPaneUtil;
 import org.openstreetmap.josm.gui.MainApplication;
+import org.openstreetmap.josm.gui.Notification;
+import org.openstreetmap.josm.gui.util.GuiHelper;
+import org.openstreetmap.josm.plugins.mapwithai.street_level.command.BulkAddPrimitivesCommand;
+import org.openstreetmap.josm.plugins.mapwithai.street_level.data.osm.NodeSnapper;
 import org.openstreetmap.josm.plugins.mapwithai.street_level.data.osm.ParallelSidewalkCreation;
+import org.openstreetmap.josm.plugins.mapwithai.street_level.data.osm.ParallelSidewalkCreation.ParallelSidewalk;
+import org.openstreetmap.josm.plugins.mapwithai.street_level.data.osm.PolylineSimplifier;
+import org.openstreetmap.josm.plugins.mapwithai.street_level.data.osm.SidewalkLinks;
+import org.openstreetmap.josm.plugins.mapwithai.street_level.data.osm.SidewalkNetwork;
+import org.openstreetmap.josm.plugins.mapwithai.street_level.data.preferences.SidewalkSettings;
 import org.openstreetmap.josm.tools.Shortcut;
 
 /**
- * An action for creating parallel sidewalks
+ * An action for creating parallel sidewalks for the selected ways, or every road in the current view if no ways are
+ * selected
  *
  * @author Taylor Smock
  */
@@ -46,18 +62,158 @@ public class ParallelSidewalkCreationAction extends JosmAction {
             return;
         }
         final List<Way> ways = new ArrayList<>(dataSet.getSelectedWays());
-        if (ways.size() == 1) {
-            final Map<ParallelSidewalkCreation.Options, Way> sidewalks = ParallelSidewalkCreation
-                    .createParallelSidewalks(ways.get(0), ParallelSidewalkCreation.Options.values());
-            final List<PrimitiveData> dataCollection = new ArrayList<>(
-                    sidewalks.values().size() + sidewalks.values().stream().mapToInt(Way::getNodesCount).sum());
-            sidewalks.values().stream().map(Way::getNodes).flatMap(Collection::stream).map(OsmPrimitive::save)
-                    .forEach(dataCollection::add);
-            final List<PrimitiveData> newSidewalks = sidewalks.values().stream().map(Way::save)
-                    .collect(Collectors.toList());
-            dataCollection.addAll(newSidewalks);
-            Command addCommand = new AddPrimitivesCommand(dataCollection, newSidewalks, dataSet);
-            UndoRedoHandler.getInstance().add(addCommand);
+        if (ways.isEmpty() && !MainApplication.isDisplayingMapView()) {
+            return;
+        }
+        final var bbox = ways.isEmpty() ? MainApplication.getMap().mapView.getRealBounds().toBBox() : null;
+        if (bbox != null && !ConditionalOptionPaneUtil.showConfirmationDialog("auto_sidewalk.parallel_sidewalks.view",
+                MainApplication.getMainFrame(),
+                tr("Create sidewalks for every road in the current view that does not have sidewalks yet?"),
+                tr("Create parallel sidewalks"), JOptionPane.YES_NO_OPTION, JOptionPane.QUESTION_MESSAGE,
+                JOptionPane.YES_OPTION)) {
+            return;
+        }
+        final var settings = SidewalkSettings.get();
+        final var staleDataCheck = new StaleDataCheck(dataSet,
+                tr("The data changed while creating sidewalks, please try again"));
+        // Thousands of roads can take a while, so don't block the EDT
+        MainApplication.worker.execute(() -> {
+            final List<ParallelSidewalk> sidewalks;
+            final List<Way> newWays;
+            final Map<Node, Node> snapped;
+            final Command markCommand;
+            dataSet.getReadLock().lock();
+            try {
+                final var options = ParallelSidewalkCreation.Options.values();
+                if (bbox != null && !settings.isParallelChain() && !settings.isParallelBatch()) {
+                    sidewalks = ParallelSidewalkCreation.createAllParallelSidewalks(dataSet, bbox, options);
+                    newWays = sidewalks.stream().map(ParallelSidewalk::sidewalk).toList();
+                    markCommand = createMarkSeparateCommand(sidewalks);
+                } else if (settings.isParallelChain()) {
+                    // Chained sidewalks span several roads, so they are not linked to a road
+                    final List<Way> roads = getRoads(dataSet, ways, bbox);
+                    sidewalks = List.of();
+                    newWays = SidewalkNetwork.createSidewalks(roads);
+                    markCommand = newWays.isEmpty() ? null : ParallelSidewalkCreation.createMarkSeparateCommand(roads);
+                } else {
+                    final List<Way> roads = getRoads(dataSet, ways, bbox);
+                    sidewalks = settings.isParallelBatch()
+                            ? ParallelSidewalkCreation.createAllParallelSidewalksBatched(roads, options)
+                            : ParallelSidewalkCreation.createAllParallelSidewalks(roads, options);
+                    newWays = sidewalks.stream().map(ParallelSidewalk::sidewalk).toList();
+                    markCommand = createMarkSeparateCommand(sidewalks);
+                }
+                final double simplifyDistance = settings.getParallelSimplifyDistance();
+                if (simplifyDistance > 0) {
+                    PolylineSimplifier.simplify(newWays, simplifyDistance);
+                }
+                final double snapDistance = settings.getParallelSnapDistance();
+                snapped = snapDistance > 0 && !newWays.isEmpty()
+                        ? NodeSnapper.forFootways(dataSet, newWays, snapDistance).snap(newWays)
+                        : Map.of();
+            } finally {
+                dataSet.getReadLock().unlock();
+            }
+            final Command addCommand;
+            if (newWays.isEmpty()) {
+                addCommand = null;
+            } else if (markCommand == null) {
+                addCommand = createAddCommand(dataSet, newWays, snapped);
+            } else {
+                // Marking the roads keeps them from getting a second set of sidewalks
+                addCommand = new SequenceCommand(tr("Create parallel sidewalks"),
+                        createAddCommand(dataSet, newWays, snapped), markCommand);
+            }
+            GuiHelper.runInEDT(() -> {
+                if (addCommand == null) {
+                    new Notification(tr("No roads to create sidewalks for")).setIcon(JOptionPane.INFORMATION_MESSAGE)
+                            .show();
+                } else if (staleDataCheck.isCurrent()) {
+                    UndoRedoHandler.getInstance().add(addCommand);
+                    link(dataSet, sidewalks);
+                }
+            });
+        });
+    }
+
+    /**
+     * Get the roads to create sidewalks for
+     *
+     * @param dataSet  The dataset with the roads
+     * @param selected The selected ways
+     * @param bbox     The area to create sidewalks in, or {@code null} to use the selected ways
+     * @return The selected ways, or the roads in the area that don't have sidewalks yet
+     */
+    private static List<Way> getRoads(DataSet dataSet, List<Way> selected, BBox bbox) {
+        return bbox == null ? selected : ParallelSidewalkCreation.getRoadsWithoutSidewalks(dataSet, bbox);
+    }
+
+    /**
+     * Create the command that marks the roads of the new sidewalks with {@code sidewalk=separate}
+     *
+     * @param sidewalks The new sidewalks
+     * @return The command, or {@code null} if no road needs to be marked
+     */
+    private static Command createMarkSeparateCommand(List<ParallelSidewalk> sidewalks) {
+        return ParallelSidewalkCreation
+                .createMarkSeparateCommand(sidewalks.stream().map(ParallelSidewalk::road).toList());
+    }
+
+    /**
+     * Link the added sidewalks to their roads, so that they can be updated when the roads move
+     *
+     * @param dataSet   The dataset the sidewalks were added to
+     * @param sidewalks The sidewalks that were added
+     */
+    static void link(DataSet dataSet, Collection<ParallelSidewalk> sidewalks) {
+        final var links = SidewalkLinks.getLinks(dataSet);
+        for (ParallelSidewalk sidewalk : sidewalks) {
+            // The command adds copies of the sidewalks with the same ids. Simplified sidewalks may no longer have a
+            // node for each road node, so they cannot be updated.
+            if (dataSet.getPrimitiveById(sidewalk.sidewalk().getPrimitiveId()) instanceof Way added
+                    && added.getNodesCount() == sidewalk.road().getNodesCount()) {
+                links.link(new ParallelSidewalk(sidewalk.road(), sidewalk.side(), added, sidewalk.offset()));
+            }
+        }
+    }
+
+    /**
+     * Create a single command that adds all of the sidewalks. The command adds them in one dataset update, so
+     * listeners get one event instead of one event per primitive.
+     *
+     * @param dataSet   The dataset to add the sidewalks to
+     * @param sidewalks The sidewalks to add
+     * @param snapped   The new nodes to replace with existing nodes in the dataset
+     * @return The command
+     */
+    static Command createAddCommand(DataSet dataSet, Collection<Way> sidewalks, Map<Node, Node> snapped) {
+        int nodeCount = 0;
+        for (Way sidewalk : sidewalks) {
+            nodeCount += sidewalk.getNodesCount();
+        }
+        // Closed sidewalks have the same first and last node, and chained sidewalks share nodes at junctions
+        final Set<Node> nodes = new HashSet<>(nodeCount);
+        final List<PrimitiveData> dataCollection = new ArrayList<>(nodeCount + sidewalks.size());
+        final List<PrimitiveData> newSidewalks = new ArrayList<>(sidewalks.size());
+        for (Way sidewalk : sidewalks) {
+            final WayData data = sidewalk.save();
+            // Only the ids are saved, so the generated ways never reference nodes in the dataset
+            final List<Long> nodeIds = snapped.isEmpty() ? null : new ArrayList<>(sidewalk.getNodesCount());
+            for (Node node : sidewalk.getNodes()) {
+                final Node existing = snapped.get(node);
+                if (existing == null && nodes.add(node)) {
+                    dataCollection.add(node.save());
+                }
+                if (nodeIds != null) {
+                    nodeIds.add(existing == null ? node.getUniqueId() : existing.getUniqueId());
+                }
+            }
+            if (nodeIds != null) {
+                data.setNodeIds(nodeIds);
+            }
+            dataCollection.add(data);
+            newSidewalks.add(data);
         }
+        return new BulkAddPrimitivesCommand(dataCollection, newSidewalks, dataSet);
     }
 }
@@ -0,0 +1,57 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.street_level.actions;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import javax.swing.JOptionPane;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+
+import org.openstreetmap.josm.actions.JosmAction;
+import org.openstreetmap.josm.command.Command;
+import org.openstreetmap.josm.data.UndoRedoHandler;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.gui.MainApplication;
+import org.openstreetmap.josm.gui.Notification;
+import org.openstreetmap.josm.plugins.mapwithai.street_level.data.osm.SidewalkLinks;
+import org.openstreetmap.josm.tools.Shortcut;
+
+/**
+ * An action for moving generated sidewalks after their roads have been moved. Only the sidewalk nodes next to the
+ * moved road nodes are moved.
+ *
+ * @author Taylor Smock
+ */
+public class ParallelSidewalkUpdateAction extends JosmAction {
+    /**
+     * Create a new ParallelSidewalkUpdate action
+     */
+    public ParallelSidewalkUpdateAction() {
+        super(tr("Update parallel sidewalks"), (String) null, tr("Move generated sidewalks to follow their roads"),
+                Shortcut.registerShortcut("data:auto_sidewalk:update_parallel_sidewalks",
+                        tr("Update parallel sidewalks"), KeyEvent.CHAR_UNDEFINED, Shortcut.NONE),
+                true, "auto_sidewalk:update_parallel_sidewalks", true);
+    }
+
+    @Override
+    public void actionPerformed(final ActionEvent e) {
+        final DataSet dataSet = MainApplication.getLayerManager().getEditDataSet();
+        if (dataSet == null) {
+            return;
+        }
+        final Command command;
+        dataSet.getReadLock().lock();
+        try {
+            command = SidewalkLinks.getLinks(dataSet).createUpdateCommand();
+        } finally {
+            dataSet.getReadLock().unlock();
+        }
+        if (command == null) {
+            new Notification(tr("No generated sidewalks need to be updated")).setIcon(JOptionPane.INFORMATION_MESSAGE)
+                    .show();
+        } else {
+            UndoRedoHandler.getInstance().add(command);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.street_level.actions;
+
+import javax.swing.JOptionPane;
+
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.gui.Notification;
+import org.openstreetmap.josm.plugins.mapwithai.street_level.data.osm.DataSetChangeCounter;
+
+/**
+ * Check that a dataset did not change while a command for it was built on the worker thread. Create the check before
+ * the worker starts, so that edits made before then are seen as changes.
+ *
+ * @author Taylor Smock
+ */
+final class StaleDataCheck {
+    private final DataSetChangeCounter counter;
+    private final long count;
+    private final String message;
+
+    /**
+     * Create a new check
+     *
+     * @param dataSet The dataset the command is for
+     * @param message The (translated) message to show if the dataset changed
+     */
+    StaleDataCheck(DataSet dataSet, String message) {
+        this.counter = DataSetChangeCounter.getCounter(dataSet);
+        this.count = this.counter.getCount();
+        this.message = message;
+    }
+
+    /**
+     * Check if the dataset is unchanged. If it changed, the user is told to try again. Call this on the EDT, right
+     * before the command is added.
+     *
+     * @return {@code true} if the command can be added
+     */
+    boolean isCurrent() {
+        if (this.counter.getCount() == this.count) {
+            return true;
+        }
+        new Notification(this.message).setIcon(JOptionPane.WARNING_MESSAGE).show();
+        return false;
+    }
+}
@@ -0,0 +1,50 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.street_level.command;
+
+import java.util.List;
+
+import org.openstreetmap.josm.command.AddPrimitivesCommand;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.PrimitiveData;
+
+/**
+ * An {@link AddPrimitivesCommand} that adds (and removes, on undo) all of its primitives in a single dataset update.
+ * The dataset then fires one coalesced event instead of an event for every node and way, which matters when thousands
+ * of primitives are added at once.
+ *
+ * @author Taylor Smock
+ */
+public class BulkAddPrimitivesCommand extends AddPrimitivesCommand {
+    /**
+     * Create a new command
+     *
+     * @param data     The primitives to add
+     * @param toSelect The primitives to select once they are added
+     * @param ds       The dataset to add the primitives to
+     */
+    public BulkAddPrimitivesCommand(List<PrimitiveData> data, List<PrimitiveData> toSelect, DataSet ds) {
+        super(data, toSelect, ds);
+    }
+
+    @Override
+    public boolean executeCommand() {
+        final DataSet dataSet = getAffectedDataSet();
+        dataSet.beginUpdate();
+        try {
+            return super.executeCommand();
+        } finally {
+            dataSet.endUpdate();
+        }
+    }
+
+    @Override
+    public void undoCommand() {
+        final DataSet dataSet = getAffectedDataSet();
+        dataSet.beginUpdate();
+        try {
+            super.undoCommand();
+        } finally {
+            dataSet.endUpdate();
+        }
+    }
+}
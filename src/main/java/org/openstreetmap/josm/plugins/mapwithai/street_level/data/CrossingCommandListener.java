@@ -3,20 +3,29 @@ package org.openstreetmap.josm.plugins.mapwithai.street_level.data;
 
 import static org.openstreetmap.josm.tools.I18n.tr;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.Objects;
+import java.util.Set;
 import java.util.TreeMap;
 import java.util.stream.Collectors;
 
+import javax.swing.SwingUtilities;
+
 import org.openstreetmap.josm.command.ChangePropertyCommand;
 import org.openstreetmap.josm.command.Command;
+import org.openstreetmap.josm.command.PseudoCommand;
 import org.openstreetmap.josm.command.SequenceCommand;
 import org.openstreetmap.josm.data.UndoRedoHandler;
+import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.Way;
-import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.plugins.mapwithai.street_level.data.osm.CrossingLinkIndex;
+import org.openstreetmap.josm.plugins.mapwithai.street_level.data.preferences.SidewalkSettings;
 
 /**
  * Synchronize crossing way and crossing node tags
@@ -25,23 +34,65 @@ public class CrossingCommandListener implements UndoRedoHandler.CommandQueuePrec
     private static final String HIGHWAY = "highway";
     private static final String FOOTWAY = "footway";
     private static final String CROSSING = "crossing";
-    private static final String[] COMMON_TAGS = new String[] { "bicycle", CROSSING, "crossing:continuous",
+    /** The tags that are kept the same on crossing nodes and crossing ways */
+    static final String[] COMMON_TAGS = new String[] { "bicycle", CROSSING, "crossing:continuous",
             "crossing:markings", "crossing:signals", "crossing_ref", "cycleway", "flashing_lights", FOOTWAY, HIGHWAY,
             "horse", "path", "railway", "segregated", "traffic_signals:sound", "traffic_signals:vibration", };
+    /** {@link #COMMON_TAGS} as a hash set, so that a key can be checked without scanning the array */
+    private static final Set<String> COMMON_TAG_KEYS = Set.of(COMMON_TAGS);
+
+    /** Listeners with changes that are waiting for the outermost batch to be closed */
+    private static final Set<CrossingCommandListener> WAITING = new LinkedHashSet<>();
+    /** The number of open batches, guarded by {@link #WAITING} */
+    private static int batchDepth;
+
+    /** The crossing tags changed on each primitive since the last synchronization, guarded by {@code this} */
+    private final Map<OsmPrimitive, Map<String, String>> pending = new LinkedHashMap<>();
+    private boolean flushScheduled;
+    /** {@code true} while the merged synchronization command is being added, so that it is not collected again */
+    private volatile boolean flushing;
+
+    /**
+     * Start a batch of changes. While a batch is open, crossing tags are not synchronized after each command;
+     * instead, the primitives changed by all of the commands are synchronized with a single command when the
+     * outermost batch is closed.
+     *
+     * @return The batch, which must be closed
+     */
+    public static Batch batch() {
+        synchronized (WAITING) {
+            batchDepth++;
+        }
+        return new Batch();
+    }
 
     @Override
     public void commandAdded(UndoRedoHandler.CommandAddedEvent e) {
-        if (!Config.getPref().getBoolean("sidewalk.crossing.sync", true)) {
+        final var settings = SidewalkSettings.get();
+        if (!settings.isCrossingSync() || this.flushing) {
+            return;
+        }
+        if (settings.isCrossingSyncCoalesce() || isBatching()) {
+            collect(e.getCommand());
             return;
         }
         final Command command;
         if (e.getCommand()instanceof ChangePropertyCommand changePropertyCommand) {
             command = processChangePropertyCommand(changePropertyCommand);
         } else if (e.getCommand()instanceof SequenceCommand sequenceCommand) {
-            final var commands = sequenceCommand.getChildren().stream().filter(ChangePropertyCommand.class::isInstance)
-                    .map(ChangePropertyCommand.class::cast).map(CrossingCommandListener::processChangePropertyCommand)
-                    .filter(Objects::nonNull).toList();
-            command = commands.isEmpty() ? null
+            List<Command> commands = null;
+            for (PseudoCommand child : sequenceCommand.getChildren()) {
+                if (child instanceof ChangePropertyCommand changePropertyCommand) {
+                    final Command sync = processChangePropertyCommand(changePropertyCommand);
+                    if (sync != null) {
+                        if (commands == null) {
+                            commands = new ArrayList<>();
+                        }
+                        commands.add(sync);
+                    }
+                }
+            }
+            command = commands == null ? null
                     : SequenceCommand.wrapIfNeeded(tr("Synchronize crossing tags"), commands);
         } else {
             return;
@@ -51,50 +102,217 @@ public class CrossingCommandListener implements UndoRedoHandler.CommandQueuePrec
         }
     }
 
+    private static boolean isBatching() {
+        synchronized (WAITING) {
+            return batchDepth > 0;
+        }
+    }
+
+    /**
+     * Remember the crossing tags a command changed, and synchronize them later
+     *
+     * @param command The command that was added
+     */
+    private void collect(Command command) {
+        final List<ChangePropertyCommand> changes;
+        if (command instanceof ChangePropertyCommand changePropertyCommand) {
+            changes = List.of(changePropertyCommand);
+        } else if (command instanceof SequenceCommand sequenceCommand) {
+            changes = new ArrayList<>();
+            for (PseudoCommand child : sequenceCommand.getChildren()) {
+                if (child instanceof ChangePropertyCommand changePropertyCommand) {
+                    changes.add(changePropertyCommand);
+                }
+            }
+        } else {
+            return;
+        }
+        boolean changed = false;
+        synchronized (this) {
+            for (ChangePropertyCommand change : changes) {
+                if (hasCommonCrossingTag(change.getTags())) {
+                    final var changedTags = getCommonCrossingTags(change.getTags());
+                    for (OsmPrimitive primitive : change.getParticipatingPrimitives()) {
+                        // Later changes to the same primitive replace earlier ones
+                        this.pending.computeIfAbsent(primitive, ignored -> new TreeMap<>()).putAll(changedTags);
+                    }
+                    changed = true;
+                }
+            }
+        }
+        if (changed) {
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * Synchronize the pending changes once the current event has been handled, or when the outermost batch is closed
+     */
+    private void scheduleFlush() {
+        synchronized (WAITING) {
+            if (batchDepth > 0) {
+                WAITING.add(this);
+                return;
+            }
+        }
+        synchronized (this) {
+            if (this.flushScheduled) {
+                return;
+            }
+            this.flushScheduled = true;
+        }
+        SwingUtilities.invokeLater(this::flush);
+    }
+
+    /**
+     * Synchronize all of the pending changes with a single command
+     */
+    private void flush() {
+        synchronized (WAITING) {
+            // A batch was opened after this flush was scheduled
+            if (batchDepth > 0) {
+                WAITING.add(this);
+                synchronized (this) {
+                    this.flushScheduled = false;
+                }
+                return;
+            }
+        }
+        final Map<OsmPrimitive, Map<String, String>> changes;
+        synchronized (this) {
+            this.flushScheduled = false;
+            if (this.pending.isEmpty()) {
+                return;
+            }
+            changes = new LinkedHashMap<>(this.pending);
+            this.pending.clear();
+        }
+        final Map<Map<String, String>, Set<OsmPrimitive>> toChange = new LinkedHashMap<>();
+        for (Map.Entry<OsmPrimitive, Map<String, String>> entry : changes.entrySet()) {
+            final OsmPrimitive primitive = entry.getKey();
+            // The change may have been undone in the meantime, so use the current values
+            if (primitive.isUsable()) {
+                entry.getValue().replaceAll((key, value) -> primitive.get(key));
+                addLinkedChanges(primitive, entry.getValue(), toChange);
+            }
+        }
+        final Command command = createSyncCommand(toChange);
+        if (command != null) {
+            this.flushing = true;
+            try {
+                UndoRedoHandler.getInstance().add(command);
+            } finally {
+                this.flushing = false;
+            }
+        }
+    }
+
     private static Command processChangePropertyCommand(ChangePropertyCommand changePropertyCommand) {
-        final var newTags = getCommonCrossingTags(changePropertyCommand.getTags());
-        if (!newTags.isEmpty() && changePropertyCommand.getParticipatingPrimitives().size() == 1) {
-            final var changed = changePropertyCommand.getParticipatingPrimitives().iterator().next();
-            newTags.putAll(getCommonCrossingTags(changed.getKeys()));
-            final Collection<OsmPrimitive> linked;
-            if (changed instanceof Way footway) {
-                linked = processWay(newTags, footway);
-            } else if (changed instanceof Node crossing) {
-                linked = processNode(newTags, crossing);
-            } else {
-                // Relations are not supported for syncing crossing tags
-                return null;
+        // Most commands don't change crossing tags, so check that before building anything
+        if (!hasCommonCrossingTag(changePropertyCommand.getTags())) {
+            return null;
+        }
+        final var changedTags = getCommonCrossingTags(changePropertyCommand.getTags());
+        // Primitives that need the same tags get a single command
+        final Map<Map<String, String>, Set<OsmPrimitive>> toChange = new LinkedHashMap<>();
+        for (OsmPrimitive changed : changePropertyCommand.getParticipatingPrimitives()) {
+            addLinkedChanges(changed, changedTags, toChange);
+        }
+        return createSyncCommand(toChange);
+    }
+
+    /**
+     * Find the linked crossing primitives that need tags from a changed primitive
+     *
+     * @param changed     The changed primitive
+     * @param changedTags The crossing tags that were changed
+     * @param toChange    The primitives to change, grouped by the tags they need
+     */
+    private static void addLinkedChanges(OsmPrimitive changed, Map<String, String> changedTags,
+            Map<Map<String, String>, Set<OsmPrimitive>> toChange) {
+        final var newTags = new TreeMap<>(changedTags);
+        for (String key : COMMON_TAGS) {
+            final String value = changed.get(key);
+            if (value != null) {
+                newTags.put(key, value);
+            }
+        }
+        final Collection<? extends OsmPrimitive> linked;
+        if (changed instanceof Way footway) {
+            linked = processWay(newTags, footway);
+        } else if (changed instanceof Node crossing) {
+            linked = processNode(newTags, crossing);
+        } else {
+            // Relations are not supported for syncing crossing tags
+            return;
+        }
+        for (OsmPrimitive link : linked) {
+            if (!hasTags(link, newTags)) {
+                toChange.computeIfAbsent(newTags, tags -> new LinkedHashSet<>()).add(link);
             }
-            if (!newTags.entrySet().stream().allMatch(
-                    entry -> linked.stream().allMatch(link -> link.hasTag(entry.getKey(), entry.getValue())))) {
-                return new ChangePropertyCommand(linked, newTags);
+        }
+    }
+
+    private static Command createSyncCommand(Map<Map<String, String>, Set<OsmPrimitive>> toChange) {
+        if (toChange.isEmpty()) {
+            return null;
+        }
+        final List<Command> commands = new ArrayList<>(toChange.size());
+        for (Map.Entry<Map<String, String>, Set<OsmPrimitive>> entry : toChange.entrySet()) {
+            commands.add(new ChangePropertyCommand(entry.getValue(), entry.getKey()));
+        }
+        return SequenceCommand.wrapIfNeeded(tr("Synchronize crossing tags"), commands);
+    }
+
+    private static boolean hasTags(OsmPrimitive primitive, Map<String, String> tags) {
+        for (Map.Entry<String, String> entry : tags.entrySet()) {
+            if (!primitive.hasTag(entry.getKey(), entry.getValue())) {
+                return false;
             }
         }
-        return null;
+        return true;
     }
 
-    private static Collection<OsmPrimitive> processWay(Map<String, String> newTags, Way footway) {
+    private static Collection<? extends OsmPrimitive> processWay(Map<String, String> newTags, Way footway) {
         if (newTags.containsKey(FOOTWAY)) {
             newTags.put(HIGHWAY, newTags.remove(FOOTWAY));
         } else {
             newTags.remove(HIGHWAY); // Don't copy the highway tag over
         }
+        if (CrossingLinkIndex.isCrossingWay(footway)) {
+            return CrossingLinkIndex.getIndex(footway.getDataSet()).getCrossingNodes(footway);
+        }
+        // Tags on other ways are copied to their crossing nodes too, but those ways are not indexed
         return footway.getNodes().stream().filter(node -> node.hasTag(HIGHWAY, CROSSING)).collect(Collectors.toSet());
     }
 
-    private static Collection<OsmPrimitive> processNode(Map<String, String> newTags, Node crossing) {
+    private static Collection<? extends OsmPrimitive> processNode(Map<String, String> newTags, Node crossing) {
         if (newTags.containsKey(HIGHWAY))
             newTags.put(FOOTWAY, newTags.remove(HIGHWAY));
-        return crossing.getParentWays().stream()
-                .filter(way -> way.hasTag(HIGHWAY, FOOTWAY) && way.hasTag(FOOTWAY, CROSSING))
-                .collect(Collectors.toSet());
+        final DataSet dataSet = crossing.getDataSet();
+        if (dataSet == null) {
+            return List.of();
+        }
+        // The highway tag becomes the footway tag, so only footway crossings get the node tags
+        final Set<Way> crossingWays = CrossingLinkIndex.getIndex(dataSet).getCrossingWays(crossing);
+        crossingWays.removeIf(way -> !way.hasTag(HIGHWAY, FOOTWAY));
+        return crossingWays;
     }
 
-    private static Map<String, String> getCommonCrossingTags(Map<String, String> object) {
+    private static boolean hasCommonCrossingTag(Map<String, String> tags) {
+        for (String key : tags.keySet()) {
+            if (COMMON_TAG_KEYS.contains(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Map<String, String> getCommonCrossingTags(Map<String, String> tags) {
         final var crossingMap = new TreeMap<String, String>();
-        for (var key : COMMON_TAGS) {
-            if (object.containsKey(key)) {
-                crossingMap.put(key, object.get(key));
+        for (Map.Entry<String, String> entry : tags.entrySet()) {
+            if (COMMON_TAG_KEYS.contains(entry.getKey())) {
+                crossingMap.put(entry.getKey(), entry.getValue());
             }
         }
         return crossingMap;
@@ -102,16 +320,64 @@ public class CrossingCommandListener implements UndoRedoHandler.CommandQueuePrec
 
     @Override
     public void cleaned(UndoRedoHandler.CommandQueueCleanedEvent e) {
-        // Don't care
+        synchronized (this) {
+            this.pending.clear();
+        }
     }
 
     @Override
     public void commandUndone(UndoRedoHandler.CommandUndoneEvent e) {
-        // Don't care
+        refreshLinks(e.getCommand());
     }
 
     @Override
     public void commandRedone(UndoRedoHandler.CommandRedoneEvent e) {
-        // Don't care
+        refreshLinks(e.getCommand());
+    }
+
+    /**
+     * Make sure the crossing links are current after a command was undone or redone. The dataset events usually do
+     * this already, but the commands don't have to fire them in an order the index can follow.
+     *
+     * @param command The undone or redone command
+     */
+    private static void refreshLinks(Command command) {
+        final DataSet dataSet = command.getAffectedDataSet();
+        if (dataSet != null) {
+            CrossingLinkIndex.refresh(dataSet, command.getParticipatingPrimitives());
+        }
+    }
+
+    /**
+     * A batch of changes whose crossing tags are synchronized together
+     *
+     * @see #batch()
+     */
+    public static final class Batch implements AutoCloseable {
+        private boolean closed;
+
+        private Batch() {
+            // Use CrossingCommandListener#batch()
+        }
+
+        /**
+         * Close the batch. If this is the outermost batch, the changes made while it was open are synchronized.
+         */
+        @Override
+        public void close() {
+            final List<CrossingCommandListener> waiting;
+            synchronized (WAITING) {
+                if (this.closed) {
+                    return;
+                }
+                this.closed = true;
+                if (--batchDepth > 0) {
+                    return;
+                }
+                waiting = new ArrayList<>(WAITING);
+                WAITING.clear();
+            }
+            waiting.forEach(CrossingCommandListener::flush);
+        }
     }
 }
@@ -0,0 +1,179 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.street_level.data;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.openstreetmap.josm.command.ChangePropertyCommand;
+import org.openstreetmap.josm.command.Command;
+import org.openstreetmap.josm.command.SequenceCommand;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.plugins.mapwithai.street_level.data.osm.CrossingLinkIndex;
+
+/**
+ * Find crossing nodes and crossing ways whose crossing tags disagree, e.g. in data that was not edited with
+ * {@link CrossingCommandListener} running. Only the tags in {@link CrossingCommandListener#COMMON_TAGS} are compared,
+ * except for {@code highway} and the crossing type key (e.g. {@code footway}), which are what make a node or way a
+ * crossing. Crossing nodes and ways are as defined by {@link CrossingLinkIndex}.
+ *
+ * @author Taylor Smock
+ */
+public final class CrossingConsistency {
+    private static final String HIGHWAY = "highway";
+    private static final String FOOTWAY = "footway";
+    /** The tags to compare */
+    private static final String[] TAGS = Arrays.stream(CrossingCommandListener.COMMON_TAGS)
+            .filter(key -> !HIGHWAY.equals(key) && !FOOTWAY.equals(key)).toArray(String[]::new);
+
+    private CrossingConsistency() {
+        // Hide the constructor
+    }
+
+    /**
+     * Find the crossing tag mismatches in a dataset. Call this while holding the dataset read lock.
+     *
+     * @param dataSet The dataset to scan
+     * @return The mismatches
+     */
+    public static List<Mismatch> scan(DataSet dataSet) {
+        return scan(dataSet.getNodes());
+    }
+
+    /**
+     * Find the crossing tag mismatches for some nodes. The nodes are checked in parallel, so this must not be called
+     * while the data can change.
+     *
+     * @param nodes The nodes to check; nodes that are not crossing nodes are skipped
+     * @return The mismatches, one for each crossing node and crossing way pair that disagrees
+     */
+    public static List<Mismatch> scan(Collection<Node> nodes) {
+        // Dataset collections are filtered views that don't split well, so only the crossing nodes are checked in
+        // parallel
+        final List<Node> crossingNodes = nodes.stream().filter(CrossingLinkIndex::isCrossingNode).toList();
+        return crossingNodes.parallelStream().flatMap(node -> check(node).stream()).toList();
+    }
+
+    private static List<Mismatch> check(Node node) {
+        List<Mismatch> mismatches = null;
+        for (Way way : node.getParentWays()) {
+            if (!CrossingLinkIndex.isCrossingWay(way)) {
+                continue;
+            }
+            // cycleway=crossing is what makes a cycleway a crossing, like footway=crossing for footways
+            final String typeKey = way.get(HIGHWAY);
+            SortedMap<String, String> nodeMissing = null;
+            SortedMap<String, String> wayMissing = null;
+            SortedSet<String> conflicts = null;
+            for (String key : TAGS) {
+                if (key.equals(typeKey)) {
+                    continue;
+                }
+                final String nodeValue = node.get(key);
+                final String wayValue = way.get(key);
+                if (nodeValue == null && wayValue != null) {
+                    nodeMissing = nodeMissing == null ? new TreeMap<>() : nodeMissing;
+                    nodeMissing.put(key, wayValue);
+                } else if (nodeValue != null && wayValue == null) {
+                    wayMissing = wayMissing == null ? new TreeMap<>() : wayMissing;
+                    wayMissing.put(key, nodeValue);
+                } else if (nodeValue != null && !nodeValue.equals(wayValue)) {
+                    conflicts = conflicts == null ? new TreeSet<>() : conflicts;
+                    conflicts.add(key);
+                }
+            }
+            if (nodeMissing != null || wayMissing != null || conflicts != null) {
+                mismatches = mismatches == null ? new ArrayList<>(1) : mismatches;
+                mismatches.add(new Mismatch(node, way, nodeMissing == null ? Map.of() : nodeMissing,
+                        wayMissing == null ? Map.of() : wayMissing, conflicts == null ? Set.of() : conflicts));
+            }
+        }
+        return mismatches == null ? List.of() : mismatches;
+    }
+
+    /**
+     * Create a single command that copies missing crossing tags between crossing nodes and crossing ways. Tags with
+     * different values on the node and the way are left alone, since there is no way to tell which one is right.
+     * Primitives that get the same tags are changed by the same {@link ChangePropertyCommand}.
+     *
+     * @param mismatches The mismatches to fix
+     * @return The command, or {@code null} if there is nothing to fix
+     */
+    public static Command createFixCommand(Collection<Mismatch> mismatches) {
+        final Map<OsmPrimitive, Map<String, String>> additions = new LinkedHashMap<>();
+        // A node with several crossing ways may be asked to take different values for the same key
+        final Map<OsmPrimitive, Set<String>> ambiguous = new HashMap<>();
+        for (Mismatch mismatch : mismatches) {
+            add(additions, ambiguous, mismatch.node(), mismatch.nodeMissing());
+            add(additions, ambiguous, mismatch.way(), mismatch.wayMissing());
+        }
+        final Map<Map<String, String>, List<OsmPrimitive>> byTags = new LinkedHashMap<>();
+        for (Map.Entry<OsmPrimitive, Map<String, String>> entry : additions.entrySet()) {
+            final Set<String> skip = ambiguous.get(entry.getKey());
+            if (skip != null) {
+                entry.getValue().keySet().removeAll(skip);
+            }
+            if (!entry.getValue().isEmpty()) {
+                byTags.computeIfAbsent(entry.getValue(), tags -> new ArrayList<>()).add(entry.getKey());
+            }
+        }
+        if (byTags.isEmpty()) {
+            return null;
+        }
+        final List<Command> commands = new ArrayList<>(byTags.size());
+        for (Map.Entry<Map<String, String>, List<OsmPrimitive>> entry : byTags.entrySet()) {
+            commands.add(new ChangePropertyCommand(entry.getValue(), entry.getKey()));
+        }
+        return SequenceCommand.wrapIfNeeded(tr("Synchronize crossing tags"), commands);
+    }
+
+    private static void add(Map<OsmPrimitive, Map<String, String>> additions, Map<OsmPrimitive, Set<String>> ambiguous,
+            OsmPrimitive primitive, Map<String, String> missing) {
+        if (missing.isEmpty()) {
+            return;
+        }
+        final Map<String, String> tags = additions.computeIfAbsent(primitive, ignored -> new TreeMap<>());
+        for (Map.Entry<String, String> entry : missing.entrySet()) {
+            final String previous = tags.putIfAbsent(entry.getKey(), entry.getValue());
+            if (previous != null && !previous.equals(entry.getValue())) {
+                ambiguous.computeIfAbsent(primitive, ignored -> new HashSet<>()).add(entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * Crossing tags that disagree between a crossing node and one of its crossing ways
+     *
+     * @param node        The crossing node
+     * @param way         The crossing way
+     * @param nodeMissing The tags the way has and the node does not
+     * @param wayMissing  The tags the node has and the way does not
+     * @param conflicts   The keys with different values on the node and the way
+     */
+    public record Mismatch(Node node, Way way, Map<String, String> nodeMissing, Map<String, String> wayMissing,
+            Set<String> conflicts) {
+        /**
+         * Check if {@link CrossingConsistency#createFixCommand(Collection)} can fix this mismatch
+         *
+         * @return {@code true} if tags are missing on the node or the way
+         */
+        public boolean isFixable() {
+            return !this.nodeMissing.isEmpty() || !this.wayMissing.isEmpty();
+        }
+    }
+}
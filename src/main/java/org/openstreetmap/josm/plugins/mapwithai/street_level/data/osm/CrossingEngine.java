@@ -0,0 +1,488 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.street_level.data.osm;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.openstreetmap.josm.command.AddCommand;
+import org.openstreetmap.josm.command.AddPrimitivesCommand;
+import org.openstreetmap.josm.command.ChangeNodesCommand;
+import org.openstreetmap.josm.command.ChangePropertyCommand;
+import org.openstreetmap.josm.command.Command;
+import org.openstreetmap.josm.command.DeleteCommand;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmUtils;
+import org.openstreetmap.josm.data.osm.Tag;
+import org.openstreetmap.josm.data.osm.TagCollection;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.plugins.mapwithai.street_level.data.preferences.SidewalkSettings;
+import org.openstreetmap.josm.plugins.mapwithai.street_level.tools.LatencyStatistics;
+import org.openstreetmap.josm.plugins.mapwithai.street_level.tools.LatencyStatistics.Phase;
+
+/**
+ * The crossing logic used by sidewalk mode, without any GUI dependencies. This works on any {@link DataSet}, and only
+ * returns commands; it never executes them. Planning may be done from any thread; an engine may be shared between
+ * threads.
+ *
+ * @author Taylor Smock
+ */
+public final class CrossingEngine {
+    private static final String CROSSING = "crossing";
+    private static final String HIGHWAY = "highway";
+
+    private final DataSet dataSet;
+    private final HighwayIndex index;
+    private final FootwayGraph graph;
+    private final SidewalkSettings settings;
+
+    /**
+     * Create a new engine with the current settings
+     *
+     * @param dataSet The dataset to work on
+     */
+    public CrossingEngine(DataSet dataSet) {
+        this(dataSet, SidewalkSettings.get());
+    }
+
+    /**
+     * Create a new engine
+     *
+     * @param dataSet  The dataset to work on
+     * @param settings The settings to use
+     */
+    public CrossingEngine(DataSet dataSet, SidewalkSettings settings) {
+        this.dataSet = Objects.requireNonNull(dataSet);
+        this.index = HighwayIndex.getIndex(dataSet);
+        this.graph = FootwayGraph.getGraph(dataSet);
+        this.settings = Objects.requireNonNull(settings);
+    }
+
+    /**
+     * Build the indexes an engine needs for a dataset, so that creating an engine later is cheap. Building them can
+     * be slow for large datasets, so call this off of the EDT.
+     *
+     * @param dataSet The dataset to index
+     */
+    public static void prepareIndexes(DataSet dataSet) {
+        HighwayIndex.getIndex(dataSet);
+        FootwayGraph.getGraph(dataSet);
+    }
+
+    /**
+     * Get the dataset this engine works on
+     *
+     * @return The dataset
+     */
+    public DataSet getDataSet() {
+        return this.dataSet;
+    }
+
+    /**
+     * Find the crossings for a newly drawn segment at one end of a way. This does not modify anything, and takes the
+     * dataset read lock.
+     *
+     * @param way              The way being drawn
+     * @param forwardDirection {@code true} if the segment was added to the end of the way
+     * @param parentWays       The footways connected to the other end of the way (for tag information)
+     * @param wayWillHaveKeys  {@code true} if the way has keys, or will have keys before the plan is applied
+     * @return The crossings to create
+     */
+    public CrossingPlan plan(Way way, boolean forwardDirection, Collection<Way> parentWays, boolean wayWillHaveKeys) {
+        this.dataSet.getReadLock().lock();
+        try {
+            // Read this first, so that anything that happens after we start is seen as a change
+            final long modificationCount = this.index.getModificationCount();
+            // Only the nodes of the drawn segment are needed; a temporary way would add itself to their referrers
+            final int startIndex = forwardDirection ? way.getNodesCount() - 2 : 0;
+            final Node start = way.getNode(startIndex);
+            final Node end = way.getNode(startIndex + 1);
+            final var crossings = findCrossings(way, start, end);
+            // Lanes are somewhere around 3.6m; most roads are going to be less than 3 lanes
+            // one way. This means 3 lanes/way * 2 ways * 3.6 metres/lane = 21.6 metres
+            // should be a good "max length" for automatically adding a crossing way (this
+            // should avoid situations where the user is trying to make a curve and gets a
+            // bunch of crossing ways). Rounded up to 30m due to feedback.
+            final boolean createWay = start.greatCircleDistance(end) < this.settings.getCrossingMaxLength();
+            final List<Node> kerbNodes;
+            if (createWay && this.settings.isCrossingKerb() && crossings.stream().anyMatch(Crossing::isCrossing)) {
+                kerbNodes = Stream.of(start, end).filter(node -> !this.graph.isInMiddleOfFootway(node, way, null))
+                        .toList();
+            } else {
+                kerbNodes = Collections.emptyList();
+            }
+            return new CrossingPlan(way, start, end, forwardDirection, List.copyOf(parentWays), wayWillHaveKeys,
+                    crossings, createWay, kerbNodes, modificationCount);
+        } finally {
+            this.dataSet.getReadLock().unlock();
+        }
+    }
+
+    /**
+     * Plan the crossings for the segment of an outdated plan again. If the user kept drawing, the segment is no longer
+     * at the end of the way, so it only gets crossing nodes. This takes the dataset read lock.
+     *
+     * @param plan The outdated plan
+     * @return The new plan, or {@code null} if the segment is no longer part of the way
+     */
+    public CrossingPlan replan(CrossingPlan plan) {
+        final var way = plan.way();
+        this.dataSet.getReadLock().lock();
+        try {
+            if (!way.isUsable() || way.getNodesCount() < 2) {
+                return null;
+            }
+            final int endIndex = plan.forwardDirection() ? way.getNodesCount() - 2 : 0;
+            if (plan.start().equals(way.getNode(endIndex)) && plan.end().equals(way.getNode(endIndex + 1))) {
+                return plan(way, plan.forwardDirection(), plan.parentWays(), plan.wayWillHaveKeys());
+            }
+            final long modificationCount = this.index.getModificationCount();
+            for (int i = 0; i < way.getNodesCount() - 1; i++) {
+                if (plan.start().equals(way.getNode(i)) && plan.end().equals(way.getNode(i + 1))) {
+                    return new CrossingPlan(way, plan.start(), plan.end(), plan.forwardDirection(), plan.parentWays(),
+                            plan.wayWillHaveKeys(), findCrossings(way, plan.start(), plan.end()), false,
+                            Collections.emptyList(), modificationCount);
+                }
+            }
+            return null;
+        } finally {
+            this.dataSet.getReadLock().unlock();
+        }
+    }
+
+    /**
+     * Check if a plan is still valid
+     *
+     * @param plan The plan to check
+     * @return {@code true} if the dataset has not changed since the plan was made
+     */
+    public boolean isCurrent(CrossingPlan plan) {
+        return this.index.getModificationCount() == plan.modificationCount();
+    }
+
+    /**
+     * Create the commands for a plan. The commands are not executed. Call this from the thread that edits the
+     * dataset (usually the EDT).
+     *
+     * @param plan The plan from {@link #plan(Way, boolean, Collection, boolean)}
+     * @return The commands, which should be executed in order after any commands the plan expects
+     *         ({@code wayWillHaveKeys}). Empty if there are no crossings.
+     */
+    public List<Command> createCommands(CrossingPlan plan) {
+        final var commands = new ArrayList<Command>();
+        if (plan.crossings().isEmpty()) {
+            return commands;
+        }
+        if (plan.createWay()) {
+            createCrossingWay(plan, commands);
+        } else {
+            final var way = plan.way();
+            final var wayNodes = new ArrayList<>(way.getNodes());
+            for (Crossing crossing : plan.crossings()) {
+                createCrossingNodes(wayNodes, plan.start(), plan.end(), crossing.intersection(), commands);
+            }
+            if (wayNodes.size() != way.getNodesCount()) {
+                commands.add(new ChangeNodesCommand(way, wayNodes));
+            }
+        }
+        return commands;
+    }
+
+    /**
+     * Generate crossings for existing footways. This does not modify anything, and takes the dataset read lock, so it
+     * may be called from any thread.
+     *
+     * @param footways The footways to generate crossings for
+     * @return The command to create the crossings, or {@code null} if there is nothing to do
+     * @see CrossingGenerator
+     */
+    public Command generateCrossings(Collection<Way> footways) {
+        this.dataSet.getReadLock().lock();
+        try {
+            return CrossingGenerator.createCommand(this.dataSet, CrossingGenerator.findCrossings(footways, this.index),
+                    this.settings);
+        } finally {
+            this.dataSet.getReadLock().unlock();
+        }
+    }
+
+    /**
+     * Switch to drawing a footway from a crossing. The last segment drawn becomes its own way.
+     *
+     * @param way              The way to split (switch to footway from sidewalk)
+     * @param parentWays       The parent ways of the node we are switching to a footway
+     * @param forwardDirection {@code true} if adding to the end of the way
+     * @return The commands to split the way
+     */
+    public static List<Command> switchToFootway(Way way, Collection<Way> parentWays, boolean forwardDirection) {
+        // We want to use sidewalk tags from the "right" side of the road
+        final var newParentWays = FootwayGraph.getGraph(way.getDataSet())
+                .getFootways(forwardDirection ? way.lastNode() : way.firstNode(), way);
+        final var actualWays = newParentWays.isEmpty() ? parentWays : newParentWays;
+        final var startIndex = forwardDirection ? 0 : 1;
+        final var commands = new ArrayList<Command>(2);
+        commands.add(new ChangeNodesCommand(way,
+                new ArrayList<>(way.getNodes().subList(startIndex, way.getNodesCount() - 1 + startIndex))));
+        final var stubWay = new Way();
+        if (forwardDirection) {
+            stubWay.addNode(way.getNode(way.getNodesCount() - 2));
+            stubWay.addNode(way.lastNode());
+        } else {
+            stubWay.addNode(way.firstNode());
+            stubWay.addNode(way.getNode(1));
+        }
+        stubWay.putAll(getCommonTags(actualWays));
+        commands.add(new AddPrimitivesCommand(Collections.singletonList(stubWay.save()), way.getDataSet()));
+        return commands;
+    }
+
+    /**
+     * Find the crossings for a newly drawn segment
+     *
+     * @param way   The way being drawn
+     * @param start The start of the newly drawn segment
+     * @param end   The end of the newly drawn segment
+     * @return The crossings
+     */
+    private List<Crossing> findCrossings(Way way, Node start, Node end) {
+        // The index only holds highways, so we don't have to filter out non-highways here
+        final long searchStart = LatencyStatistics.start();
+        final var possibleWays = this.index.search(new BBox(start.lon(), start.lat(), end.lon(), end.lat()));
+        possibleWays.remove(way);
+        LatencyStatistics.stop(Phase.CANDIDATE_SEARCH, searchStart);
+        final long testStart = LatencyStatistics.start();
+        final var sidewalkLayer = OsmUtils.getLayer(way);
+        final var crossings = new ArrayList<Crossing>(1);
+        for (var possibleCrossing : possibleWays) {
+            if (!Objects.equals(OsmUtils.getLayer(possibleCrossing), sidewalkLayer)
+                    || possibleCrossing.containsNode(start) || possibleCrossing.containsNode(end)) {
+                continue;
+            }
+            final var intersection = SegmentIntersection.find(start, end, possibleCrossing);
+            if (intersection != null) {
+                final boolean isCrossing = CrossingGenerator.isCrossing(possibleCrossing);
+                crossings.add(new Crossing(intersection, isCrossing,
+                        CrossingGenerator.getCrossingTags(way, possibleCrossing, isCrossing)));
+            }
+        }
+        LatencyStatistics.stop(Phase.INTERSECTION_TESTS, testStart);
+        return Collections.unmodifiableList(crossings);
+    }
+
+    /**
+     * Create the crossing way
+     *
+     * @param plan     The crossings to create
+     * @param commands The collection to add commands to
+     */
+    private void createCrossingWay(CrossingPlan plan, Collection<Command> commands) {
+        final var way = plan.way();
+        // The drawn segment becomes the crossing way
+        final var newNodes = new ArrayList<>(way.getNodes());
+        newNodes.remove(plan.forwardDirection() ? newNodes.size() - 1 : 0);
+        final boolean deleteWay = newNodes.size() <= 1;
+        if (deleteWay) {
+            commands.add(DeleteCommand.delete(Collections.singleton(way), false, true));
+        } else {
+            commands.add(new ChangeNodesCommand(way, newNodes));
+        }
+        if (!plan.kerbNodes().isEmpty()) {
+            commands.add(new ChangePropertyCommand(plan.kerbNodes(), this.settings.getCrossingKerbTags()));
+        }
+        // Now add the intersection nodes
+        final var crossingNodes = new ArrayList<>(List.of(plan.start(), plan.end()));
+        final var crossingWay = new Way();
+        final var existingCrossingNodes = new ArrayList<Node>(plan.crossings().size());
+        for (Crossing crossing : plan.crossings()) {
+            crossingWay.putAll(crossing.tags());
+            final var node = createCrossingNodes(crossingNodes, plan.start(), plan.end(), crossing.intersection(),
+                    commands);
+            if (node != null && crossing.isCrossing()) {
+                if (node.getDataSet() == null) {
+                    // This is a new node, so just tag it before it is added
+                    node.put(HIGHWAY, CROSSING);
+                } else if (!node.hasTag(HIGHWAY, CROSSING)) {
+                    existingCrossingNodes.add(node);
+                }
+            }
+        }
+        crossingWay.setNodes(crossingNodes);
+        final var crossingWayData = crossingWay.save();
+        // Don't leave the temporary way in the referrers of the dataset nodes
+        crossingWay.setNodes(null);
+        commands.add(new AddPrimitivesCommand(Collections.singletonList(crossingWayData), this.dataSet));
+        if (!deleteWay && !plan.wayWillHaveKeys() && !plan.parentWays().isEmpty()) {
+            commands.add(new ChangePropertyCommand(Collections.singletonList(way), getCommonTags(plan.parentWays())));
+        }
+        if (!existingCrossingNodes.isEmpty()) {
+            commands.add(new ChangePropertyCommand(existingCrossingNodes, HIGHWAY, CROSSING));
+        }
+    }
+
+    private static Map<String, String> getCommonTags(Collection<Way> ways) {
+        return TagCollection.commonToAllPrimitives(ways).asList().stream()
+                .collect(Collectors.toMap(Tag::getKey, Tag::getValue));
+    }
+
+    /**
+     * Create the crossing node for an intersection. The commands are not executed.
+     *
+     * @param nodes        The nodes of the crossing way. The crossing node is
+     *                     inserted into this list.
+     * @param start        The start of the drawn segment
+     * @param end          The end of the drawn segment
+     * @param intersection Where the drawn segment intersects another way
+     * @param commands     The collection to add commands to
+     * @return The crossing node, or {@code null} if there isn't a single
+     *         intersection
+     */
+    private Node createCrossingNodes(List<Node> nodes, Node start, Node end, SegmentIntersection intersection,
+            Collection<Command> commands) {
+        if (!intersection.isUnique()) {
+            // We don't know which intersection the user wants
+            return null;
+        }
+        final var possibleCrossing = intersection.getWay();
+        final var crossingSegment = intersection.getSegment();
+        final long timingStart = LatencyStatistics.start();
+        final var latLon = intersection.getLatLon();
+        final var intersectionCommands = new ArrayList<Command>(2);
+        // Use existing nodes if the intersection is at one of them
+        var node = Stream.of(crossingSegment.getFirstNode(), crossingSegment.getSecondNode())
+                .filter(latLon::equalsEpsilon).findFirst().orElse(null);
+        final boolean onPossibleCrossing = node != null;
+        if (node == null) {
+            node = Stream.of(start, end).filter(latLon::equalsEpsilon).findFirst().orElse(null);
+        }
+        final boolean onCrossingWay = node != null && !onPossibleCrossing;
+        if (node == null) {
+            // Another way may cross at the same place, so use the node that was made for it
+            node = findAlongSegment(nodes, start, end, latLon);
+        }
+        if (node == null) {
+            node = new Node(latLon);
+            intersectionCommands.add(new AddCommand(possibleCrossing.getDataSet(), node));
+        }
+        if (!onPossibleCrossing) {
+            final var possibleCrossingNodes = new ArrayList<>(possibleCrossing.getNodes());
+            possibleCrossingNodes.add(crossingSegment.getUpperIndex(), node);
+            intersectionCommands.add(new ChangeNodesCommand(possibleCrossing, possibleCrossingNodes));
+        }
+        final var maxCrossingDistance = this.settings.getCrossingNodeMaxDistance();
+        // Check if the crossing segment has a node with crossing tags already
+        final var intersectionNode = node;
+        final var closestCrossing = Stream.of(crossingSegment.getFirstNode(), crossingSegment.getSecondNode())
+                .filter(n -> n.hasTag(HIGHWAY, CROSSING) && n.getParentWays().size() == 1)
+                .min(Comparator.comparingDouble(intersectionNode::distanceSq));
+        boolean changeNodes = false;
+        if (closestCrossing.isPresent() && node.greatCircleDistance(closestCrossing.get()) < maxCrossingDistance) {
+            node = closestCrossing.get();
+            changeNodes = true;
+        } else {
+            // Then check for a very close node ''without'' other tags
+            final var dupeNodeDistance = this.settings.getCrossingNodeDupeDistance();
+            final var closestNode = Stream.of(crossingSegment.getFirstNode(), crossingSegment.getSecondNode())
+                    .filter(n -> n.getParentWays().size() == 1 && !n.isTagged())
+                    .min(Comparator.comparingDouble(intersectionNode::distanceSq)).orElse(null);
+            if (closestNode != null && node.greatCircleDistance(closestNode) < dupeNodeDistance) {
+                node = closestNode;
+                changeNodes = true;
+            }
+        }
+        if (changeNodes) {
+            intersectionCommands.clear();
+        }
+        if (changeNodes || !onCrossingWay) {
+            insertAlongSegment(nodes, start, end, node);
+        }
+        commands.addAll(intersectionCommands);
+        LatencyStatistics.stop(Phase.CROSSING_NODES, timingStart);
+        return node;
+    }
+
+    /**
+     * Insert a node between the start and end of a segment, after any nodes that were already inserted closer to the
+     * start of the segment.
+     *
+     * @param nodes The nodes to insert into
+     * @param start The start of the segment
+     * @param end   The end of the segment
+     * @param node  The node to insert
+     */
+    private static void insertAlongSegment(List<Node> nodes, Node start, Node end, Node node) {
+        int index = segmentStart(nodes, start, end);
+        // Two crossings can end up with the same node, e.g. where the crossed ways share a node
+        for (int i = index + 1; i < nodes.size() && !nodes.get(i).equals(end); i++) {
+            if (nodes.get(i).equals(node)) {
+                return;
+            }
+        }
+        final double distance = start.distanceSq(node);
+        index++;
+        while (index < nodes.size() && !nodes.get(index).equals(end) && start.distanceSq(nodes.get(index)) < distance) {
+            index++;
+        }
+        nodes.add(index, node);
+    }
+
+    /**
+     * Find a node that was already inserted between the start and end of a segment
+     *
+     * @param nodes  The nodes with the segment
+     * @param start  The start of the segment
+     * @param end    The end of the segment
+     * @param latLon The location of the node
+     * @return The inserted node at the location, or {@code null}
+     */
+    private static Node findAlongSegment(List<Node> nodes, Node start, Node end, LatLon latLon) {
+        for (int i = segmentStart(nodes, start, end) + 1; i < nodes.size() && !nodes.get(i).equals(end); i++) {
+            if (latLon.equalsEpsilon(nodes.get(i))) {
+                return nodes.get(i);
+            }
+        }
+        return null;
+    }
+
+    private static int segmentStart(List<Node> nodes, Node start, Node end) {
+        final int index = nodes.indexOf(start);
+        return index < 0 ? Math.max(0, nodes.indexOf(end) - 1) : index;
+    }
+
+    /**
+     * A place where a drawn segment crosses another way
+     *
+     * @param intersection Where the drawn segment intersects the crossed way
+     * @param isCrossing   {@code true} if this should be tagged as a crossing
+     * @param tags         The tags for the crossing way
+     */
+    public record Crossing(SegmentIntersection intersection, boolean isCrossing, Map<String, String> tags) {
+    }
+
+    /**
+     * The crossings to create for a newly drawn segment
+     *
+     * @param way               The way being drawn
+     * @param start             The start of the newly drawn segment
+     * @param end               The end of the newly drawn segment
+     * @param forwardDirection  {@code true} if the segment was added to the end of the way
+     * @param parentWays        The footways connected to the other end of the way
+     * @param wayWillHaveKeys   {@code true} if the way will have keys when the plan is applied
+     * @param crossings         The crossings
+     * @param createWay         {@code true} if the drawn segment is short enough to become a crossing way
+     * @param kerbNodes         The nodes that should get kerb tags
+     * @param modificationCount The highway index modification count when the plan was made
+     */
+    public record CrossingPlan(Way way, Node start, Node end, boolean forwardDirection, List<Way> parentWays,
+            boolean wayWillHaveKeys, List<Crossing> crossings, boolean createWay, List<Node> kerbNodes,
+            long modificationCount) {
+    }
+}
@@ -0,0 +1,407 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.street_level.data.osm;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Stream;
+
+import org.openstreetmap.josm.command.AddCommand;
+import org.openstreetmap.josm.command.AddPrimitivesCommand;
+import org.openstreetmap.josm.command.ChangeNodesCommand;
+import org.openstreetmap.josm.command.ChangePropertyCommand;
+import org.openstreetmap.josm.command.Command;
+import org.openstreetmap.josm.command.SequenceCommand;
+import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmUtils;
+import org.openstreetmap.josm.data.osm.PrimitiveData;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.WayData;
+import org.openstreetmap.josm.plugins.mapwithai.street_level.data.preferences.SidewalkSettings;
+
+/**
+ * Generate crossings for footways that were drawn (or imported) without them. Footway segments that cross a road get
+ * a crossing node, and short segments are split out into their own crossing way with kerbs at the ends. Use
+ * {@link CrossingEngine#generateCrossings(Collection)} to generate the crossings.
+ *
+ * @author Taylor Smock
+ */
+public final class CrossingGenerator {
+    private static final String HIGHWAY = "highway";
+    private static final String FOOTWAY = "footway";
+    private static final String CROSSING = "crossing";
+    private static final String SIDEWALK = "sidewalk";
+    private static final String SURFACE = "surface";
+    /** The size of a spatial partition in degrees (roughly 1km) */
+    private static final double PARTITION_SIZE = 0.01;
+    /** Tasks with this many partitions or fewer are not split further */
+    private static final int PARTITIONS_PER_TASK = 4;
+
+    private CrossingGenerator() {
+        // Hide constructor
+    }
+
+    /**
+     * Check if a way is a footway that may need crossings
+     *
+     * @param way The way to check
+     * @return {@code true} if the way is a usable footway
+     */
+    public static boolean isFootway(Way way) {
+        return way.isUsable() && way.getNodesCount() >= 2 && way.hasTag(HIGHWAY, FOOTWAY);
+    }
+
+    /**
+     * Check if we should create a "real" crossing (as opposed to a sidewalk crossing a path)
+     *
+     * @param possibleCrossing The way being crossed
+     * @return {@code true} if the crossing should be tagged as a crossing
+     */
+    public static boolean isCrossing(Way possibleCrossing) {
+        return !possibleCrossing.hasTag(HIGHWAY, "pedestrian", FOOTWAY, "path", "steps")
+                && !(possibleCrossing.hasTag(HIGHWAY, "service")
+                        // Service roads with these "common" tags are often small and don't have a real
+                        // crossing from a pedestrian perspective. We do want to add crossing
+                        // information when there is no service information.
+                        && possibleCrossing.hasTag("service", "alley", "drive-through", "driveway",
+                                "emergency_access"));
+    }
+
+    /**
+     * Get the tags for a crossing way
+     *
+     * @param way              The original way
+     * @param possibleCrossing The way being crossed
+     * @param isCrossing       See {@link #isCrossing(Way)}
+     * @return The tags for the crossing way
+     */
+    public static Map<String, String> getCrossingTags(Way way, Way possibleCrossing, boolean isCrossing) {
+        final var tags = new TreeMap<String, String>();
+        tags.put(HIGHWAY, FOOTWAY);
+        tags.put(FOOTWAY, isCrossing ? CROSSING : SIDEWALK);
+        if (possibleCrossing.hasTag(SURFACE)) {
+            tags.put(SURFACE, possibleCrossing.get(SURFACE));
+        } else if (way.hasTag(SURFACE)) {
+            tags.put(SURFACE, way.get(SURFACE));
+        }
+        return tags;
+    }
+
+    /**
+     * Find the crossings for footways. The footways are split into spatial partitions, which are searched in
+     * parallel. The caller must hold the dataset read lock.
+     *
+     * @param footways The footways to find crossings for
+     * @param index    The highway index for the dataset
+     * @return The crossings for each footway that crosses a road
+     */
+    static List<FootwayCrossings> findCrossings(Collection<Way> footways, HighwayIndex index) {
+        final var partitions = new HashMap<Long, List<Way>>();
+        for (Way footway : footways) {
+            if (isFootway(footway)) {
+                final var center = footway.getBBox().getCenter();
+                final long key = ((long) Math.floor(center.lon() / PARTITION_SIZE) << 32)
+                        | ((long) Math.floor(center.lat() / PARTITION_SIZE) & 0xffff_ffffL);
+                partitions.computeIfAbsent(key, k -> new ArrayList<>()).add(footway);
+            }
+        }
+        if (partitions.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return ForkJoinPool.commonPool().invoke(new FindTask(new ArrayList<>(partitions.values()), index));
+    }
+
+    /**
+     * Find the crossings for a single footway
+     *
+     * @param footway The footway
+     * @param index   The highway index
+     * @return The crossings, or {@code null} if the footway does not cross any roads
+     */
+    private static FootwayCrossings findCrossings(Way footway, HighwayIndex index) {
+        final var layer = OsmUtils.getLayer(footway);
+        List<SegmentCrossing> crossings = null;
+        for (int i = 0; i < footway.getNodesCount() - 1; i++) {
+            final var start = footway.getNode(i);
+            final var end = footway.getNode(i + 1);
+            if (!start.isLatLonKnown() || !end.isLatLonKnown()) {
+                continue;
+            }
+            final var bbox = new BBox(start.lon(), start.lat(), end.lon(), end.lat());
+            for (Way road : index.search(bbox)) {
+                if (road.equals(footway) || !isCrossing(road) || road.hasTag("area", "yes")
+                        || !Objects.equals(layer, OsmUtils.getLayer(road)) || road.containsNode(start)
+                        || road.containsNode(end)) {
+                    continue;
+                }
+                final var intersection = SegmentIntersection.find(start, end, road);
+                if (intersection != null && intersection.isUnique()) {
+                    if (crossings == null) {
+                        crossings = new ArrayList<>(2);
+                    }
+                    crossings.add(new SegmentCrossing(i, intersection));
+                }
+            }
+        }
+        return crossings == null ? null : new FootwayCrossings(footway, crossings);
+    }
+
+    /**
+     * Create the command for the crossings
+     *
+     * @param dataSet   The dataset to add new primitives to
+     * @param crossings The crossings to create
+     * @param settings  The settings to use
+     * @return The command, or {@code null} if there are no crossings
+     */
+    static Command createCommand(DataSet dataSet, List<FootwayCrossings> crossings, SidewalkSettings settings) {
+        if (crossings.isEmpty()) {
+            return null;
+        }
+        final var addNodes = new ArrayList<Command>();
+        final var changeFootways = new ArrayList<Command>();
+        final var addWays = new ArrayList<PrimitiveData>();
+        final var roadInsertions = new LinkedHashMap<Way, Map<Integer, List<Node>>>();
+        final var kerbNodes = new LinkedHashSet<Node>();
+        final var existingCrossingNodes = new LinkedHashSet<Node>();
+        for (FootwayCrossings footwayCrossings : crossings) {
+            final var footway = footwayCrossings.footway();
+            final boolean isCrossingWay = footway.hasTag(FOOTWAY, CROSSING);
+            final var footwayInsertions = new HashMap<Integer, List<Node>>();
+            final var crossingSegments = new TreeMap<Integer, Map<String, String>>();
+            for (SegmentCrossing segmentCrossing : footwayCrossings.crossings()) {
+                final var intersection = segmentCrossing.intersection();
+                final var road = intersection.getWay();
+                final var roadSegment = intersection.getSegment();
+                final var latLon = intersection.getLatLon();
+                final int segmentIndex = segmentCrossing.segmentIndex();
+                final var inserted = footwayInsertions.computeIfAbsent(segmentIndex, i -> new ArrayList<>(1));
+                Node node = latLon.equalsEpsilon(roadSegment.getFirstNode()) ? roadSegment.getFirstNode()
+                        : latLon.equalsEpsilon(roadSegment.getSecondNode()) ? roadSegment.getSecondNode() : null;
+                if (node == null) {
+                    final var roadInserted = roadInsertions.computeIfAbsent(road, r -> new HashMap<>())
+                            .computeIfAbsent(intersection.getSegmentIndex(), i -> new ArrayList<>(1));
+                    // Where two roads cross (or two footways meet on a road) without a node, use a single node
+                    node = Stream.concat(inserted.stream(), roadInserted.stream()).filter(latLon::equalsEpsilon)
+                            .findFirst().orElse(null);
+                    if (node == null) {
+                        node = new Node(latLon);
+                        node.put(HIGHWAY, CROSSING);
+                        addNodes.add(new AddCommand(dataSet, node));
+                    }
+                    addIfAbsent(roadInserted, node);
+                } else if (!node.hasTag(HIGHWAY, CROSSING)) {
+                    existingCrossingNodes.add(node);
+                }
+                // A segment that crosses two roads at a shared node would otherwise get the node twice
+                addIfAbsent(inserted, node);
+                if (!isCrossingWay && footway.getNode(segmentIndex)
+                        .greatCircleDistance(footway.getNode(segmentIndex + 1)) < settings.getCrossingMaxLength()) {
+                    crossingSegments.computeIfAbsent(segmentIndex, i -> new TreeMap<>())
+                            .putAll(getCrossingTags(footway, road, true));
+                }
+            }
+            final var nodePositions = new int[footway.getNodesCount()];
+            final var newNodes = insertNodes(footway, footwayInsertions, nodePositions);
+            if (crossingSegments.isEmpty() || footway.isClosed()
+                    || footway.referrers(Relation.class).findAny().isPresent()) {
+                // Splitting closed ways and relation members is left to the user
+                changeFootways.add(new ChangeNodesCommand(footway, newNodes));
+            } else {
+                splitFootway(footway, newNodes, nodePositions, crossingSegments, changeFootways, addWays);
+                if (settings.isCrossingKerb()) {
+                    for (Integer segmentIndex : crossingSegments.keySet()) {
+                        addKerbNode(footway, footway.getNode(segmentIndex), kerbNodes);
+                        addKerbNode(footway, footway.getNode(segmentIndex + 1), kerbNodes);
+                    }
+                }
+            }
+        }
+        final var commands = new ArrayList<Command>(addNodes.size() + roadInsertions.size() + changeFootways.size()
+                + 3);
+        commands.addAll(addNodes);
+        for (Map.Entry<Way, Map<Integer, List<Node>>> entry : roadInsertions.entrySet()) {
+            final var road = entry.getKey();
+            commands.add(new ChangeNodesCommand(road, insertNodes(road, entry.getValue(), null)));
+        }
+        commands.addAll(changeFootways);
+        if (!addWays.isEmpty()) {
+            commands.add(new AddPrimitivesCommand(addWays, dataSet));
+        }
+        if (!kerbNodes.isEmpty()) {
+            commands.add(new ChangePropertyCommand(kerbNodes, settings.getCrossingKerbTags()));
+        }
+        if (!existingCrossingNodes.isEmpty()) {
+            commands.add(new ChangePropertyCommand(existingCrossingNodes, HIGHWAY, CROSSING));
+        }
+        return new SequenceCommand(tr("Generate crossings"), commands);
+    }
+
+    private static void addIfAbsent(List<Node> nodes, Node node) {
+        if (!nodes.contains(node)) {
+            nodes.add(node);
+        }
+    }
+
+    /**
+     * Get the nodes of a way with additional nodes inserted into segments
+     *
+     * @param way           The way
+     * @param insertions    The nodes to insert, keyed by segment index
+     * @param nodePositions If not {@code null}, filled with the new position of each original node
+     * @return The new node list
+     */
+    private static List<Node> insertNodes(Way way, Map<Integer, List<Node>> insertions, int[] nodePositions) {
+        final var nodes = new ArrayList<Node>(way.getNodesCount() + insertions.size());
+        for (int i = 0; i < way.getNodesCount(); i++) {
+            final var node = way.getNode(i);
+            if (nodePositions != null) {
+                nodePositions[i] = nodes.size();
+            }
+            nodes.add(node);
+            final var inserted = insertions.get(i);
+            if (inserted != null) {
+                inserted.sort(Comparator.comparingDouble(node::distanceSq));
+                nodes.addAll(inserted);
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * Split the crossing segments out of a footway. The new ways are only saved as data, since a {@link Way} with
+     * dataset nodes would add itself to their referrers.
+     *
+     * @param footway          The footway to split
+     * @param newNodes         The nodes of the footway, with crossing nodes inserted
+     * @param nodePositions    The positions of the original footway nodes in {@code newNodes}
+     * @param crossingSegments The tags for each crossing segment, keyed by the original segment index
+     * @param changeFootways   The collection to add footway modification commands to
+     * @param addWays          The collection to add the new ways to
+     */
+    private static void splitFootway(Way footway, List<Node> newNodes, int[] nodePositions,
+            Map<Integer, Map<String, String>> crossingSegments, Collection<Command> changeFootways,
+            Collection<PrimitiveData> addWays) {
+        final var pieces = new ArrayList<List<Node>>(crossingSegments.size() * 2 + 1);
+        final var pieceTags = new ArrayList<Map<String, String>>(crossingSegments.size() * 2 + 1);
+        int current = 0;
+        for (Map.Entry<Integer, Map<String, String>> entry : crossingSegments.entrySet()) {
+            final int start = nodePositions[entry.getKey()];
+            final int end = nodePositions[entry.getKey() + 1];
+            if (start > current) {
+                pieces.add(newNodes.subList(current, start + 1));
+                pieceTags.add(null);
+            }
+            pieces.add(newNodes.subList(start, end + 1));
+            pieceTags.add(entry.getValue());
+            current = end;
+        }
+        if (current < newNodes.size() - 1) {
+            pieces.add(newNodes.subList(current, newNodes.size()));
+            pieceTags.add(null);
+        }
+        // The original way keeps the first piece that is not a crossing, so its history stays with the sidewalk
+        final int keep = Math.max(0, pieceTags.indexOf(null));
+        changeFootways.add(new ChangeNodesCommand(footway, new ArrayList<>(pieces.get(keep))));
+        if (pieceTags.get(keep) != null) {
+            changeFootways.add(new ChangePropertyCommand(Collections.singleton(footway), pieceTags.get(keep)));
+        }
+        for (int i = 0; i < pieces.size(); i++) {
+            if (i != keep) {
+                final var way = new WayData();
+                way.setNodeIds(pieces.get(i).stream().map(Node::getUniqueId).toList());
+                way.setKeys(pieceTags.get(i) == null ? footway.getKeys() : pieceTags.get(i));
+                addWays.add(way);
+            }
+        }
+    }
+
+    /**
+     * Add a node to the kerb nodes, if it is not in the middle of another footway and doesn't already have kerb
+     * information
+     *
+     * @param footway   The footway being split
+     * @param node      The possible kerb node
+     * @param kerbNodes The collection of kerb nodes
+     */
+    private static void addKerbNode(Way footway, Node node, Set<Node> kerbNodes) {
+        if (node.hasKey("barrier") || node.hasKey("kerb")) {
+            return;
+        }
+        final boolean inMiddleOfFootway = node.referrers(Way.class).filter(other -> !other.equals(footway))
+                .filter(way -> way.hasTag(HIGHWAY, FOOTWAY)).anyMatch(way -> way.isInnerNode(node));
+        if (!inMiddleOfFootway) {
+            kerbNodes.add(node);
+        }
+    }
+
+    /**
+     * Find crossings for a range of spatial partitions
+     */
+    private static final class FindTask extends RecursiveTask<List<FootwayCrossings>> {
+        private final transient List<List<Way>> partitions;
+        private final transient HighwayIndex index;
+
+        FindTask(List<List<Way>> partitions, HighwayIndex index) {
+            this.partitions = partitions;
+            this.index = index;
+        }
+
+        @Override
+        protected List<FootwayCrossings> compute() {
+            if (this.partitions.size() <= PARTITIONS_PER_TASK) {
+                final var found = new ArrayList<FootwayCrossings>();
+                for (List<Way> partition : this.partitions) {
+                    for (Way footway : partition) {
+                        final var crossings = findCrossings(footway, this.index);
+                        if (crossings != null) {
+                            found.add(crossings);
+                        }
+                    }
+                }
+                return found;
+            }
+            final int middle = this.partitions.size() / 2;
+            final var left = new FindTask(this.partitions.subList(0, middle), this.index);
+            final var right = new FindTask(this.partitions.subList(middle, this.partitions.size()), this.index);
+            left.fork();
+            final var found = new ArrayList<>(right.compute());
+            found.addAll(0, left.join());
+            return found;
+        }
+    }
+
+    /**
+     * The crossings for a single footway
+     *
+     * @param footway   The footway
+     * @param crossings The places where the footway crosses a road
+     */
+    record FootwayCrossings(Way footway, List<SegmentCrossing> crossings) {
+    }
+
+    /**
+     * A single crossing of a footway segment and a road
+     *
+     * @param segmentIndex The index of the footway segment
+     * @param intersection The intersection with the road
+     */
+    record SegmentCrossing(int segmentIndex, SegmentIntersection intersection) {
+    }
+}
@@ -0,0 +1,307 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.street_level.data.osm;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataSetListener;
+import org.openstreetmap.josm.data.osm.event.NodeMovedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesAddedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesRemovedEvent;
+import org.openstreetmap.josm.data.osm.event.RelationMembersChangedEvent;
+import org.openstreetmap.josm.data.osm.event.TagsChangedEvent;
+import org.openstreetmap.josm.data.osm.event.WayNodesChangedEvent;
+
+/**
+ * A two-way index between {@code highway=crossing} nodes and the crossing ways they are on. A crossing way is a
+ * {@code highway=footway} + {@code footway=crossing}, {@code highway=cycleway} + {@code cycleway=crossing}, or
+ * {@code highway=path} + {@code path=crossing} way. The index is kept current through dataset events, and can be
+ * refreshed for the primitives of an undone or redone command.
+ *
+ * @author Taylor Smock
+ */
+public final class CrossingLinkIndex implements DataSetListener {
+    private static final String HIGHWAY = "highway";
+    private static final String CROSSING = "crossing";
+    /** The {@code highway} values that can be crossing ways, tagged with {@code <value>=crossing} */
+    private static final String[] CROSSING_WAY_TYPES = { "footway", "cycleway", "path" };
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Node, Set<Way>> waysByNode = new HashMap<>();
+    private final Map<Way, Set<Node>> nodesByWay = new HashMap<>();
+
+    /**
+     * Create a new index. Use {@link #getIndex(DataSet)} for an index that is kept up to date.
+     */
+    CrossingLinkIndex() {
+        // Package-private for tests
+    }
+
+    /**
+     * Get the index for a dataset, creating it if it does not yet exist
+     *
+     * @param dataSet The dataset to get the index for
+     * @return The index, which will be kept up to date with changes to the dataset
+     */
+    public static CrossingLinkIndex getIndex(DataSet dataSet) {
+        return DataSetIndexes.get(dataSet, CrossingLinkIndex.class, CrossingLinkIndex::new,
+                CrossingLinkIndex::rebuild);
+    }
+
+    /**
+     * Stop indexing a dataset
+     *
+     * @param dataSet The dataset to stop indexing
+     */
+    public static void removeIndex(DataSet dataSet) {
+        DataSetIndexes.remove(dataSet, CrossingLinkIndex.class);
+    }
+
+    /**
+     * Re-check the links of some primitives, e.g. after a command was undone or redone. Nothing happens if the dataset
+     * is not indexed.
+     *
+     * @param dataSet    The dataset the primitives are (or were) in
+     * @param primitives The primitives to re-check
+     */
+    public static void refresh(DataSet dataSet, Collection<? extends OsmPrimitive> primitives) {
+        final CrossingLinkIndex index = DataSetIndexes.peek(dataSet, CrossingLinkIndex.class);
+        if (index != null) {
+            index.updateAll(primitives);
+        }
+    }
+
+    /**
+     * Check if a node is a crossing node. This is the definition used by everything that links crossing nodes to
+     * crossing ways.
+     *
+     * @param node The node to check
+     * @return {@code true} if the node is a {@code highway=crossing} node in a dataset
+     */
+    public static boolean isCrossingNode(Node node) {
+        return !node.isDeleted() && node.getDataSet() != null && node.hasTag(HIGHWAY, CROSSING);
+    }
+
+    /**
+     * Check if a way is a crossing way. This is the definition used by everything that links crossing nodes to
+     * crossing ways.
+     *
+     * @param way The way to check
+     * @return {@code true} if the way is a crossing way in a dataset
+     */
+    public static boolean isCrossingWay(Way way) {
+        if (way.isDeleted() || way.getDataSet() == null) {
+            return false;
+        }
+        for (String type : CROSSING_WAY_TYPES) {
+            if (way.hasTag(HIGHWAY, type) && way.hasTag(type, CROSSING)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the crossing ways a crossing node is on
+     *
+     * @param node The crossing node
+     * @return The crossing ways. The set is a copy and may be modified by the caller.
+     */
+    public Set<Way> getCrossingWays(Node node) {
+        lock.readLock().lock();
+        try {
+            final Set<Way> ways = this.waysByNode.get(node);
+            return ways == null ? new LinkedHashSet<>(0) : new LinkedHashSet<>(ways);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the crossing nodes on a crossing way
+     *
+     * @param way The crossing way
+     * @return The crossing nodes. The set is a copy and may be modified by the caller.
+     */
+    public Set<Node> getCrossingNodes(Way way) {
+        lock.readLock().lock();
+        try {
+            final Set<Node> nodes = this.nodesByWay.get(way);
+            return nodes == null ? new LinkedHashSet<>(0) : new LinkedHashSet<>(nodes);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rebuild the index from scratch
+     *
+     * @param dataSet The dataset to index
+     */
+    void rebuild(DataSet dataSet) {
+        // Always take the dataset lock first; dataset events are fired while the dataset read lock is held
+        dataSet.getReadLock().lock();
+        try {
+            lock.writeLock().lock();
+            try {
+                this.waysByNode.clear();
+                this.nodesByWay.clear();
+                for (Way way : dataSet.getWays()) {
+                    addWay(way);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            dataSet.getReadLock().unlock();
+        }
+    }
+
+    /**
+     * Re-link primitives, depending upon their current state
+     *
+     * @param primitives The primitives to update
+     */
+    void updateAll(Collection<? extends OsmPrimitive> primitives) {
+        lock.writeLock().lock();
+        try {
+            for (OsmPrimitive primitive : primitives) {
+                if (primitive instanceof Way way) {
+                    removeWay(way);
+                    addWay(way);
+                } else if (primitive instanceof Node node) {
+                    removeNode(node);
+                    addNode(node);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeAll(Collection<? extends OsmPrimitive> primitives) {
+        lock.writeLock().lock();
+        try {
+            for (OsmPrimitive primitive : primitives) {
+                if (primitive instanceof Way way) {
+                    removeWay(way);
+                } else if (primitive instanceof Node node) {
+                    removeNode(node);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addWay(Way way) {
+        if (isCrossingWay(way)) {
+            for (Node node : way.getNodes()) {
+                if (isCrossingNode(node)) {
+                    link(node, way);
+                }
+            }
+        }
+    }
+
+    private void addNode(Node node) {
+        if (isCrossingNode(node)) {
+            for (Way way : node.getParentWays()) {
+                if (isCrossingWay(way)) {
+                    link(node, way);
+                }
+            }
+        }
+    }
+
+    private void link(Node node, Way way) {
+        this.waysByNode.computeIfAbsent(node, n -> new LinkedHashSet<>(2)).add(way);
+        this.nodesByWay.computeIfAbsent(way, w -> new LinkedHashSet<>(2)).add(node);
+    }
+
+    private void removeWay(Way way) {
+        final Set<Node> nodes = this.nodesByWay.remove(way);
+        if (nodes != null) {
+            for (Node node : nodes) {
+                unlink(this.waysByNode, node, way);
+            }
+        }
+    }
+
+    private void removeNode(Node node) {
+        final Set<Way> ways = this.waysByNode.remove(node);
+        if (ways != null) {
+            for (Way way : ways) {
+                unlink(this.nodesByWay, way, node);
+            }
+        }
+    }
+
+    private static <K, V> void unlink(Map<K, Set<V>> links, K key, V value) {
+        final Set<V> values = links.get(key);
+        if (values != null) {
+            values.remove(value);
+            if (values.isEmpty()) {
+                links.remove(key);
+            }
+        }
+    }
+
+    @Override
+    public void primitivesAdded(PrimitivesAddedEvent event) {
+        updateAll(event.getPrimitives());
+    }
+
+    @Override
+    public void primitivesRemoved(PrimitivesRemovedEvent event) {
+        removeAll(event.getPrimitives());
+    }
+
+    @Override
+    public void tagsChanged(TagsChangedEvent event) {
+        updateAll(event.getPrimitives());
+    }
+
+    @Override
+    public void nodeMoved(NodeMovedEvent event) {
+        // Moving a node doesn't change its links
+    }
+
+    @Override
+    public void wayNodesChanged(WayNodesChangedEvent event) {
+        updateAll(event.getPrimitives());
+    }
+
+    @Override
+    public void relationMembersChanged(RelationMembersChangedEvent event) {
+        // Relations are not indexed
+    }
+
+    @Override
+    public void otherDatasetChange(AbstractDatasetChangedEvent event) {
+        // Nothing that changes links
+    }
+
+    @Override
+    public void dataChanged(DataChangedEvent event) {
+        if (event.getEvents() != null) {
+            // Coalesced events still carry the original events, which is cheaper than a full rebuild
+            for (AbstractDatasetChangedEvent child : event.getEvents()) {
+                child.fire(this);
+            }
+        } else {
+            this.rebuild(event.getDataset());
+        }
+    }
+}
@@ -0,0 +1,91 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.street_level.data.osm;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataSetListener;
+import org.openstreetmap.josm.data.osm.event.NodeMovedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesAddedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesRemovedEvent;
+import org.openstreetmap.josm.data.osm.event.RelationMembersChangedEvent;
+import org.openstreetmap.josm.data.osm.event.TagsChangedEvent;
+import org.openstreetmap.josm.data.osm.event.WayNodesChangedEvent;
+
+/**
+ * Count the changes to a dataset. Unlike the indexes, this is cheap to create on the EDT, so it can be used to check
+ * if a result that was computed on a worker thread is still valid.
+ *
+ * @author Taylor Smock
+ */
+public final class DataSetChangeCounter implements DataSetListener {
+    private final AtomicLong count = new AtomicLong();
+
+    /**
+     * Create a new counter. Use {@link #getCounter(DataSet)} for a counter that is registered with a dataset.
+     */
+    DataSetChangeCounter() {
+        // Package-private for tests
+    }
+
+    /**
+     * Get the counter for a dataset, creating it if it does not yet exist
+     *
+     * @param dataSet The dataset to get the counter for
+     * @return The counter, which counts the changes to the dataset from now on
+     */
+    public static DataSetChangeCounter getCounter(DataSet dataSet) {
+        return DataSetIndexes.get(dataSet, DataSetChangeCounter.class, DataSetChangeCounter::new);
+    }
+
+    /**
+     * Get the number of dataset events this counter has seen. If this has not changed, the dataset has not changed.
+     *
+     * @return The change count
+     */
+    public long getCount() {
+        return this.count.get();
+    }
+
+    @Override
+    public void primitivesAdded(PrimitivesAddedEvent event) {
+        this.count.incrementAndGet();
+    }
+
+    @Override
+    public void primitivesRemoved(PrimitivesRemovedEvent event) {
+        this.count.incrementAndGet();
+    }
+
+    @Override
+    public void tagsChanged(TagsChangedEvent event) {
+        this.count.incrementAndGet();
+    }
+
+    @Override
+    public void nodeMoved(NodeMovedEvent event) {
+        this.count.incrementAndGet();
+    }
+
+    @Override
+    public void wayNodesChanged(WayNodesChangedEvent event) {
+        this.count.incrementAndGet();
+    }
+
+    @Override
+    public void relationMembersChanged(RelationMembersChangedEvent event) {
+        this.count.incrementAndGet();
+    }
+
+    @Override
+    public void otherDatasetChange(AbstractDatasetChangedEvent event) {
+        this.count.incrementAndGet();
+    }
+
+    @Override
+    public void dataChanged(DataChangedEvent event) {
+        this.count.incrementAndGet();
+    }
+}
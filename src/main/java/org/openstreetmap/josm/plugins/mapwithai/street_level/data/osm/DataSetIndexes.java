@@ -0,0 +1,169 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.street_level.data.osm;
+
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.event.DataSetListener;
+import org.openstreetmap.josm.gui.layer.LayerManager;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+
+/**
+ * The indexes that are kept for each dataset. Each index is registered as a listener on its dataset, and is removed
+ * again when the layer of the dataset is removed (see {@link LayerCleanup}).
+ * <p>
+ * The registry only holds weak references to the indexes. An index refers to the primitives of its dataset, and so
+ * to the dataset itself, so a strong reference would keep the weak dataset key alive forever. The dataset keeps the
+ * index alive through its listener list instead.
+ *
+ * @author Taylor Smock
+ */
+public final class DataSetIndexes {
+    private static final Map<DataSet, Map<Class<?>, WeakReference<DataSetListener>>> INDEXES = new WeakHashMap<>();
+
+    private DataSetIndexes() {
+        // Hide the constructor
+    }
+
+    /**
+     * Get an index for a dataset, creating it if it does not yet exist
+     *
+     * @param dataSet The dataset to get the index for
+     * @param type    The type of index
+     * @param create  Create a new, empty index
+     * @param <T>     The type of index
+     * @return The index, which is registered as a listener on the dataset
+     */
+    static <T extends DataSetListener> T get(DataSet dataSet, Class<T> type, Supplier<T> create) {
+        return get(dataSet, type, create, (index, ds) -> {
+            // Nothing to build
+        });
+    }
+
+    /**
+     * Get an index for a dataset, creating and building it if it does not yet exist
+     *
+     * @param dataSet The dataset to get the index for
+     * @param type    The type of index
+     * @param create  Create a new, empty index
+     * @param build   Fill a new index from the dataset. This is called after the index is registered as a listener,
+     *                so that no changes are missed.
+     * @param <T>     The type of index
+     * @return The index, which is registered as a listener on the dataset
+     */
+    static <T extends DataSetListener> T get(DataSet dataSet, Class<T> type, Supplier<T> create,
+            BiConsumer<T, DataSet> build) {
+        synchronized (INDEXES) {
+            final var indexes = INDEXES.computeIfAbsent(dataSet, ds -> new HashMap<>(4));
+            final var reference = indexes.get(type);
+            final DataSetListener existing = reference == null ? null : reference.get();
+            if (existing != null) {
+                return type.cast(existing);
+            }
+            final T index = create.get();
+            dataSet.addDataSetListener(index);
+            build.accept(index, dataSet);
+            indexes.put(type, new WeakReference<>(index));
+            return index;
+        }
+    }
+
+    /**
+     * Get an index for a dataset if it exists
+     *
+     * @param dataSet The dataset to get the index for
+     * @param type    The type of index
+     * @param <T>     The type of index
+     * @return The index, or {@code null} if the dataset does not have one
+     */
+    static <T extends DataSetListener> T peek(DataSet dataSet, Class<T> type) {
+        synchronized (INDEXES) {
+            final var indexes = INDEXES.get(dataSet);
+            final WeakReference<DataSetListener> reference = indexes == null ? null : indexes.get(type);
+            return reference == null ? null : type.cast(reference.get());
+        }
+    }
+
+    /**
+     * Remove an index from a dataset
+     *
+     * @param dataSet The dataset to remove the index from
+     * @param type    The type of index
+     */
+    static void remove(DataSet dataSet, Class<? extends DataSetListener> type) {
+        final WeakReference<DataSetListener> reference;
+        synchronized (INDEXES) {
+            final var indexes = INDEXES.get(dataSet);
+            if (indexes == null) {
+                return;
+            }
+            reference = indexes.remove(type);
+            if (indexes.isEmpty()) {
+                INDEXES.remove(dataSet);
+            }
+        }
+        final DataSetListener index = reference == null ? null : reference.get();
+        if (index != null) {
+            dataSet.removeDataSetListener(index);
+        }
+    }
+
+    /**
+     * Remove all of the indexes for a dataset
+     *
+     * @param dataSet The dataset to remove the indexes from
+     */
+    public static void removeAll(DataSet dataSet) {
+        final Map<Class<?>, WeakReference<DataSetListener>> indexes;
+        synchronized (INDEXES) {
+            indexes = INDEXES.remove(dataSet);
+        }
+        if (indexes != null) {
+            for (WeakReference<DataSetListener> reference : indexes.values()) {
+                final DataSetListener index = reference.get();
+                if (index != null) {
+                    dataSet.removeDataSetListener(index);
+                }
+            }
+        }
+    }
+
+    /**
+     * Check if a dataset has any indexes
+     *
+     * @param dataSet The dataset to check
+     * @return {@code true} if the dataset has at least one index
+     */
+    public static boolean hasIndexes(DataSet dataSet) {
+        synchronized (INDEXES) {
+            return INDEXES.containsKey(dataSet);
+        }
+    }
+
+    /**
+     * Remove the indexes of a dataset when its layer is removed
+     */
+    public static final class LayerCleanup implements LayerManager.LayerChangeListener {
+        @Override
+        public void layerAdded(LayerManager.LayerAddEvent e) {
+            // Indexes are created when they are first needed
+        }
+
+        @Override
+        public void layerRemoving(LayerManager.LayerRemoveEvent e) {
+            if (e.getRemovedLayer() instanceof OsmDataLayer osmDataLayer) {
+                removeAll(osmDataLayer.getDataSet());
+            }
+        }
+
+        @Override
+        public void layerOrderChanged(LayerManager.LayerOrderChangeEvent e) {
+            // Don't care
+        }
+    }
+}
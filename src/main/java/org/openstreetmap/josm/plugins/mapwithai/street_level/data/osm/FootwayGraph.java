@@ -0,0 +1,636 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.street_level.data.osm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataSetListener;
+import org.openstreetmap.josm.data.osm.event.NodeMovedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesAddedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesRemovedEvent;
+import org.openstreetmap.josm.data.osm.event.RelationMembersChangedEvent;
+import org.openstreetmap.josm.data.osm.event.TagsChangedEvent;
+import org.openstreetmap.josm.data.osm.event.WayNodesChangedEvent;
+
+/**
+ * The topology of the {@code highway=footway} ways in a dataset. Nodes are given int ids, and the edges of each node
+ * are stored in shared arrays (compressed sparse row, with some spare room per node so that the graph can be updated
+ * in place). The graph is kept current through dataset events, and the queries do not allocate.
+ *
+ * @author Taylor Smock
+ */
+public final class FootwayGraph implements DataSetListener {
+    /** An edge on a footway that is not a sidewalk or crossing */
+    public static final byte TYPE_FOOTWAY = 0;
+    /** An edge on a {@code footway=sidewalk} way */
+    public static final byte TYPE_SIDEWALK = 1;
+    /** An edge on a {@code footway=crossing} way */
+    public static final byte TYPE_CROSSING = 2;
+
+    private static final String FOOTWAY = "footway";
+    /** The number of edge slots a node starts with */
+    private static final int INITIAL_SLOTS = 4;
+    /** Don't bother compacting the edge arrays until they are at least this large */
+    private static final int MIN_COMPACT_SIZE = 1024;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Node, Integer> nodeIds = new HashMap<>();
+    private Node[] nodes = new Node[16];
+    /** The first edge slot for a node */
+    private int[] nodeStart = new int[16];
+    /** The number of edge slots in use for a node */
+    private int[] nodeDegree = new int[16];
+    /** The number of edge slots reserved for a node */
+    private int[] nodeCapacity = new int[16];
+    private int nodeCount;
+    private int[] freeNodes = new int[16];
+    private int freeNodeCount;
+
+    private final Map<Way, Integer> wayIds = new HashMap<>();
+    private Way[] ways = new Way[16];
+    /** The node ids of each way, in way order ({@code -1} for nodes without edges) */
+    private int[][] wayNodes = new int[16][];
+    private int wayCount;
+    private int[] freeWays = new int[16];
+    private int freeWayCount;
+
+    /** The node at the other end of each edge */
+    private int[] edgeTarget = new int[64];
+    /** The way each edge belongs to */
+    private int[] edgeWay = new int[64];
+    /** The footway type of each edge */
+    private byte[] edgeType = new byte[64];
+    private int edgeEnd;
+    /** The number of slots that are no longer reserved for any node */
+    private int wastedSlots;
+
+    /**
+     * Create a new graph. Use {@link #getGraph(DataSet)} for a graph that is kept up to date.
+     */
+    FootwayGraph() {
+        // Package-private for tests
+    }
+
+    /**
+     * Get the graph for a dataset, creating it if it does not yet exist
+     *
+     * @param dataSet The dataset to get the graph for
+     * @return The graph, which will be kept up to date with changes to the dataset
+     */
+    public static FootwayGraph getGraph(DataSet dataSet) {
+        return DataSetIndexes.get(dataSet, FootwayGraph.class, FootwayGraph::new, FootwayGraph::rebuild);
+    }
+
+    /**
+     * Stop tracking a dataset
+     *
+     * @param dataSet The dataset to stop tracking
+     */
+    public static void removeGraph(DataSet dataSet) {
+        DataSetIndexes.remove(dataSet, FootwayGraph.class);
+    }
+
+    /**
+     * Get the footway type of a way
+     *
+     * @param way The way
+     * @return The type for the edges of the way
+     */
+    public static byte getType(Way way) {
+        if (way.hasTag(FOOTWAY, "sidewalk")) {
+            return TYPE_SIDEWALK;
+        } else if (way.hasTag(FOOTWAY, "crossing")) {
+            return TYPE_CROSSING;
+        }
+        return TYPE_FOOTWAY;
+    }
+
+    /**
+     * Check if a way is tracked by this graph
+     *
+     * @param way The way to check
+     * @return {@code true} if the way is a footway in the graph
+     */
+    public boolean contains(Way way) {
+        lock.readLock().lock();
+        try {
+            return this.wayIds.containsKey(way);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the number of footway edges at a node
+     *
+     * @param node The node
+     * @return The number of footway segments that end at the node
+     */
+    public int getDegree(Node node) {
+        lock.readLock().lock();
+        try {
+            final int id = nodeId(node);
+            return id < 0 ? 0 : this.nodeDegree[id];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Count the footways at a node
+     *
+     * @param node    The node
+     * @param exclude A footway to ignore, may be {@code null}
+     * @return The number of different footways that the node is part of
+     */
+    public int getFootwayCount(Node node, Way exclude) {
+        lock.readLock().lock();
+        try {
+            final int id = nodeId(node);
+            if (id < 0) {
+                return 0;
+            }
+            final int excluded = wayId(exclude);
+            final int start = this.nodeStart[id];
+            final int end = start + this.nodeDegree[id];
+            int count = 0;
+            for (int slot = start; slot < end; slot++) {
+                if (this.edgeWay[slot] != excluded && isFirstSlotForWay(start, slot)) {
+                    count++;
+                }
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Check if a node is an inner node of a footway. Every node of a closed footway is an inner node.
+     *
+     * @param node The node
+     * @param way  The footway
+     * @return {@code true} if the node has two or more edges on the footway
+     */
+    public boolean isInnerNode(Node node, Way way) {
+        lock.readLock().lock();
+        try {
+            final int id = nodeId(node);
+            final int wayId = wayId(way);
+            return id >= 0 && wayId >= 0 && countSlots(id, wayId) >= 2;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Check if a node is in the middle of the footways at that node; that is, it is an inner node of a footway, or
+     * more than one footway meets there.
+     *
+     * @param node     The node
+     * @param exclude1 A footway to ignore, may be {@code null}
+     * @param exclude2 Another footway to ignore, may be {@code null}
+     * @return {@code true} if the node is not the end of a footway
+     */
+    public boolean isInMiddleOfFootway(Node node, Way exclude1, Way exclude2) {
+        lock.readLock().lock();
+        try {
+            final int id = nodeId(node);
+            if (id < 0) {
+                return false;
+            }
+            final int excluded1 = wayId(exclude1);
+            final int excluded2 = wayId(exclude2);
+            final int start = this.nodeStart[id];
+            final int end = start + this.nodeDegree[id];
+            int footway = -1;
+            int footwaySlots = 0;
+            for (int slot = start; slot < end; slot++) {
+                final int wayId = this.edgeWay[slot];
+                if (wayId == excluded1 || wayId == excluded2) {
+                    continue;
+                }
+                if (footway < 0) {
+                    footway = wayId;
+                } else if (footway != wayId) {
+                    return true;
+                }
+                footwaySlots++;
+            }
+            return footwaySlots >= 2;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Check if a node has an edge of a specific type
+     *
+     * @param node The node
+     * @param type The footway type (see {@link #getType(Way)})
+     * @return {@code true} if any footway edge at the node has that type
+     */
+    public boolean hasType(Node node, byte type) {
+        lock.readLock().lock();
+        try {
+            final int id = nodeId(node);
+            if (id < 0) {
+                return false;
+            }
+            final int start = this.nodeStart[id];
+            final int end = start + this.nodeDegree[id];
+            for (int slot = start; slot < end; slot++) {
+                if (this.edgeType[slot] == type) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the footways at a node
+     *
+     * @param node    The node
+     * @param exclude A footway to ignore, may be {@code null}
+     * @return The footways that the node is part of
+     */
+    public List<Way> getFootways(Node node, Way exclude) {
+        lock.readLock().lock();
+        try {
+            final int id = nodeId(node);
+            if (id < 0) {
+                return List.of();
+            }
+            final int excluded = wayId(exclude);
+            final int start = this.nodeStart[id];
+            final int end = start + this.nodeDegree[id];
+            final var footways = new ArrayList<Way>(this.nodeDegree[id]);
+            for (int slot = start; slot < end; slot++) {
+                final int wayId = this.edgeWay[slot];
+                if (wayId != excluded && isFirstSlotForWay(start, slot)) {
+                    footways.add(this.ways[wayId]);
+                }
+            }
+            return footways;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rebuild the graph from scratch
+     *
+     * @param dataSet The dataset to use
+     */
+    void rebuild(DataSet dataSet) {
+        // Always take the dataset lock first; dataset events are fired while the dataset read lock is held
+        dataSet.getReadLock().lock();
+        try {
+            lock.writeLock().lock();
+            try {
+                this.nodeIds.clear();
+                Arrays.fill(this.nodes, null);
+                this.nodeCount = 0;
+                this.freeNodeCount = 0;
+                this.wayIds.clear();
+                Arrays.fill(this.ways, null);
+                Arrays.fill(this.wayNodes, null);
+                this.wayCount = 0;
+                this.freeWayCount = 0;
+                this.edgeEnd = 0;
+                this.wastedSlots = 0;
+                for (Way way : dataSet.getWays()) {
+                    if (isFootway(way)) {
+                        addWay(way);
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            dataSet.getReadLock().unlock();
+        }
+    }
+
+    /**
+     * Add, re-add, or remove a way, depending upon its current state
+     *
+     * @param way The way to update
+     */
+    void update(Way way) {
+        lock.writeLock().lock();
+        try {
+            removeWay(way);
+            if (way.getDataSet() != null && isFootway(way)) {
+                addWay(way);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a way from the graph
+     *
+     * @param way The way to remove
+     */
+    void remove(Way way) {
+        lock.writeLock().lock();
+        try {
+            removeWay(way);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Get the number of edge slots in the backing arrays, for tests
+     *
+     * @return The number of slots, including unused ones
+     */
+    int getSlotCount() {
+        lock.readLock().lock();
+        try {
+            return this.edgeEnd;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static boolean isFootway(Way way) {
+        return !way.isDeleted() && way.getNodesCount() >= 2 && way.hasTag("highway", FOOTWAY);
+    }
+
+    private int nodeId(Node node) {
+        final Integer id = this.nodeIds.get(node);
+        return id == null ? -1 : id;
+    }
+
+    private int wayId(Way way) {
+        final Integer id = way == null ? null : this.wayIds.get(way);
+        return id == null ? -1 : id;
+    }
+
+    private boolean isFirstSlotForWay(int start, int slot) {
+        final int wayId = this.edgeWay[slot];
+        for (int previous = start; previous < slot; previous++) {
+            if (this.edgeWay[previous] == wayId) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int countSlots(int id, int wayId) {
+        final int start = this.nodeStart[id];
+        final int end = start + this.nodeDegree[id];
+        int count = 0;
+        for (int slot = start; slot < end; slot++) {
+            if (this.edgeWay[slot] == wayId) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void addWay(Way way) {
+        final int wayId = allocateWay(way);
+        final byte type = getType(way);
+        final int[] ids = new int[way.getNodesCount()];
+        Arrays.fill(ids, -1);
+        for (int i = 0; i < ids.length - 1; i++) {
+            final Node first = way.getNode(i);
+            final Node second = way.getNode(i + 1);
+            if (first.equals(second)) {
+                continue;
+            }
+            if (ids[i] < 0) {
+                ids[i] = allocateNode(first);
+            }
+            ids[i + 1] = allocateNode(second);
+            addSlot(ids[i], ids[i + 1], wayId, type);
+            addSlot(ids[i + 1], ids[i], wayId, type);
+        }
+        this.wayNodes[wayId] = ids;
+    }
+
+    private void removeWay(Way way) {
+        final Integer boxedId = this.wayIds.remove(way);
+        if (boxedId == null) {
+            return;
+        }
+        final int wayId = boxedId;
+        for (int id : this.wayNodes[wayId]) {
+            if (id >= 0 && this.nodes[id] != null) {
+                removeSlots(id, wayId);
+                if (this.nodeDegree[id] == 0) {
+                    releaseNode(id);
+                }
+            }
+        }
+        this.ways[wayId] = null;
+        this.wayNodes[wayId] = null;
+        if (this.freeWayCount == this.freeWays.length) {
+            this.freeWays = Arrays.copyOf(this.freeWays, this.freeWays.length * 2);
+        }
+        this.freeWays[this.freeWayCount++] = wayId;
+        if (this.edgeEnd >= MIN_COMPACT_SIZE && this.wastedSlots > this.edgeEnd / 2) {
+            compact();
+        }
+    }
+
+    private int allocateWay(Way way) {
+        final int wayId;
+        if (this.freeWayCount > 0) {
+            wayId = this.freeWays[--this.freeWayCount];
+        } else {
+            wayId = this.wayCount++;
+            if (wayId == this.ways.length) {
+                this.ways = Arrays.copyOf(this.ways, wayId * 2);
+                this.wayNodes = Arrays.copyOf(this.wayNodes, wayId * 2);
+            }
+        }
+        this.ways[wayId] = way;
+        this.wayIds.put(way, wayId);
+        return wayId;
+    }
+
+    private int allocateNode(Node node) {
+        final int existing = nodeId(node);
+        if (existing >= 0) {
+            return existing;
+        }
+        final int id;
+        if (this.freeNodeCount > 0) {
+            id = this.freeNodes[--this.freeNodeCount];
+        } else {
+            id = this.nodeCount++;
+            if (id == this.nodes.length) {
+                final int length = id * 2;
+                this.nodes = Arrays.copyOf(this.nodes, length);
+                this.nodeStart = Arrays.copyOf(this.nodeStart, length);
+                this.nodeDegree = Arrays.copyOf(this.nodeDegree, length);
+                this.nodeCapacity = Arrays.copyOf(this.nodeCapacity, length);
+            }
+        }
+        this.nodes[id] = node;
+        this.nodeStart[id] = 0;
+        this.nodeDegree[id] = 0;
+        this.nodeCapacity[id] = 0;
+        this.nodeIds.put(node, id);
+        return id;
+    }
+
+    private void releaseNode(int id) {
+        this.nodeIds.remove(this.nodes[id]);
+        this.nodes[id] = null;
+        this.wastedSlots += this.nodeCapacity[id];
+        this.nodeCapacity[id] = 0;
+        if (this.freeNodeCount == this.freeNodes.length) {
+            this.freeNodes = Arrays.copyOf(this.freeNodes, this.freeNodes.length * 2);
+        }
+        this.freeNodes[this.freeNodeCount++] = id;
+    }
+
+    private void addSlot(int id, int target, int wayId, byte type) {
+        if (this.nodeDegree[id] == this.nodeCapacity[id]) {
+            // Move the edges for the node to the end, with room to grow
+            final int capacity = Math.max(INITIAL_SLOTS, this.nodeCapacity[id] * 2);
+            ensureSlots(this.edgeEnd + capacity);
+            final int start = this.nodeStart[id];
+            System.arraycopy(this.edgeTarget, start, this.edgeTarget, this.edgeEnd, this.nodeDegree[id]);
+            System.arraycopy(this.edgeWay, start, this.edgeWay, this.edgeEnd, this.nodeDegree[id]);
+            System.arraycopy(this.edgeType, start, this.edgeType, this.edgeEnd, this.nodeDegree[id]);
+            this.wastedSlots += this.nodeCapacity[id];
+            this.nodeStart[id] = this.edgeEnd;
+            this.nodeCapacity[id] = capacity;
+            this.edgeEnd += capacity;
+        }
+        final int slot = this.nodeStart[id] + this.nodeDegree[id]++;
+        this.edgeTarget[slot] = target;
+        this.edgeWay[slot] = wayId;
+        this.edgeType[slot] = type;
+    }
+
+    private void removeSlots(int id, int wayId) {
+        final int start = this.nodeStart[id];
+        for (int slot = start + this.nodeDegree[id] - 1; slot >= start; slot--) {
+            if (this.edgeWay[slot] == wayId) {
+                final int last = start + --this.nodeDegree[id];
+                this.edgeTarget[slot] = this.edgeTarget[last];
+                this.edgeWay[slot] = this.edgeWay[last];
+                this.edgeType[slot] = this.edgeType[last];
+            }
+        }
+    }
+
+    private void ensureSlots(int size) {
+        if (size > this.edgeTarget.length) {
+            final int length = Math.max(size, this.edgeTarget.length * 2);
+            this.edgeTarget = Arrays.copyOf(this.edgeTarget, length);
+            this.edgeWay = Arrays.copyOf(this.edgeWay, length);
+            this.edgeType = Arrays.copyOf(this.edgeType, length);
+        }
+    }
+
+    /**
+     * Pack the edges of every node together again
+     */
+    private void compact() {
+        int size = 0;
+        for (int id = 0; id < this.nodeCount; id++) {
+            size += this.nodeCapacity[id];
+        }
+        final int[] targets = new int[Math.max(64, size)];
+        final int[] wayIndices = new int[targets.length];
+        final byte[] types = new byte[targets.length];
+        int end = 0;
+        for (int id = 0; id < this.nodeCount; id++) {
+            if (this.nodes[id] != null) {
+                System.arraycopy(this.edgeTarget, this.nodeStart[id], targets, end, this.nodeDegree[id]);
+                System.arraycopy(this.edgeWay, this.nodeStart[id], wayIndices, end, this.nodeDegree[id]);
+                System.arraycopy(this.edgeType, this.nodeStart[id], types, end, this.nodeDegree[id]);
+                this.nodeStart[id] = end;
+                end += this.nodeCapacity[id];
+            }
+        }
+        this.edgeTarget = targets;
+        this.edgeWay = wayIndices;
+        this.edgeType = types;
+        this.edgeEnd = end;
+        this.wastedSlots = 0;
+    }
+
+    private static void forEachWay(Collection<? extends OsmPrimitive> primitives, Consumer<Way> consumer) {
+        for (OsmPrimitive primitive : primitives) {
+            if (primitive instanceof Way way) {
+                consumer.accept(way);
+            }
+        }
+    }
+
+    @Override
+    public void primitivesAdded(PrimitivesAddedEvent event) {
+        forEachWay(event.getPrimitives(), this::update);
+    }
+
+    @Override
+    public void primitivesRemoved(PrimitivesRemovedEvent event) {
+        forEachWay(event.getPrimitives(), this::remove);
+    }
+
+    @Override
+    public void tagsChanged(TagsChangedEvent event) {
+        if (event.getPrimitive() instanceof Way way) {
+            update(way);
+        }
+    }
+
+    @Override
+    public void nodeMoved(NodeMovedEvent event) {
+        // Only the topology is tracked
+    }
+
+    @Override
+    public void wayNodesChanged(WayNodesChangedEvent event) {
+        update(event.getChangedWay());
+    }
+
+    @Override
+    public void relationMembersChanged(RelationMembersChangedEvent event) {
+        // Relations are not tracked
+    }
+
+    @Override
+    public void otherDatasetChange(AbstractDatasetChangedEvent event) {
+        // Nothing that changes the topology
+    }
+
+    @Override
+    public void dataChanged(DataChangedEvent event) {
+        if (event.getEvents() != null) {
+            for (AbstractDatasetChangedEvent child : event.getEvents()) {
+                child.fire(this);
+            }
+        } else {
+            this.rebuild(event.getDataset());
+        }
+    }
+}
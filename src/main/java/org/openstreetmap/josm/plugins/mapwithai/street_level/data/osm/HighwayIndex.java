@@ -0,0 +1,323 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.street_level.data.osm;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataSetListener;
+import org.openstreetmap.josm.data.osm.event.NodeMovedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesAddedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesRemovedEvent;
+import org.openstreetmap.josm.data.osm.event.RelationMembersChangedEvent;
+import org.openstreetmap.josm.data.osm.event.TagsChangedEvent;
+import org.openstreetmap.josm.data.osm.event.WayNodesChangedEvent;
+
+/**
+ * A spatial index of {@code highway=*} ways. Each way segment is stored in the grid cells its bounds cover, and the
+ * index is kept current through dataset events.
+ *
+ * @author Taylor Smock
+ */
+public final class HighwayIndex implements DataSetListener {
+    private static final String HIGHWAY = "highway";
+    /** The size of a grid cell in degrees (roughly 100m) */
+    private static final double CELL_SIZE = 0.001;
+    /** Segments that would cover more cells than this are kept in a separate list instead */
+    private static final int MAX_CELLS_PER_SEGMENT = 256;
+    private static final long[] NO_CELLS = new long[0];
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, List<Way>> cells = new HashMap<>();
+    private final Map<Way, long[]> indexedCells = new HashMap<>();
+    private final Set<Way> oversized = new LinkedHashSet<>();
+    private final AtomicLong modificationCount = new AtomicLong();
+
+    /**
+     * Create a new index. Use {@link #getIndex(DataSet)} for an index that is kept up to date.
+     */
+    HighwayIndex() {
+        // Package-private for tests
+    }
+
+    /**
+     * Get the index for a dataset, creating it if it does not yet exist
+     *
+     * @param dataSet The dataset to get the index for
+     * @return The index, which will be kept up to date with changes to the dataset
+     */
+    public static HighwayIndex getIndex(DataSet dataSet) {
+        return DataSetIndexes.get(dataSet, HighwayIndex.class, HighwayIndex::new, HighwayIndex::rebuild);
+    }
+
+    /**
+     * Stop indexing a dataset
+     *
+     * @param dataSet The dataset to stop indexing
+     */
+    public static void removeIndex(DataSet dataSet) {
+        DataSetIndexes.remove(dataSet, HighwayIndex.class);
+    }
+
+    /**
+     * Search for highways that may intersect a bbox
+     *
+     * @param bbox The bbox to search
+     * @return The highways that have at least one segment in a grid cell that the bbox covers. The list is a copy and
+     *         may be modified by the caller.
+     */
+    public List<Way> search(BBox bbox) {
+        final var found = new LinkedHashSet<Way>();
+        if (bbox == null || !bbox.isValid()) {
+            return new ArrayList<>(0);
+        }
+        final int minX = cell(bbox.getTopLeftLon());
+        final int maxX = cell(bbox.getBottomRightLon());
+        final int minY = cell(bbox.getBottomRightLat());
+        final int maxY = cell(bbox.getTopLeftLat());
+        lock.readLock().lock();
+        try {
+            for (int x = minX; x <= maxX; x++) {
+                for (int y = minY; y <= maxY; y++) {
+                    final var ways = this.cells.get(key(x, y));
+                    if (ways != null) {
+                        found.addAll(ways);
+                    }
+                }
+            }
+            for (Way way : this.oversized) {
+                if (way.getBBox().intersects(bbox)) {
+                    found.add(way);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        found.removeIf(Way::isDeleted);
+        return new ArrayList<>(found);
+    }
+
+    /**
+     * Check if a way is in the index
+     *
+     * @param way The way to check
+     * @return {@code true} if the way is currently indexed
+     */
+    public boolean contains(Way way) {
+        lock.readLock().lock();
+        try {
+            return this.indexedCells.containsKey(way);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the number of dataset events this index has seen. If this has not changed, the dataset has not changed.
+     *
+     * @return The modification count
+     */
+    public long getModificationCount() {
+        return this.modificationCount.get();
+    }
+
+    /**
+     * Rebuild the index from scratch
+     *
+     * @param dataSet The dataset to index
+     */
+    void rebuild(DataSet dataSet) {
+        // Always take the dataset lock first; dataset events are fired while the dataset read lock is held
+        dataSet.getReadLock().lock();
+        try {
+            lock.writeLock().lock();
+            try {
+                this.cells.clear();
+                this.indexedCells.clear();
+                this.oversized.clear();
+                for (Way way : dataSet.getWays()) {
+                    if (!way.isDeleted() && way.hasKey(HIGHWAY)) {
+                        addWay(way);
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            dataSet.getReadLock().unlock();
+        }
+        this.modificationCount.incrementAndGet();
+    }
+
+    /**
+     * Add, re-add, or remove a way, depending upon its current state
+     *
+     * @param way The way to update
+     */
+    void update(Way way) {
+        lock.writeLock().lock();
+        try {
+            removeWay(way);
+            if (!way.isDeleted() && way.getDataSet() != null && way.hasKey(HIGHWAY)) {
+                addWay(way);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a way from the index
+     *
+     * @param way The way to remove
+     */
+    void remove(Way way) {
+        lock.writeLock().lock();
+        try {
+            removeWay(way);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addWay(Way way) {
+        final var keys = new LinkedHashSet<Long>();
+        boolean isOversized = false;
+        for (int i = 0; i < way.getNodesCount() - 1; i++) {
+            final Node first = way.getNode(i);
+            final Node second = way.getNode(i + 1);
+            if (!first.isLatLonKnown() || !second.isLatLonKnown()) {
+                continue;
+            }
+            final int minX = cell(Math.min(first.lon(), second.lon()));
+            final int maxX = cell(Math.max(first.lon(), second.lon()));
+            final int minY = cell(Math.min(first.lat(), second.lat()));
+            final int maxY = cell(Math.max(first.lat(), second.lat()));
+            if ((long) (maxX - minX + 1) * (maxY - minY + 1) > MAX_CELLS_PER_SEGMENT) {
+                isOversized = true;
+                continue;
+            }
+            for (int x = minX; x <= maxX; x++) {
+                for (int y = minY; y <= maxY; y++) {
+                    keys.add(key(x, y));
+                }
+            }
+        }
+        final long[] wayCells = keys.isEmpty() ? NO_CELLS : new long[keys.size()];
+        int i = 0;
+        for (Long cellKey : keys) {
+            wayCells[i++] = cellKey;
+            this.cells.computeIfAbsent(cellKey, k -> new ArrayList<>(4)).add(way);
+        }
+        if (isOversized) {
+            this.oversized.add(way);
+        }
+        this.indexedCells.put(way, wayCells);
+    }
+
+    private void removeWay(Way way) {
+        final long[] wayCells = this.indexedCells.remove(way);
+        if (wayCells != null) {
+            for (long cellKey : wayCells) {
+                final var ways = this.cells.get(cellKey);
+                if (ways != null) {
+                    ways.remove(way);
+                    if (ways.isEmpty()) {
+                        this.cells.remove(cellKey);
+                    }
+                }
+            }
+            this.oversized.remove(way);
+        }
+    }
+
+    private static int cell(double degrees) {
+        return (int) Math.floor(degrees / CELL_SIZE);
+    }
+
+    private static long key(int x, int y) {
+        return ((long) x << 32) | (y & 0xffff_ffffL);
+    }
+
+    private static void forEachWay(Collection<? extends OsmPrimitive> primitives, Consumer<Way> consumer) {
+        for (OsmPrimitive primitive : primitives) {
+            if (primitive instanceof Way way) {
+                consumer.accept(way);
+            }
+        }
+    }
+
+    @Override
+    public void primitivesAdded(PrimitivesAddedEvent event) {
+        this.modificationCount.incrementAndGet();
+        forEachWay(event.getPrimitives(), this::update);
+    }
+
+    @Override
+    public void primitivesRemoved(PrimitivesRemovedEvent event) {
+        this.modificationCount.incrementAndGet();
+        forEachWay(event.getPrimitives(), this::remove);
+    }
+
+    @Override
+    public void tagsChanged(TagsChangedEvent event) {
+        this.modificationCount.incrementAndGet();
+        if (event.getPrimitive() instanceof Way way) {
+            update(way);
+        }
+    }
+
+    @Override
+    public void nodeMoved(NodeMovedEvent event) {
+        this.modificationCount.incrementAndGet();
+        for (Way way : event.getNode().getParentWays()) {
+            if (contains(way)) {
+                update(way);
+            }
+        }
+    }
+
+    @Override
+    public void wayNodesChanged(WayNodesChangedEvent event) {
+        this.modificationCount.incrementAndGet();
+        update(event.getChangedWay());
+    }
+
+    @Override
+    public void relationMembersChanged(RelationMembersChangedEvent event) {
+        this.modificationCount.incrementAndGet();
+    }
+
+    @Override
+    public void otherDatasetChange(AbstractDatasetChangedEvent event) {
+        this.modificationCount.incrementAndGet();
+    }
+
+    @Override
+    public void dataChanged(DataChangedEvent event) {
+        this.modificationCount.incrementAndGet();
+        if (event.getEvents() != null) {
+            // Coalesced events still carry the original events, which is cheaper than a full rebuild
+            for (AbstractDatasetChangedEvent child : event.getEvents()) {
+                child.fire(this);
+            }
+        } else {
+            this.rebuild(event.getDataset());
+        }
+    }
+}
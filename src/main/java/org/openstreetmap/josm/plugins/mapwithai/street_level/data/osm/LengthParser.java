@@ -0,0 +1,185 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.street_level.data.osm;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Parse OSM length values (e.g. {@code width=*}) in a single pass. Supported values are a number of metres
+ * ({@code 3.5}, {@code 3,5}, {@code 3.5 m}), {@code km}, {@code mi}, {@code nmi}, {@code ft}, {@code in} and feet and
+ * inches ({@code 12'6"}).
+ * <p>
+ * Tag values are interned by JOSM, and most datasets only have a few distinct widths, so parsed values are cached.
+ *
+ * @author Taylor Smock
+ */
+public final class LengthParser {
+    /** The most values to cache before the cache is cleared */
+    private static final int MAX_CACHE_SIZE = 1024;
+    private static final Map<String, Double> CACHE = new ConcurrentHashMap<>();
+
+    private static final double FOOT = 0.3048;
+    private static final double INCH = 0.0254;
+
+    private LengthParser() {
+        // Hide the constructor
+    }
+
+    /**
+     * Parse a length
+     *
+     * @param value The value to parse
+     * @return The length in metres, or {@link Double#NaN} if the value is not understood
+     */
+    public static double parse(String value) {
+        if (value == null) {
+            return Double.NaN;
+        }
+        final Double cached = CACHE.get(value);
+        if (cached != null) {
+            return cached;
+        }
+        final double length = parseUncached(value);
+        if (CACHE.size() >= MAX_CACHE_SIZE) {
+            CACHE.clear();
+        }
+        CACHE.put(value, length);
+        return length;
+    }
+
+    /**
+     * Parse a length without looking in the cache
+     *
+     * @param value The value to parse
+     * @return The length in metres, or {@link Double#NaN} if the value is not understood
+     */
+    static double parseUncached(String value) {
+        final var cursor = new Cursor(value);
+        cursor.skipSpaces();
+        final double number = cursor.number();
+        if (Double.isNaN(number)) {
+            return Double.NaN;
+        }
+        cursor.skipSpaces();
+        final double length;
+        if (cursor.atEnd()) {
+            return number;
+        } else if (cursor.accept('\'')) {
+            length = number * FOOT + cursor.inches();
+        } else if (cursor.accept('"')) {
+            length = number * INCH;
+        } else {
+            final String unit = cursor.word();
+            switch (unit) {
+            case "m" -> length = number;
+            case "km" -> length = number * 1000;
+            case "mi" -> length = number * 1609.344;
+            case "nmi" -> length = number * 1852;
+            case "ft" -> length = number * FOOT + cursor.inches();
+            case "in" -> length = number * INCH;
+            default -> length = Double.NaN;
+            }
+        }
+        cursor.skipSpaces();
+        return cursor.atEnd() ? length : Double.NaN;
+    }
+
+    /**
+     * A position in a value that is being parsed
+     */
+    private static final class Cursor {
+        private final String value;
+        private int position;
+
+        Cursor(String value) {
+            this.value = value;
+        }
+
+        boolean atEnd() {
+            return this.position >= this.value.length();
+        }
+
+        void skipSpaces() {
+            while (!atEnd() && this.value.charAt(this.position) == ' ') {
+                this.position++;
+            }
+        }
+
+        boolean accept(char c) {
+            if (!atEnd() && this.value.charAt(this.position) == c) {
+                this.position++;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Read a non-negative decimal number, with a {@code .} or {@code ,} decimal separator
+         *
+         * @return The number, or {@link Double#NaN} if there is no number
+         */
+        double number() {
+            long mantissa = 0;
+            int decimals = -1;
+            int digits = 0;
+            while (!atEnd()) {
+                final char c = this.value.charAt(this.position);
+                if (c >= '0' && c <= '9') {
+                    if (++digits > 15) {
+                        // Not a length anyone would tag, and a long cannot hold it
+                        return Double.NaN;
+                    }
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (decimals >= 0) {
+                        decimals++;
+                    }
+                } else if ((c == '.' || c == ',') && decimals < 0) {
+                    decimals = 0;
+                } else {
+                    break;
+                }
+                this.position++;
+            }
+            if (digits == 0) {
+                return Double.NaN;
+            }
+            // Powers of ten up to 10^22 are exact, so this is correctly rounded
+            return decimals > 0 ? mantissa / Math.pow(10, decimals) : mantissa;
+        }
+
+        /**
+         * Read the lowercase letters at the cursor
+         *
+         * @return The letters
+         */
+        String word() {
+            final int start = this.position;
+            while (!atEnd() && this.value.charAt(this.position) >= 'a' && this.value.charAt(this.position) <= 'z') {
+                this.position++;
+            }
+            return this.value.substring(start, this.position);
+        }
+
+        /**
+         * Read the inches after a number of feet, if there are any ({@code 6"} or {@code 6 in})
+         *
+         * @return The inches in metres, {@code 0} if there are no inches, or {@link Double#NaN} if the inches are not
+         *         understood
+         */
+        double inches() {
+            skipSpaces();
+            if (atEnd()) {
+                return 0;
+            }
+            final double inches = number();
+            if (Double.isNaN(inches)) {
+                return Double.NaN;
+            }
+            skipSpaces();
+            if (accept('"') || "in".equals(word())) {
+                return inches * INCH;
+            }
+            return Double.NaN;
+        }
+    }
+}
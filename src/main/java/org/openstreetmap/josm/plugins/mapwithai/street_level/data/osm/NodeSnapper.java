@@ -0,0 +1,176 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.street_level.data.osm;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.openstreetmap.josm.data.coor.ILatLon;
+import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+
+/**
+ * Find existing nodes close to generated nodes, so that generated sidewalks reuse them instead of duplicating them.
+ * The nodes are stored in a hash grid with cells as large as the tolerance, so a query only has to look at the nine
+ * cells around the point, no matter how many nodes are indexed.
+ * <p>
+ * The index is a snapshot; build a new one for each batch of generated ways.
+ *
+ * @author Taylor Smock
+ */
+public final class NodeSnapper {
+    /** The length of a degree of latitude in metres (close enough for distances of a few metres) */
+    static final double METRES_PER_DEGREE = 111_195;
+
+    private final double tolerance;
+    private final double toleranceSquared;
+    /** The length of a degree of longitude, relative to a degree of latitude */
+    private final double lonScale;
+    private final Map<Long, List<Node>> cells = new HashMap<>();
+
+    /**
+     * Create a new index
+     *
+     * @param nodes     The nodes to snap to
+     * @param tolerance The maximum snapping distance in metres. Must be positive.
+     * @param latitude  A latitude near the nodes, used to scale longitudes
+     */
+    NodeSnapper(Collection<Node> nodes, double tolerance, double latitude) {
+        if (!(tolerance > 0)) {
+            throw new IllegalArgumentException("The tolerance must be positive: " + tolerance);
+        }
+        this.tolerance = tolerance;
+        this.toleranceSquared = tolerance * tolerance;
+        this.lonScale = Math.cos(Math.toRadians(latitude));
+        for (Node node : nodes) {
+            if (node.isLatLonKnown()) {
+                this.cells.computeIfAbsent(key(cell(x(node)), cell(y(node))), k -> new ArrayList<>(2)).add(node);
+            }
+        }
+    }
+
+    /**
+     * Index the nodes of the footways near some generated ways. Call this while holding the dataset read lock.
+     *
+     * @param dataSet   The dataset with the existing footways
+     * @param generated The generated ways, which are not in the dataset
+     * @param tolerance The maximum snapping distance in metres. Must be positive.
+     * @return The index
+     */
+    public static NodeSnapper forFootways(DataSet dataSet, Collection<Way> generated, double tolerance) {
+        final var bounds = new BBox();
+        for (Way way : generated) {
+            bounds.addPrimitive(way, 0);
+        }
+        if (!bounds.isValid()) {
+            return new NodeSnapper(List.of(), tolerance, 0);
+        }
+        // Grow the bbox a little, so that footways just outside of it are found. Degrees of longitude get shorter away
+        // from the equator, so use the latitude furthest from it.
+        final double latMargin = tolerance / METRES_PER_DEGREE;
+        final double maxLat = Math.max(Math.abs(bounds.getTopLeftLat()), Math.abs(bounds.getBottomRightLat()));
+        final double lonMargin = latMargin / Math.max(Math.cos(Math.toRadians(maxLat)), 1e-6);
+        final var bbox = new BBox(bounds.getTopLeftLon() - lonMargin, bounds.getBottomRightLat() - latMargin,
+                bounds.getBottomRightLon() + lonMargin, bounds.getTopLeftLat() + latMargin);
+        final Set<Node> nodes = new LinkedHashSet<>();
+        for (Way way : dataSet.searchWays(bbox)) {
+            if (CrossingGenerator.isFootway(way)) {
+                nodes.addAll(way.getNodes());
+            }
+        }
+        return new NodeSnapper(nodes, tolerance, bbox.getCenter().lat());
+    }
+
+    /**
+     * Find the closest indexed node
+     *
+     * @param point The point to snap
+     * @return The closest node within the tolerance, or {@code null} if there is none
+     */
+    public Node snap(ILatLon point) {
+        if (this.cells.isEmpty() || !point.isLatLonKnown()) {
+            return null;
+        }
+        final double x = x(point);
+        final double y = y(point);
+        final int cellX = cell(x);
+        final int cellY = cell(y);
+        Node closest = null;
+        double closestDistance = this.toleranceSquared;
+        for (int i = cellX - 1; i <= cellX + 1; i++) {
+            for (int j = cellY - 1; j <= cellY + 1; j++) {
+                final var nodes = this.cells.get(key(i, j));
+                if (nodes == null) {
+                    continue;
+                }
+                for (Node node : nodes) {
+                    final double dx = x(node) - x;
+                    final double dy = y(node) - y;
+                    final double distance = dx * dx + dy * dy;
+                    if (distance <= closestDistance) {
+                        closest = node;
+                        closestDistance = distance;
+                    }
+                }
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * Find the indexed nodes that the nodes of generated ways should be replaced with. Two nodes of a way are never
+     * snapped to the same node, so that the ways keep all of their segments and do not double back on themselves.
+     *
+     * @param generated The generated ways
+     * @return The generated nodes and the nodes to use instead
+     */
+    public Map<Node, Node> snap(Collection<Way> generated) {
+        final Map<Node, Node> snapped = new HashMap<>();
+        if (this.cells.isEmpty()) {
+            return snapped;
+        }
+        final Set<Node> used = new HashSet<>();
+        for (Way way : generated) {
+            used.clear();
+            for (Node node : way.getNodes()) {
+                Node target = snapped.get(node);
+                if (target == null && !snapped.containsKey(node)) {
+                    target = snap(node);
+                    if (target != null && !used.add(target)) {
+                        target = null;
+                    }
+                    // Remember misses too, since closed ways and chained sidewalks share nodes
+                    snapped.put(node, target);
+                } else if (target != null) {
+                    used.add(target);
+                }
+            }
+        }
+        snapped.values().removeIf(Objects::isNull);
+        return snapped;
+    }
+
+    private double x(ILatLon point) {
+        return point.lon() * this.lonScale * METRES_PER_DEGREE;
+    }
+
+    private static double y(ILatLon point) {
+        return point.lat() * METRES_PER_DEGREE;
+    }
+
+    private int cell(double metres) {
+        return (int) Math.floor(metres / this.tolerance);
+    }
+
+    private static long key(int x, int y) {
+        return ((long) x << 32) | (y & 0xffff_ffffL);
+    }
+}
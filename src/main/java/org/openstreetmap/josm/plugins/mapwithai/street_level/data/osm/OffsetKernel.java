@@ -0,0 +1,282 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.street_level.data.osm;
+
+import java.util.List;
+
+import org.openstreetmap.josm.data.osm.INode;
+import org.openstreetmap.josm.data.projection.Ellipsoid;
+import org.openstreetmap.josm.tools.Logging;
+
+/**
+ * Offset a line by a fixed distance, working on packed coordinate arrays. Coordinates are stored as
+ * {@code [lat0, lon0, lat1, lon1, ...]} and {@code [east0, north0, east1, north1, ...]}; nothing is allocated per
+ * vertex.
+ * <p>
+ * The headings are computed in projected space (which is what the user sees), and the offset points are computed on
+ * the sphere, in the same way as {@link org.openstreetmap.josm.tools.Geometry#getLatLonFrom}.
+ * <p>
+ * Many lines can be offset at once with {@link #offsetBatch}, which works on separate latitude, longitude and
+ * heading arrays. If the JVM was started with {@code --add-modules jdk.incubator.vector}, the batch is computed with
+ * the Vector API; otherwise, a scalar loop is used.
+ *
+ * @author Taylor Smock
+ */
+public final class OffsetKernel {
+    private static final double TWO_PI = 2 * Math.PI;
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    /** The kernel for {@link #offsetBatch}, loaded once */
+    private static final BatchKernel BATCH_KERNEL = loadBatchKernel();
+
+    private OffsetKernel() {
+        // Hide the constructor
+    }
+
+    /**
+     * Offset a line
+     *
+     * @param nodes   The nodes of the line
+     * @param closed  {@code true} if the line is closed (the first and last nodes are the same)
+     * @param reverse {@code true} to walk the line backwards (offset to the left instead of the right)
+     * @param offset  The distance to offset the line, in metres
+     * @return The offset line, as packed lat/lon pairs in the order of the walk
+     */
+    public static double[] offset(List<? extends INode> nodes, boolean closed, boolean reverse, double offset) {
+        final int count = nodes.size();
+        final double[] latLon = new double[2 * count];
+        final double[] eastNorth = new double[2 * count];
+        project(nodes, latLon, eastNorth);
+        final double[] angles = new double[count];
+        headings(eastNorth, count, closed, reverse, angles);
+        final double[] result = new double[2 * count];
+        offset(latLon, angles, count, reverse, offset, result);
+        return result;
+    }
+
+    /**
+     * Read the coordinates of nodes into packed arrays. Each node is projected once.
+     *
+     * @param nodes     The nodes to read
+     * @param latLon    The array for the lat/lon pairs, at least {@code 2 * nodes.size()} long
+     * @param eastNorth The array for the east/north pairs, at least {@code 2 * nodes.size()} long
+     */
+    public static void project(List<? extends INode> nodes, double[] latLon, double[] eastNorth) {
+        final int count = nodes.size();
+        for (int i = 0; i < count; i++) {
+            final INode node = nodes.get(i);
+            final var en = node.getEastNorth();
+            latLon[2 * i] = node.lat();
+            latLon[2 * i + 1] = node.lon();
+            eastNorth[2 * i] = en.east();
+            eastNorth[2 * i + 1] = en.north();
+        }
+    }
+
+    /**
+     * Compute the direction to offset each vertex in. End vertices are offset perpendicular to their segment, and
+     * inner vertices along the bisector of their corner. For closed lines (of at least four nodes), the first and last
+     * vertex are treated as a corner.
+     *
+     * @param eastNorth The east/north pairs of the line
+     * @param count     The number of vertices
+     * @param closed    {@code true} if the line is closed
+     * @param reverse   {@code true} to walk the line backwards
+     * @param angles    The array for the headings (radians clockwise from north), in the order of the walk
+     */
+    public static void headings(double[] eastNorth, int count, boolean closed, boolean reverse, double[] angles) {
+        for (int i = 0; i < count; i++) {
+            angles[i] = headingAt(eastNorth, count, closed, reverse, i);
+        }
+    }
+
+    /**
+     * Compute the direction to offset a single vertex in, for when only a few vertices have moved
+     *
+     * @param eastNorth The east/north pairs of the line
+     * @param count     The number of vertices
+     * @param closed    {@code true} if the line is closed
+     * @param reverse   {@code true} to walk the line backwards
+     * @param i         The vertex, in the order of the walk
+     * @return The heading (radians clockwise from north)
+     * @see #headings(double[], int, boolean, boolean, double[])
+     */
+    public static double headingAt(double[] eastNorth, int count, boolean closed, boolean reverse, int i) {
+        if (closed && count - 1 >= 3 && (i == 0 || i == count - 1)) {
+            return bisector(eastNorth, index(count - 2, count, reverse), index(0, count, reverse),
+                    index(1, count, reverse));
+        } else if (i == 0) {
+            return heading(eastNorth, index(0, count, reverse), index(1, count, reverse)) + Math.PI / 2;
+        } else if (i == count - 1) {
+            return heading(eastNorth, index(count - 2, count, reverse), index(count - 1, count, reverse)) + Math.PI / 2;
+        }
+        return bisector(eastNorth, index(i - 1, count, reverse), index(i, count, reverse),
+                index(i + 1, count, reverse));
+    }
+
+    /**
+     * Offset each vertex along its heading
+     *
+     * @param latLon  The lat/lon pairs of the line
+     * @param angles  The headings from {@link #headings(double[], int, boolean, boolean, double[])}
+     * @param count   The number of vertices
+     * @param reverse {@code true} if the headings were computed walking the line backwards
+     * @param offset  The distance to offset each vertex, in metres
+     * @param result  The array for the offset lat/lon pairs, in the order of the walk. This may not be
+     *                {@code latLon}.
+     */
+    public static void offset(double[] latLon, double[] angles, int count, boolean reverse, double offset,
+            double[] result) {
+        // The angular distance is the same for every vertex
+        final double angularDistance = angularDistance(offset);
+        final double sinDistance = Math.sin(angularDistance);
+        final double cosDistance = Math.cos(angularDistance);
+        for (int i = 0; i < count; i++) {
+            final int vertex = index(i, count, reverse);
+            final double radianLat = Math.toRadians(latLon[2 * vertex]);
+            final double radianLon = Math.toRadians(latLon[2 * vertex + 1]);
+            final double sinLat = Math.sin(radianLat);
+            final double cosLat = Math.cos(radianLat);
+            final double angle = angles[i];
+            final double lat = Math.asin(sinLat * cosDistance + cosLat * sinDistance * Math.cos(angle));
+            final double lon = radianLon
+                    + Math.atan2(Math.sin(angle) * sinDistance * cosLat, cosDistance - sinLat * Math.sin(lat));
+            result[2 * i] = Math.toDegrees(lat);
+            result[2 * i + 1] = Math.toDegrees(lon);
+        }
+    }
+
+    /**
+     * Get the angular distance for an offset
+     *
+     * @param offset The distance to offset, in metres
+     * @return The angular distance, in radians
+     */
+    public static double angularDistance(double offset) {
+        // See Geometry#getLatLonFrom
+        return Math.toRadians(Math.toDegrees(offset / Ellipsoid.WGS84.a));
+    }
+
+    /**
+     * Offset many vertices at once. All arrays are indexed by vertex, so the vertices of many lines (and of both sides
+     * of a line) can be packed one after another. The headings and distances are computed beforehand, per line.
+     *
+     * @param lat         The latitudes, in radians
+     * @param lon         The longitudes, in radians
+     * @param angles      The headings (radians clockwise from north)
+     * @param sinDistance The sine of the angular distance to offset each vertex (see {@link #angularDistance})
+     * @param cosDistance The cosine of the angular distance to offset each vertex
+     * @param count       The number of vertices
+     * @param resultLat   The array for the offset latitudes, in radians
+     * @param resultLon   The array for the offset longitudes, in radians
+     */
+    public static void offsetBatch(double[] lat, double[] lon, double[] angles, double[] sinDistance,
+            double[] cosDistance, int count, double[] resultLat, double[] resultLon) {
+        BATCH_KERNEL.offset(lat, lon, angles, sinDistance, cosDistance, count, resultLat, resultLon);
+    }
+
+    /**
+     * Check if {@link #offsetBatch} uses the Vector API
+     *
+     * @return {@code true} if the batch is computed with the Vector API
+     */
+    public static boolean isVectorized() {
+        return !(BATCH_KERNEL instanceof ScalarBatchKernel);
+    }
+
+    /**
+     * The scalar version of {@link #offsetBatch}, for a range of vertices
+     *
+     * @param from The first vertex to offset
+     * @param to   The vertex after the last vertex to offset
+     * @see #offsetBatch
+     */
+    static void offsetBatchScalar(double[] lat, double[] lon, double[] angles, double[] sinDistance,
+            double[] cosDistance, int from, int to, double[] resultLat, double[] resultLon) {
+        for (int i = from; i < to; i++) {
+            final double sinLat = Math.sin(lat[i]);
+            final double cosLat = Math.cos(lat[i]);
+            final double angle = angles[i];
+            // This is sin(newLat), so there is no need to take the sine of the result of the asin
+            final double sinNewLat = sinLat * cosDistance[i] + cosLat * sinDistance[i] * Math.cos(angle);
+            resultLat[i] = Math.asin(sinNewLat);
+            resultLon[i] = lon[i]
+                    + Math.atan2(Math.sin(angle) * sinDistance[i] * cosLat, cosDistance[i] - sinLat * sinNewLat);
+        }
+    }
+
+    /**
+     * Load the Vector API kernel, if the module is available
+     *
+     * @return The kernel to use for {@link #offsetBatch}
+     */
+    private static BatchKernel loadBatchKernel() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent()) {
+            try {
+                // The vector kernel is compiled separately, since it needs the incubating module
+                return (BatchKernel) Class.forName(OffsetKernel.class.getPackageName() + ".VectorOffsetKernel")
+                        .getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                Logging.debug(e);
+            }
+        }
+        return new ScalarBatchKernel();
+    }
+
+    private static int index(int i, int count, boolean reverse) {
+        return reverse ? count - 1 - i : i;
+    }
+
+    /**
+     * The heading from one vertex to another, see {@link org.openstreetmap.josm.data.coor.EastNorth#heading}
+     */
+    private static double heading(double[] eastNorth, int from, int to) {
+        final double heading = Math.atan2(eastNorth[2 * to] - eastNorth[2 * from],
+                eastNorth[2 * to + 1] - eastNorth[2 * from + 1]);
+        return heading < 0 ? heading + TWO_PI : heading;
+    }
+
+    /**
+     * The heading that bisects the corner at {@code second}, on the side that the line is offset to
+     */
+    private static double bisector(double[] eastNorth, int first, int second, int third) {
+        final double firstEast = eastNorth[2 * first] - eastNorth[2 * second];
+        final double firstNorth = eastNorth[2 * first + 1] - eastNorth[2 * second + 1];
+        final double thirdEast = eastNorth[2 * third] - eastNorth[2 * second];
+        final double thirdNorth = eastNorth[2 * third + 1] - eastNorth[2 * second + 1];
+        // Geometry#getCornerAngle
+        double cornerAngle = Math.atan2(firstNorth, firstEast) - Math.atan2(thirdNorth, thirdEast);
+        if (cornerAngle <= -Math.PI) {
+            cornerAngle += TWO_PI;
+        }
+        if (cornerAngle > Math.PI) {
+            cornerAngle -= TWO_PI;
+        }
+        // Geometry#angleIsClockwise
+        final boolean isClockwise = firstNorth * thirdEast - firstEast * thirdNorth > 0;
+        final double lastAngle = heading(eastNorth, second, third);
+        return isClockwise ? lastAngle + (TWO_PI - cornerAngle) / 2 : lastAngle - cornerAngle / 2;
+    }
+
+    /**
+     * A kernel for {@link #offsetBatch}
+     */
+    interface BatchKernel {
+        /**
+         * Offset many vertices at once
+         *
+         * @see OffsetKernel#offsetBatch
+         */
+        void offset(double[] lat, double[] lon, double[] angles, double[] sinDistance, double[] cosDistance, int count,
+                double[] resultLat, double[] resultLon);
+    }
+
+    /**
+     * The fallback kernel, used when the Vector API is not available
+     */
+    private static final class ScalarBatchKernel implements BatchKernel {
+        @Override
+        public void offset(double[] lat, double[] lon, double[] angles, double[] sinDistance, double[] cosDistance,
+                int count, double[] resultLat, double[] resultLon) {
+            offsetBatchScalar(lat, lon, angles, sinDistance, cosDistance, 0, count, resultLat, resultLon);
+        }
+    }
+}
@@ -1,20 +1,29 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.plugins.mapwithai.street_level.data.osm;
 
+import java.lang.reflect.Constructor;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.regex.Pattern;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
-import org.openstreetmap.josm.data.coor.ILatLon;
+import org.openstreetmap.josm.command.ChangePropertyCommand;
+import org.openstreetmap.josm.command.Command;
 import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.INode;
 import org.openstreetmap.josm.data.osm.IWay;
-import org.openstreetmap.josm.tools.Geometry;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.tools.JosmRuntimeException;
 import org.openstreetmap.josm.tools.Logging;
 
 /**
@@ -23,19 +32,122 @@ import org.openstreetmap.josm.tools.Logging;
  * @author Taylor Smock
  */
 public final class ParallelSidewalkCreation {
-    private static final Pattern NUMBER_REGEX = Pattern.compile("\\d*\\.?\\d*");
-    private static final Pattern KM_NUMBER_REGEX = Pattern.compile(NUMBER_REGEX.pattern() + " km");
-    private static final Pattern MI_NUMBER_REGEX = Pattern.compile(NUMBER_REGEX.pattern() + " mi");
-    private static final Pattern NMI_NUMBER_REGEX = Pattern.compile(NUMBER_REGEX.pattern() + " nmi");
-    private static final Pattern FT_IN_NUMBER_REGEX = Pattern
-            .compile("(" + NUMBER_REGEX.pattern() + "')?(" + NUMBER_REGEX.pattern() + "\")?");
+    /** The tags for the width of a road, most specific first */
+    private static final String[] WIDTH_KEYS = { "width:carriageway", "width" };
+    /** The width of a road without usable width or lanes tags, in metres */
+    private static final double DEFAULT_ROAD_WIDTH = 8.5;
+    /** The width of a lane, for roads with a lanes tag but no usable width tag, in metres */
+    private static final double LANE_WIDTH = 3.5;
+    /** The distance from the edge of the road to the middle of the sidewalk, in metres */
+    private static final double SIDEWALK_OFFSET = 1.5;
+
+    private static final String SIDEWALK = "sidewalk";
+    private static final String SIDEWALK_PREFIX = SIDEWALK + ':';
+
+    /** Highways that do not get sidewalks when creating sidewalks for an area */
+    private static final Set<String> NO_SIDEWALK_HIGHWAYS = Set.of("bridleway", "construction", "corridor",
+            "cycleway", "footway", "path", "pedestrian", "platform", "proposed", "steps");
 
     private ParallelSidewalkCreation() {
         // Hide the constructor
     }
 
     /**
-     * Create parallel sidewalks
+     * Create parallel sidewalks for many ways at once. The ways are processed in parallel; this should be called
+     * while holding the dataset read lock.
+     *
+     * @param ways    The ways to create parallel sidewalks for
+     * @param options The sides to create sidewalks on
+     * @return The new sidewalks (untagged and not in a dataset), in the order of the ways
+     */
+    public static List<ParallelSidewalk> createAllParallelSidewalks(final Collection<Way> ways,
+            final Options... options) {
+        Objects.requireNonNull(options, "There must be at least one option");
+        return ways.parallelStream().filter(way -> way.isUsable() && way.getNodesCount() >= 2)
+                .flatMap(way -> createParallelSidewalksForRoad(way, options)).toList();
+    }
+
+    private static Stream<ParallelSidewalk> createParallelSidewalksForRoad(final Way way, final Options... options) {
+        final Map<Options, Way> sidewalks = createParallelSidewalks(way, Node::new, Way::new, options);
+        return sidewalks.entrySet().stream().map(entry -> new ParallelSidewalk(way, entry.getKey(), entry.getValue(),
+                getOffset(way, entry.getKey())));
+    }
+
+    /**
+     * Create parallel sidewalks for every road in an area that does not have sidewalks yet
+     *
+     * @param dataSet The dataset with the roads
+     * @param bbox    The area to look in
+     * @param options The sides to create sidewalks on
+     * @return The new sidewalks (untagged and not in a dataset)
+     * @see #createAllParallelSidewalks(Collection, Options...)
+     * @see #getRoadsWithoutSidewalks(DataSet, BBox)
+     */
+    public static List<ParallelSidewalk> createAllParallelSidewalks(final DataSet dataSet, final BBox bbox,
+            final Options... options) {
+        dataSet.getReadLock().lock();
+        try {
+            return createAllParallelSidewalks(getRoadsWithoutSidewalks(dataSet, bbox), options);
+        } finally {
+            dataSet.getReadLock().unlock();
+        }
+    }
+
+    /**
+     * Find the roads in an area that do not have sidewalks yet. Roads with any {@code sidewalk} tag (including
+     * {@code sidewalk=no}) are skipped; roads that got sidewalks are marked with {@code sidewalk=separate} (see
+     * {@link #createMarkSeparateCommand(Collection)}). Roads with sidewalks that were generated for them in this
+     * session are skipped as well, in case the mark was removed.
+     *
+     * @param dataSet The dataset with the roads
+     * @param bbox    The area to look in
+     * @return The roads that may need sidewalks
+     */
+    public static List<Way> getRoadsWithoutSidewalks(final DataSet dataSet, final BBox bbox) {
+        // Don't create links for datasets that never had sidewalks generated
+        final SidewalkLinks links = DataSetIndexes.peek(dataSet, SidewalkLinks.class);
+        dataSet.getReadLock().lock();
+        try {
+            return dataSet.searchWays(bbox).stream()
+                    .filter(way -> way.isUsable() && isRoad(way) && !hasSidewalkTags(way)
+                            && (links == null || links.getSidewalks(way).isEmpty()))
+                    .toList();
+        } finally {
+            dataSet.getReadLock().unlock();
+        }
+    }
+
+    /**
+     * Create the command that marks roads as having separately mapped sidewalks ({@code sidewalk=separate}). This
+     * should be part of the command that adds the sidewalks, so that the roads are skipped the next time, even after
+     * the data is saved and reloaded. Roads that already have {@code sidewalk} tags are left alone.
+     *
+     * @param roads The roads that got sidewalks
+     * @return The command (not executed), or {@code null} if no road needs to be marked
+     */
+    public static Command createMarkSeparateCommand(final Collection<Way> roads) {
+        final List<Way> unmarked = roads.stream().filter(road -> !hasSidewalkTags(road)).distinct().toList();
+        return unmarked.isEmpty() ? null : new ChangePropertyCommand(unmarked, SIDEWALK, "separate");
+    }
+
+    private static boolean hasSidewalkTags(final Way way) {
+        return way.keySet().stream().anyMatch(key -> SIDEWALK.equals(key) || key.startsWith(SIDEWALK_PREFIX));
+    }
+
+    /**
+     * Check if a way is a road that may have sidewalks
+     *
+     * @param way The way to check
+     * @return {@code true} if the way is a {@code highway} that is not for pedestrians (or otherwise not a road)
+     */
+    public static boolean isRoad(final Way way) {
+        return way.hasKey("highway") && !NO_SIDEWALK_HIGHWAYS.contains(way.get("highway"));
+    }
+
+    /**
+     * Create parallel sidewalks. This looks up the no-argument constructors of the node and way classes with
+     * reflection; prefer {@link #createParallelSidewalks(IWay, Supplier, Supplier, Options...)} when the types are
+     * known.
      *
      * @param way The way to create parallel sidewalks for
      * @param <N> The node type
@@ -46,152 +158,276 @@ public final class ParallelSidewalkCreation {
     public static <N extends INode, W extends IWay<N>> Map<Options, W> createParallelSidewalks(final W way,
             final Options... options) {
         Objects.requireNonNull(way);
-        Objects.requireNonNull(options, "There must be at least one option");
-        // TODO account for placement tags, meters/feet/whatever
-        final float width;
-        if (way.hasKey("width")) {
-            String widthValue = way.get("width");
-            width = parseWidth(widthValue) + 3; // 3m for sidewalks
-        } else {
-            width = 11.5f; // 8.5m for road, another 3m for sidewalk
-        }
-        List<N> nodes = way.getNodes();
-        Map<Options, List<ILatLon>> sidewalkLatLons = new EnumMap<>(Options.class);
-        if (Arrays.asList(options).contains(Options.RIGHT)) {
-            sidewalkLatLons.put(Options.RIGHT, createParallelNodes(nodes, width / 2, way.isClosed()));
-        }
-        if (Arrays.asList(options).contains(Options.LEFT)) {
-            Collections.reverse(nodes);
-            sidewalkLatLons.put(Options.LEFT, createParallelNodes(nodes, width / 2, way.isClosed()));
-        }
-
         // Suppress "unchecked" warnings here, since these are already typed
         @SuppressWarnings("unchecked")
         Class<N> nodeClass = (Class<N>) way.firstNode().getClass();
         @SuppressWarnings("unchecked")
         Class<W> wayClass = (Class<W>) way.getClass();
+        final Constructor<N> nodeConstructor;
+        final Constructor<W> wayConstructor;
         try {
-            final var nodeConstructor = nodeClass.getConstructor();
-            final var wayConstructor = wayClass.getConstructor();
-            Map<Options, W> sidewalkList = new EnumMap<>(Options.class);
-            for (Map.Entry<Options, List<ILatLon>> sidewalk : sidewalkLatLons.entrySet()) {
-                List<N> tWayNodes = new ArrayList<>(sidewalk.getValue().size());
-                for (ILatLon latLon : sidewalk.getValue()) {
-                    N tNode = nodeConstructor.newInstance();
-                    tNode.setCoor(latLon instanceof LatLon ll ? ll : new LatLon(latLon.lat(), latLon.lon()));
-                    tWayNodes.add(tNode);
-                }
-                if (tWayNodes.get(0).equalsEpsilon(tWayNodes.get(tWayNodes.size() - 1))) {
-                    tWayNodes.remove(tWayNodes.size() - 1);
-                    tWayNodes.add(tWayNodes.get(0));
-                }
-                W tWay = wayConstructor.newInstance();
-                tWay.setNodes(tWayNodes);
-                sidewalkList.put(sidewalk.getKey(), tWay);
-            }
-            return sidewalkList;
+            nodeConstructor = nodeClass.getConstructor();
+            wayConstructor = wayClass.getConstructor();
         } catch (ReflectiveOperationException e) {
             Logging.error(e);
             return Collections.emptyMap();
         }
+        return createParallelSidewalks(way, () -> newInstance(nodeConstructor), () -> newInstance(wayConstructor),
+                options);
     }
 
     /**
-     * Parse the width value
+     * Create parallel sidewalks
      *
-     * @param widthValue The width to parse
-     * @return The width in meters
+     * @param way         The way to create parallel sidewalks for
+     * @param nodeFactory Creates the nodes for the sidewalks (e.g. {@code Node::new})
+     * @param wayFactory  Creates the sidewalk ways (e.g. {@code Way::new})
+     * @param options     The sides to create sidewalks on
+     * @param <N>         The node type
+     * @param <W>         The way type
+     * @return A collection of ways (untagged, you may want to open up the preset
+     *         editor for these)
      */
-    private static float parseWidth(String widthValue) {
-        if (NUMBER_REGEX.matcher(widthValue).matches()) {
-            return Float.parseFloat(widthValue);
-        } else if (KM_NUMBER_REGEX.matcher(widthValue).matches()) {
-            return Float.parseFloat(widthValue.substring(0, widthValue.length() - 3)) * 1000;
-        } else if (MI_NUMBER_REGEX.matcher(widthValue).matches()) {
-            return Float.parseFloat(widthValue.substring(0, widthValue.length() - 3)) * 1609.344f;
-        } else if (NMI_NUMBER_REGEX.matcher(widthValue).matches()) {
-            return Float.parseFloat(widthValue.substring(0, widthValue.length() - 4)) * 1852;
-        } else if (FT_IN_NUMBER_REGEX.matcher(widthValue).matches()) {
-            final var matcher = FT_IN_NUMBER_REGEX.matcher(widthValue);
-            // Find the match. Again.
-            if (matcher.matches()) {
-                final var feet = matcher.group(1) == null ? 0 : Float.parseFloat(matcher.group(1).replace("'", ""));
-                final var inches = matcher.group(2) == null ? 0 : Float.parseFloat(matcher.group(2).replace("\"", ""));
-                return (12 * feet + inches) * 0.0254f;
-            } else {
-                throw new IllegalStateException("This should never be hit");
+    public static <N extends INode, W extends IWay<N>> Map<Options, W> createParallelSidewalks(final W way,
+            final Supplier<? extends N> nodeFactory, final Supplier<? extends W> wayFactory,
+            final Options... options) {
+        Objects.requireNonNull(way);
+        Objects.requireNonNull(nodeFactory);
+        Objects.requireNonNull(wayFactory);
+        Objects.requireNonNull(options, "There must be at least one option");
+        // Project every node once, then offset the packed coordinates for each side
+        final List<N> nodes = way.getNodes();
+        final int count = nodes.size();
+        final double[] latLon = new double[2 * count];
+        final double[] eastNorth = new double[2 * count];
+        OffsetKernel.project(nodes, latLon, eastNorth);
+        final double[] angles = new double[count];
+        final double[] offsetLatLon = new double[2 * count];
+        final List<Options> optionList = Arrays.asList(options);
+        Map<Options, W> sidewalkList = new EnumMap<>(Options.class);
+        for (Options option : Options.values()) {
+            if (optionList.contains(option)) {
+                final boolean reverse = option == Options.LEFT;
+                OffsetKernel.headings(eastNorth, count, way.isClosed(), reverse, angles);
+                OffsetKernel.offset(latLon, angles, count, reverse, getOffset(way, option), offsetLatLon);
+                sidewalkList.put(option, createWay(offsetLatLon, count, nodeFactory, wayFactory));
             }
-        } else {
-            throw new IllegalArgumentException("Width not yet understood: " + widthValue);
         }
+        return sidewalkList;
     }
 
     /**
-     * Create a list of parallel nodes
+     * Create a way from packed coordinates
      *
-     * @param nodes  The nodes to create a parallel list (right)
-     * @param <N>    The node type
-     * @param closed If the nodes are "closed"
-     * @return The parallel nodes
+     * @param latLon      The lat/lon pairs
+     * @param count       The number of nodes
+     * @param nodeFactory Creates the nodes
+     * @param wayFactory  Creates the way
+     * @param <N>         The node type
+     * @param <W>         The way type
+     * @return The new way
      */
-    private static <N extends INode> List<ILatLon> createParallelNodes(final List<N> nodes, final float offset,
-            final boolean closed) {
-        final List<ILatLon> latLons = new ArrayList<>(nodes.size());
-
-        double angle = nodes.get(0).getEastNorth().heading(nodes.get(1).getEastNorth()) + Math.PI / 2;
-        latLons.add(getLatLon(nodes.get(0).getCoor(), angle, offset));
-        // Every node beside first/last need three other nodes
-        for (int i = 1; i < nodes.size() - 1; i++) {
-            latLons.add(generateLatLon(offset, nodes.get(i - 1), nodes.get(i), nodes.get(i + 1)));
+    static <N extends INode, W extends IWay<N>> W createWay(final double[] latLon, final int count,
+            final Supplier<? extends N> nodeFactory, final Supplier<? extends W> wayFactory) {
+        List<N> tWayNodes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            N tNode = nodeFactory.get();
+            tNode.setCoor(new LatLon(latLon[2 * i], latLon[2 * i + 1]));
+            tWayNodes.add(tNode);
         }
-        if (!closed || latLons.size() < 3) {
-            angle = nodes.get(nodes.size() - 2).getEastNorth().heading(nodes.get(nodes.size() - 1).getEastNorth())
-                    + Math.PI / 2;
-            latLons.add(getLatLon(nodes.get(nodes.size() - 1).getCoor(), angle, offset));
-        } else {
-            latLons.remove(0);
-            final var first = nodes.get(nodes.size() - 2);
-            final var second = nodes.get(0);
-            final var third = nodes.get(1);
-
-            latLons.add(0, generateLatLon(offset, first, second, third));
-            latLons.add(latLons.get(0));
+        if (tWayNodes.get(0).equalsEpsilon(tWayNodes.get(tWayNodes.size() - 1))) {
+            tWayNodes.remove(tWayNodes.size() - 1);
+            tWayNodes.add(tWayNodes.get(0));
         }
+        W tWay = wayFactory.get();
+        tWay.setNodes(tWayNodes);
+        return tWay;
+    }
 
-        return latLons;
-    }
-
-    private static ILatLon generateLatLon(final float offset, final INode first, final INode second,
-            final INode third) {
-        final double angle;
-        // Note: getCornerAngle is (node1, commonNode, node2), angleIsClockwise is
-        // (commonNode, node1, node2)
-        final double cornerAngle = Geometry.getCornerAngle(first.getEastNorth(), second.getEastNorth(),
-                third.getEastNorth());
-        final boolean isClockwise = Geometry.angleIsClockwise(second, first, third);
-        final double lastAngle = second.getEastNorth().heading(third.getEastNorth());
-        if (isClockwise) {
-            angle = lastAngle + (2 * Math.PI - cornerAngle) / 2;
-        } else {
-            angle = lastAngle - cornerAngle / 2;
+    /**
+     * Create parallel sidewalks for many ways at once, packing the vertices of every way into contiguous arrays and
+     * offsetting them in a single {@link OffsetKernel#offsetBatch} call. This should be called while holding the
+     * dataset read lock.
+     *
+     * @param ways    The ways to create parallel sidewalks for
+     * @param options The sides to create sidewalks on
+     * @return The new sidewalks (untagged and not in a dataset), in the order of the ways
+     * @see #createAllParallelSidewalks(Collection, Options...)
+     */
+    public static List<ParallelSidewalk> createAllParallelSidewalksBatched(final Collection<Way> ways,
+            final Options... options) {
+        Objects.requireNonNull(options, "There must be at least one option");
+        final List<Options> sides = Arrays.stream(Options.values()).filter(Arrays.asList(options)::contains).toList();
+        final List<Way> roads = new ArrayList<>(ways.size());
+        int total = 0;
+        for (Way way : ways) {
+            if (way.isUsable() && way.getNodesCount() >= 2) {
+                roads.add(way);
+                total += way.getNodesCount() * sides.size();
+            }
         }
-        return getLatLon(second, angle, offset);
+        final double[] offsets = new double[roads.size() * sides.size()];
+        final double[] lat = new double[total];
+        final double[] lon = new double[total];
+        final double[] angles = new double[total];
+        final double[] sinDistance = new double[total];
+        final double[] cosDistance = new double[total];
+        // Headings need the neighbouring vertices, so they are computed per way into scratch arrays
+        double[] latLon = new double[0];
+        double[] eastNorth = new double[0];
+        double[] wayAngles = new double[0];
+        int position = 0;
+        for (int w = 0; w < roads.size(); w++) {
+            final Way road = roads.get(w);
+            final int count = road.getNodesCount();
+            if (wayAngles.length < count) {
+                latLon = new double[2 * count];
+                eastNorth = new double[2 * count];
+                wayAngles = new double[count];
+            }
+            OffsetKernel.project(road.getNodes(), latLon, eastNorth);
+            for (int s = 0; s < sides.size(); s++) {
+                final Options side = sides.get(s);
+                final boolean reverse = side == Options.LEFT;
+                offsets[w * sides.size() + s] = getOffset(road, side);
+                final double angularDistance = OffsetKernel.angularDistance(offsets[w * sides.size() + s]);
+                final double sin = Math.sin(angularDistance);
+                final double cos = Math.cos(angularDistance);
+                OffsetKernel.headings(eastNorth, count, road.isClosed(), reverse, wayAngles);
+                for (int i = 0; i < count; i++) {
+                    final int vertex = reverse ? count - 1 - i : i;
+                    lat[position] = Math.toRadians(latLon[2 * vertex]);
+                    lon[position] = Math.toRadians(latLon[2 * vertex + 1]);
+                    angles[position] = wayAngles[i];
+                    sinDistance[position] = sin;
+                    cosDistance[position] = cos;
+                    position++;
+                }
+            }
+        }
+        final double[] resultLat = new double[total];
+        final double[] resultLon = new double[total];
+        OffsetKernel.offsetBatch(lat, lon, angles, sinDistance, cosDistance, total, resultLat, resultLon);
+        final List<ParallelSidewalk> sidewalks = new ArrayList<>(roads.size() * sides.size());
+        final double[] offsetLatLon = new double[2 * wayAngles.length];
+        position = 0;
+        for (int w = 0; w < roads.size(); w++) {
+            final Way road = roads.get(w);
+            final int count = road.getNodesCount();
+            for (int s = 0; s < sides.size(); s++) {
+                for (int i = 0; i < count; i++) {
+                    offsetLatLon[2 * i] = Math.toDegrees(resultLat[position]);
+                    offsetLatLon[2 * i + 1] = Math.toDegrees(resultLon[position]);
+                    position++;
+                }
+                sidewalks.add(new ParallelSidewalk(road, sides.get(s),
+                        createWay(offsetLatLon, count, Node::new, Way::new), offsets[w * sides.size() + s]));
+            }
+        }
+        return sidewalks;
     }
 
     /**
-     * Create a new LatLon
+     * Get the distance from a road to the middle of the sidewalk on one side of it. The width of the road comes from
+     * {@code width:carriageway}, {@code width} or {@code lanes} (in that order); tags that cannot be understood are
+     * skipped. If the road has a {@code placement} tag, the road way is not in the middle of the road, so the
+     * sidewalks are offset by different amounts.
      *
-     * @param original The originating point
-     * @param angle    The angle (from true north) in radians
-     * @param offset   The distance to the new point
-     * @return The new latlon
+     * @param way  The road
+     * @param side The side of the road
+     * @return The offset in metres
      */
-    private static LatLon getLatLon(final ILatLon original, final double angle, final float offset) {
-        ILatLon iLatLon = Geometry.getLatLonFrom(original, angle, offset);
-        if (iLatLon instanceof LatLon) {
-            return (LatLon) iLatLon;
+    static double getOffset(final IWay<?> way, final Options side) {
+        final int lanes = getLanes(way);
+        final double roadWidth = getRoadWidth(way, lanes);
+        final double left = getLeftWidth(way.get("placement"), lanes, roadWidth);
+        return (side == Options.LEFT ? left : roadWidth - left) + SIDEWALK_OFFSET;
+    }
+
+    private static double getRoadWidth(final IWay<?> way, final int lanes) {
+        for (String key : WIDTH_KEYS) {
+            final String value = way.get(key);
+            if (value != null) {
+                final double width = LengthParser.parse(value);
+                if (width > 0) {
+                    return width;
+                }
+                Logging.debug("Could not understand {0}={1} on {2}", key, value, way.getPrimitiveId());
+            }
         }
-        return new LatLon(iLatLon);
+        return lanes > 0 ? lanes * LANE_WIDTH : DEFAULT_ROAD_WIDTH;
+    }
+
+    /**
+     * Get the distance from the road way to the left edge of the road
+     *
+     * @param placement The {@code placement} tag (lanes are numbered from the left, in the direction of the way)
+     * @param lanes     The number of lanes, or {@code 0} if it is not known
+     * @param roadWidth The width of the road
+     * @return The distance to the left edge
+     */
+    private static double getLeftWidth(final String placement, final int lanes, final double roadWidth) {
+        final int separator = placement == null ? -1 : placement.indexOf(':');
+        if (separator < 0 || lanes <= 0) {
+            return roadWidth / 2;
+        }
+        final int lane = parseCount(placement.substring(separator + 1));
+        if (lane < 1 || lane > lanes) {
+            return roadWidth / 2;
+        }
+        final double laneWidth = roadWidth / lanes;
+        return switch (placement.substring(0, separator)) {
+        case "left_of" -> (lane - 1) * laneWidth;
+        case "middle_of" -> (lane - 0.5) * laneWidth;
+        case "right_of" -> lane * laneWidth;
+        default -> roadWidth / 2;
+        };
+    }
+
+    private static int getLanes(final IWay<?> way) {
+        final String lanes = way.get("lanes");
+        return lanes == null ? 0 : parseCount(lanes);
+    }
+
+    /**
+     * Parse a small count, like a number of lanes
+     *
+     * @param value The value to parse
+     * @return The count, or {@code 0} if the value is not a count
+     */
+    private static int parseCount(final String value) {
+        if (value.isEmpty() || value.length() > 2) {
+            return 0;
+        }
+        int count = 0;
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return 0;
+            }
+            count = count * 10 + (c - '0');
+        }
+        return count;
+    }
+
+    private static <T> T newInstance(Constructor<T> constructor) {
+        try {
+            return constructor.newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new JosmRuntimeException(e);
+        }
+    }
+
+    /**
+     * A sidewalk created for a road
+     *
+     * @param road     The road the sidewalk was created for
+     * @param side     The side of the road the sidewalk is on
+     * @param sidewalk The sidewalk. Its nodes are in the order of the road for {@link Options#RIGHT}, and in the
+     *                 reverse order for {@link Options#LEFT}.
+     * @param offset   The distance between the road and the sidewalk, in metres
+     */
+    public record ParallelSidewalk(Way road, Options side, Way sidewalk, double offset) {
     }
 
     /**
@@ -0,0 +1,168 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.street_level.data.osm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+
+/**
+ * Remove vertices that do not change the shape of a line by more than a tolerance (Douglas-Peucker). Vertices where
+ * the line turns sharply are always kept, so that corners stay where they are even with a large tolerance.
+ *
+ * @author Taylor Smock
+ */
+public final class PolylineSimplifier {
+    /** Vertices where the line turns by more than this are always kept */
+    private static final double CORNER_ANGLE = Math.toRadians(30);
+
+    private PolylineSimplifier() {
+        // Hide the constructor
+    }
+
+    /**
+     * Simplify generated ways. This changes the node lists of the ways, so it must only be used on ways that are not
+     * in a dataset.
+     *
+     * @param ways      The ways to simplify
+     * @param tolerance The maximum distance in metres between a removed vertex and the simplified line
+     */
+    public static void simplify(Collection<Way> ways, double tolerance) {
+        double[] latLon = new double[0];
+        boolean[] keep = new boolean[0];
+        for (Way way : ways) {
+            final int count = way.getNodesCount();
+            if (count <= 2) {
+                continue;
+            }
+            if (keep.length < count) {
+                latLon = new double[2 * count];
+                keep = new boolean[count];
+            }
+            final List<Node> nodes = way.getNodes();
+            for (int i = 0; i < count; i++) {
+                latLon[2 * i] = nodes.get(i).lat();
+                latLon[2 * i + 1] = nodes.get(i).lon();
+            }
+            final int kept = simplify(latLon, count, tolerance, keep);
+            // Don't collapse small closed ways into a line
+            if (kept < count && (kept >= 4 || !way.isClosed())) {
+                final List<Node> simplified = new ArrayList<>(kept);
+                for (int i = 0; i < count; i++) {
+                    if (keep[i]) {
+                        simplified.add(nodes.get(i));
+                    }
+                }
+                way.setNodes(simplified);
+            }
+        }
+    }
+
+    /**
+     * Find the vertices to keep
+     *
+     * @param latLon    The lat/lon pairs of the line
+     * @param count     The number of vertices
+     * @param tolerance The maximum distance in metres between a removed vertex and the simplified line
+     * @param keep      Set to {@code true} for the vertices to keep. Must have room for {@code count} vertices.
+     * @return The number of vertices to keep
+     */
+    public static int simplify(double[] latLon, int count, double tolerance, boolean[] keep) {
+        if (count <= 2 || !(tolerance > 0)) {
+            Arrays.fill(keep, 0, count, true);
+            return count;
+        }
+        Arrays.fill(keep, 0, count, false);
+        // Work in metres on a plane through the first vertex
+        final double[] xy = new double[2 * count];
+        final double lonScale = Math.cos(Math.toRadians(latLon[0])) * NodeSnapper.METRES_PER_DEGREE;
+        for (int i = 0; i < count; i++) {
+            xy[2 * i] = (latLon[2 * i + 1] - latLon[1]) * lonScale;
+            xy[2 * i + 1] = (latLon[2 * i] - latLon[0]) * NodeSnapper.METRES_PER_DEGREE;
+        }
+        keep[0] = true;
+        keep[count - 1] = true;
+        for (int i = 1; i < count - 1; i++) {
+            keep[i] = isCorner(xy, i);
+        }
+        final double toleranceSquared = tolerance * tolerance;
+        // Pairs of vertex indexes that still need to be simplified, instead of recursing. The pairs never overlap, so
+        // there are fewer pairs than vertices.
+        final int[] stack = new int[2 * count];
+        int top = 0;
+        int start = 0;
+        for (int end = 1; end < count; end++) {
+            if (keep[end]) {
+                if (end - start > 1) {
+                    stack[top++] = start;
+                    stack[top++] = end;
+                }
+                start = end;
+            }
+        }
+        while (top > 0) {
+            final int last = stack[--top];
+            final int first = stack[--top];
+            int farthest = -1;
+            double farthestDistance = toleranceSquared;
+            for (int i = first + 1; i < last; i++) {
+                final double distance = distanceSquared(xy, i, first, last);
+                if (distance > farthestDistance) {
+                    farthest = i;
+                    farthestDistance = distance;
+                }
+            }
+            if (farthest >= 0) {
+                keep[farthest] = true;
+                if (farthest - first > 1) {
+                    stack[top++] = first;
+                    stack[top++] = farthest;
+                }
+                if (last - farthest > 1) {
+                    stack[top++] = farthest;
+                    stack[top++] = last;
+                }
+            }
+        }
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            if (keep[i]) {
+                kept++;
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Check if the line turns sharply at a vertex
+     *
+     * @param xy The projected coordinates
+     * @param i  The vertex, which must have a vertex on either side
+     * @return {@code true} if the vertex is a corner
+     */
+    private static boolean isCorner(double[] xy, int i) {
+        final double ux = xy[2 * i] - xy[2 * i - 2];
+        final double uy = xy[2 * i + 1] - xy[2 * i - 1];
+        final double vx = xy[2 * i + 2] - xy[2 * i];
+        final double vy = xy[2 * i + 3] - xy[2 * i + 1];
+        return Math.atan2(Math.abs(ux * vy - uy * vx), ux * vx + uy * vy) > CORNER_ANGLE;
+    }
+
+    /**
+     * Get the squared distance from a vertex to the segment between two other vertices
+     */
+    private static double distanceSquared(double[] xy, int i, int first, int last) {
+        final double px = xy[2 * i] - xy[2 * first];
+        final double py = xy[2 * i + 1] - xy[2 * first + 1];
+        final double dx = xy[2 * last] - xy[2 * first];
+        final double dy = xy[2 * last + 1] - xy[2 * first + 1];
+        final double lengthSquared = dx * dx + dy * dy;
+        final double t = lengthSquared == 0 ? 0 : Math.max(0, Math.min(1, (px * dx + py * dy) / lengthSquared));
+        final double ex = px - t * dx;
+        final double ey = py - t * dy;
+        return ex * ex + ey * ey;
+    }
+}
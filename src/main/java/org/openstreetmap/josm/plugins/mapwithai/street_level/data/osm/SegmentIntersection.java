@@ -0,0 +1,203 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.street_level.data.osm;
+
+import java.awt.geom.Line2D;
+
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.INode;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.WaySegment;
+import org.openstreetmap.josm.data.projection.ProjectionRegistry;
+import org.openstreetmap.josm.tools.Geometry;
+
+/**
+ * The intersection of a single segment with a way. This is used instead of
+ * {@link Geometry#getDistanceWayWay(Way, Way)} and
+ * {@link Geometry#addIntersections(java.util.List, boolean, java.util.List)}, both of which look at every segment pair
+ * of two ways. Only the newly drawn segment matters when looking for crossings, so we check that segment against each
+ * segment of the way, skipping any segment whose bounds do not overlap.
+ *
+ * @author Taylor Smock
+ */
+public final class SegmentIntersection {
+    /** The tolerance used to detect parallel segments, same as {@link Geometry#getSegmentSegmentIntersection} */
+    private static final double PARALLEL_EPSILON = 1e-12;
+    /** The tolerance used for the segment parameters, same as {@link Geometry#getSegmentSegmentIntersection} */
+    private static final double PARAMETER_EPSILON = 1e-8;
+
+    private final Way way;
+    private final int segmentIndex;
+    private final double east;
+    private final double north;
+    private final boolean unique;
+
+    private SegmentIntersection(Way way, int segmentIndex, double east, double north, boolean unique) {
+        this.way = way;
+        this.segmentIndex = segmentIndex;
+        this.east = east;
+        this.north = north;
+        this.unique = unique;
+    }
+
+    /**
+     * Find where a segment intersects a way
+     *
+     * @param start The start of the segment
+     * @param end   The end of the segment
+     * @param way   The way to check
+     * @return The first intersection, or {@code null} if the segment does not intersect the way
+     */
+    public static SegmentIntersection find(INode start, INode end, Way way) {
+        final EastNorth a = start.getEastNorth();
+        final EastNorth b = end.getEastNorth();
+        if (a == null || b == null) {
+            return null;
+        }
+        final double x1 = a.east();
+        final double y1 = a.north();
+        final double x2 = b.east();
+        final double y2 = b.north();
+        final double minX = Math.min(x1, x2);
+        final double maxX = Math.max(x1, x2);
+        final double minY = Math.min(y1, y2);
+        final double maxY = Math.max(y1, y2);
+
+        int foundIndex = -1;
+        double foundEast = Double.NaN;
+        double foundNorth = Double.NaN;
+        boolean unique = true;
+        EastNorth previous = way.getNodesCount() > 0 ? way.getNode(0).getEastNorth() : null;
+        for (int i = 0; i < way.getNodesCount() - 1; i++) {
+            final EastNorth current = way.getNode(i + 1).getEastNorth();
+            if (previous != null && current != null) {
+                final double x3 = previous.east();
+                final double y3 = previous.north();
+                final double x4 = current.east();
+                final double y4 = current.north();
+                // Cheap bounds check before doing the actual math
+                if (Math.max(x3, x4) >= minX && Math.min(x3, x4) <= maxX && Math.max(y3, y4) >= minY
+                        && Math.min(y3, y4) <= maxY) {
+                    final double u = intersection(x1, y1, x2, y2, x3, y3, x4, y4);
+                    if (!Double.isNaN(u)) {
+                        final double e = x1 + (x2 - x1) * u;
+                        final double n = y1 + (y2 - y1) * u;
+                        if (foundIndex < 0) {
+                            foundIndex = i;
+                            foundEast = e;
+                            foundNorth = n;
+                        } else if (!toLatLon(foundEast, foundNorth).equalsEpsilon(toLatLon(e, n))) {
+                            // Hitting a node of the way will hit both segments at the same location
+                            unique = false;
+                            break;
+                        }
+                    }
+                }
+            }
+            previous = current;
+        }
+        return foundIndex < 0 ? null : new SegmentIntersection(way, foundIndex, foundEast, foundNorth, unique);
+    }
+
+    /**
+     * Get the intersection of two segments. This does the same math as
+     * {@link Geometry#getSegmentSegmentIntersection(EastNorth, EastNorth, EastNorth, EastNorth)}, but does not
+     * allocate.
+     *
+     * @param x1 The east coordinate of the start of the first segment
+     * @param y1 The north coordinate of the start of the first segment
+     * @param x2 The east coordinate of the end of the first segment
+     * @param y2 The north coordinate of the end of the first segment
+     * @param x3 The east coordinate of the start of the second segment
+     * @param y3 The north coordinate of the start of the second segment
+     * @param x4 The east coordinate of the end of the second segment
+     * @param y4 The north coordinate of the end of the second segment
+     * @return The position of the intersection along the first segment ({@code 0} to {@code 1}), or {@link Double#NaN}
+     *         if the segments do not intersect
+     */
+    public static double intersection(double x1, double y1, double x2, double y2, double x3, double y3, double x4,
+            double y4) {
+        if (!Line2D.linesIntersect(x1, y1, x2, y2, x3, y3, x4, y4)) {
+            return Double.NaN;
+        }
+        // Solve (x1, y1) + (x2 - x1, y2 - y1) * u = (x3, y3) + (x4 - x3, y4 - y3) * v
+        final double a1 = x2 - x1;
+        final double b1 = x3 - x4;
+        final double c1 = x3 - x1;
+        final double a2 = y2 - y1;
+        final double b2 = y3 - y4;
+        final double c2 = y3 - y1;
+        final double det = a1 * b2 - a2 * b1;
+        final double uu = b2 * c1 - b1 * c2;
+        final double vv = a1 * c2 - a2 * c1;
+        final double mag = Math.abs(uu) + Math.abs(vv);
+        if (Math.abs(det) > PARALLEL_EPSILON * mag) {
+            final double u = uu / det;
+            final double v = vv / det;
+            if (u > -PARAMETER_EPSILON && u < 1 + PARAMETER_EPSILON && v > -PARAMETER_EPSILON
+                    && v < 1 + PARAMETER_EPSILON) {
+                return Math.max(0, Math.min(1, u));
+            }
+        }
+        // Parallel or no intersection
+        return Double.NaN;
+    }
+
+    private static LatLon toLatLon(double east, double north) {
+        return ProjectionRegistry.getProjection().eastNorth2latlon(new EastNorth(east, north));
+    }
+
+    /**
+     * Get the way that was intersected
+     *
+     * @return The way
+     */
+    public Way getWay() {
+        return this.way;
+    }
+
+    /**
+     * Get the index of the first intersected segment in the way
+     *
+     * @return The segment index (the index of the first node of the segment)
+     */
+    public int getSegmentIndex() {
+        return this.segmentIndex;
+    }
+
+    /**
+     * Get the intersected segment
+     *
+     * @return The segment of the way that was intersected
+     */
+    public WaySegment getSegment() {
+        return new WaySegment(this.way, this.segmentIndex);
+    }
+
+    /**
+     * Get the location of the intersection
+     *
+     * @return The intersection location
+     */
+    public EastNorth getEastNorth() {
+        return new EastNorth(this.east, this.north);
+    }
+
+    /**
+     * Get the location of the intersection
+     *
+     * @return The intersection location
+     */
+    public LatLon getLatLon() {
+        return toLatLon(this.east, this.north);
+    }
+
+    /**
+     * Check if this is the only place where the segment intersects the way
+     *
+     * @return {@code true} if the segment only intersects the way at one location
+     */
+    public boolean isUnique() {
+        return this.unique;
+    }
+}
@@ -0,0 +1,281 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.street_level.data.osm;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.openstreetmap.josm.command.Command;
+import org.openstreetmap.josm.command.MoveCommand;
+import org.openstreetmap.josm.command.SequenceCommand;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataSetListener;
+import org.openstreetmap.josm.data.osm.event.NodeMovedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesAddedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesRemovedEvent;
+import org.openstreetmap.josm.data.osm.event.RelationMembersChangedEvent;
+import org.openstreetmap.josm.data.osm.event.TagsChangedEvent;
+import org.openstreetmap.josm.data.osm.event.WayNodesChangedEvent;
+import org.openstreetmap.josm.tools.Geometry;
+
+/**
+ * The links between roads and the sidewalks that were generated for them. When a node of a linked road is moved, the
+ * vertices of the sidewalks next to it are marked as stale, and {@link #createUpdateCommand()} moves just those
+ * vertices instead of generating the sidewalks again.
+ * <p>
+ * Links are kept while the road or the sidewalk is deleted (so that undo and redo keep working), but are ignored
+ * while either is not in the dataset or while the sidewalk no longer has a node for every road node.
+ *
+ * @author Taylor Smock
+ */
+public final class SidewalkLinks implements DataSetListener {
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    /** The sidewalks for each road */
+    private final Map<Way, List<ParallelSidewalkCreation.ParallelSidewalk>> sidewalks = new HashMap<>();
+    /** The road node indexes that have moved since the last update, for each road */
+    private final Map<Way, BitSet> moved = new HashMap<>();
+
+    private SidewalkLinks() {
+        // Use getLinks
+    }
+
+    /**
+     * Get the links for a dataset, creating them if they do not yet exist
+     *
+     * @param dataSet The dataset to get the links for
+     * @return The links, which will be kept up to date with changes to the dataset
+     */
+    public static SidewalkLinks getLinks(DataSet dataSet) {
+        return DataSetIndexes.get(dataSet, SidewalkLinks.class, SidewalkLinks::new);
+    }
+
+    /**
+     * Stop tracking a dataset
+     *
+     * @param dataSet The dataset to stop tracking
+     */
+    public static void removeLinks(DataSet dataSet) {
+        DataSetIndexes.remove(dataSet, SidewalkLinks.class);
+    }
+
+    /**
+     * Link a generated sidewalk to its road
+     *
+     * @param sidewalk The generated sidewalk. The road and the sidewalk must be the ones in the dataset.
+     */
+    public void link(ParallelSidewalkCreation.ParallelSidewalk sidewalk) {
+        this.lock.writeLock().lock();
+        try {
+            final var list = this.sidewalks.computeIfAbsent(sidewalk.road(), road -> new ArrayList<>(2));
+            list.removeIf(other -> other.side() == sidewalk.side());
+            list.add(sidewalk);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Get the sidewalks that were generated for a road
+     *
+     * @param road The road
+     * @return The sidewalks that are still linked to the road
+     */
+    public List<Way> getSidewalks(Way road) {
+        this.lock.readLock().lock();
+        try {
+            final var list = this.sidewalks.get(road);
+            if (list == null) {
+                return List.of();
+            }
+            return list.stream().filter(SidewalkLinks::isValid).map(ParallelSidewalkCreation.ParallelSidewalk::sidewalk)
+                    .toList();
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Check if any linked road has moved since the last update
+     *
+     * @return {@code true} if {@link #createUpdateCommand()} may have something to do
+     */
+    public boolean hasMovedRoads() {
+        this.lock.readLock().lock();
+        try {
+            return !this.moved.isEmpty();
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Create a command that moves the sidewalk vertices next to the road nodes that have moved since the last update.
+     * Call this while holding the dataset read lock.
+     *
+     * @return The command, or {@code null} if no sidewalk needs to be updated
+     */
+    public Command createUpdateCommand() {
+        final Map<Way, BitSet> movedRoads;
+        this.lock.writeLock().lock();
+        try {
+            movedRoads = new HashMap<>(this.moved);
+            this.moved.clear();
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+        final List<Command> commands = new ArrayList<>();
+        final Set<Node> movedNodes = new HashSet<>();
+        this.lock.readLock().lock();
+        try {
+            for (Map.Entry<Way, BitSet> entry : movedRoads.entrySet()) {
+                final Way road = entry.getKey();
+                final List<ParallelSidewalkCreation.ParallelSidewalk> list = this.sidewalks.get(road);
+                if (list == null || road.getDataSet() == null || !road.isUsable()) {
+                    continue;
+                }
+                final int count = road.getNodesCount();
+                final BitSet affected = getAffected(entry.getValue(), count, road.isClosed());
+                final double[] latLon = new double[2 * count];
+                final double[] eastNorth = new double[2 * count];
+                OffsetKernel.project(road.getNodes(), latLon, eastNorth);
+                for (ParallelSidewalkCreation.ParallelSidewalk sidewalk : list) {
+                    if (isValid(sidewalk)) {
+                        addMoveCommands(sidewalk, affected, eastNorth, commands, movedNodes);
+                    }
+                }
+            }
+        } finally {
+            this.lock.readLock().unlock();
+        }
+        if (commands.isEmpty()) {
+            return null;
+        }
+        return new SequenceCommand(tr("Update parallel sidewalks"), commands);
+    }
+
+    /**
+     * Get the road vertices whose offset depends on the moved vertices: the moved vertices and their neighbours
+     *
+     * @param moved  The moved road node indexes
+     * @param count  The number of road nodes
+     * @param closed {@code true} if the road is closed
+     * @return The road node indexes to offset again
+     */
+    private static BitSet getAffected(BitSet moved, int count, boolean closed) {
+        final var affected = new BitSet(count);
+        for (int i = moved.nextSetBit(0); i >= 0 && i < count; i = moved.nextSetBit(i + 1)) {
+            affected.set(Math.max(0, i - 1), Math.min(count, i + 2));
+            if (closed && (i == 0 || i == count - 1)) {
+                // The first and last nodes are the same; their neighbours are the second and second to last nodes
+                affected.set(0);
+                affected.set(1);
+                affected.set(count - 2);
+                affected.set(count - 1);
+            }
+        }
+        return affected;
+    }
+
+    private static void addMoveCommands(ParallelSidewalkCreation.ParallelSidewalk sidewalk, BitSet affected,
+            double[] eastNorth, List<Command> commands, Set<Node> movedNodes) {
+        final Way road = sidewalk.road();
+        final int count = road.getNodesCount();
+        final boolean reverse = sidewalk.side() == ParallelSidewalkCreation.Options.LEFT;
+        for (int vertex = affected.nextSetBit(0); vertex >= 0; vertex = affected.nextSetBit(vertex + 1)) {
+            final int i = reverse ? count - 1 - vertex : vertex;
+            final double angle = OffsetKernel.headingAt(eastNorth, count, road.isClosed(), reverse, i);
+            final var target = Geometry.getLatLonFrom(road.getNode(vertex), angle, sidewalk.offset());
+            final Node node = sidewalk.sidewalk().getNode(i);
+            // Nodes that were snapped to an existing footway belong to that footway too, so leave them alone
+            if (node.isReferredByWays(2)) {
+                continue;
+            }
+            // Closed sidewalks share the first and last node
+            if (!node.equalsEpsilon(target) && movedNodes.add(node)) {
+                commands.add(new MoveCommand(node, target));
+            }
+        }
+    }
+
+    private static boolean isValid(ParallelSidewalkCreation.ParallelSidewalk sidewalk) {
+        final Way way = sidewalk.sidewalk();
+        // The sidewalk must still be in the same dataset as its road
+        return way.getDataSet() != null && way.getDataSet() == sidewalk.road().getDataSet() && way.isUsable()
+                && way.getNodesCount() == sidewalk.road().getNodesCount();
+    }
+
+    @Override
+    public void primitivesAdded(PrimitivesAddedEvent event) {
+        // Links are added explicitly
+    }
+
+    @Override
+    public void primitivesRemoved(PrimitivesRemovedEvent event) {
+        // Keep the links for undo; they are checked when they are used
+    }
+
+    @Override
+    public void tagsChanged(TagsChangedEvent event) {
+        // Only the geometry is tracked
+    }
+
+    @Override
+    public void nodeMoved(NodeMovedEvent event) {
+        final Node node = event.getNode();
+        this.lock.writeLock().lock();
+        try {
+            if (this.sidewalks.isEmpty()) {
+                return;
+            }
+            for (Way road : node.getParentWays()) {
+                if (this.sidewalks.containsKey(road)) {
+                    final BitSet indexes = this.moved.computeIfAbsent(road, ignored -> new BitSet());
+                    for (int i = 0; i < road.getNodesCount(); i++) {
+                        if (node.equals(road.getNode(i))) {
+                            indexes.set(i);
+                        }
+                    }
+                }
+            }
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void wayNodesChanged(WayNodesChangedEvent event) {
+        // Sidewalks without a node for every road node are ignored when they are used
+    }
+
+    @Override
+    public void relationMembersChanged(RelationMembersChangedEvent event) {
+        // Relations are not tracked
+    }
+
+    @Override
+    public void otherDatasetChange(AbstractDatasetChangedEvent event) {
+        // Nothing that moves nodes
+    }
+
+    @Override
+    public void dataChanged(DataChangedEvent event) {
+        if (event.getEvents() != null) {
+            for (AbstractDatasetChangedEvent child : event.getEvents()) {
+                child.fire(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,332 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.street_level.data.osm;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.projection.ProjectionRegistry;
+
+/**
+ * Create continuous sidewalks for a road network. Connected road ways with the same {@code highway} tag and width are
+ * chained together and offset once, instead of once per way. Chains are split at junctions, and at each junction the
+ * sidewalks of neighbouring roads are trimmed (or extended) to meet at a single corner node.
+ *
+ * @author Taylor Smock
+ */
+public final class SidewalkNetwork {
+    /** The furthest a sidewalk end is extended to meet the sidewalk of the next road at a junction, in metres */
+    private static final double MAX_JOIN_EXTENSION = 10;
+    /** Parallel sidewalk ends (e.g. where a road changes width) are joined if they are at most this far apart */
+    private static final double PARALLEL_JOIN_DISTANCE = 0.5;
+    /** Offsets closer than this (in metres) are considered to be the same */
+    private static final double OFFSET_EPSILON = 1e-6;
+
+    private SidewalkNetwork() {
+        // Hide the constructor
+    }
+
+    /**
+     * Create sidewalks on both sides of a road network. This should be called while holding the dataset read lock.
+     *
+     * @param roads The roads to create sidewalks for
+     * @return The new sidewalks (untagged and not in a dataset). Sidewalks that meet at a junction share a node.
+     */
+    public static List<Way> createSidewalks(Collection<Way> roads) {
+        final List<RoadChain> chains = chain(roads);
+        final List<Way> sidewalks = new ArrayList<>(2 * chains.size());
+        final Map<Node, List<Arm>> arms = new HashMap<>();
+        for (RoadChain chain : chains) {
+            final List<Node> nodes = chain.nodes();
+            final int count = nodes.size();
+            final boolean closed = chain.isClosed();
+            final Way right = ParallelSidewalkCreation.createWay(
+                    OffsetKernel.offset(nodes, closed, false, chain.rightOffset()), count, Node::new, Way::new);
+            final Way left = ParallelSidewalkCreation.createWay(
+                    OffsetKernel.offset(nodes, closed, true, chain.leftOffset()), count, Node::new, Way::new);
+            sidewalks.add(right);
+            sidewalks.add(left);
+            if (!closed) {
+                final int last = count - 1;
+                // The left sidewalk is walked backwards, so its first node is at the end of the chain
+                addArm(arms, nodes.get(0), nodes.get(1), new End(right, 0, 1), new End(left, last, last - 1));
+                addArm(arms, nodes.get(last), nodes.get(last - 1), new End(left, 0, 1),
+                        new End(right, last, last - 1));
+            }
+        }
+        for (List<Arm> junction : arms.values()) {
+            if (junction.size() > 1) {
+                join(junction);
+            }
+        }
+        return sidewalks;
+    }
+
+    /**
+     * Chain connected roads together
+     *
+     * @param roads The roads to chain
+     * @return The chains. Every usable road is in at least one chain; roads that pass through a junction are split.
+     */
+    static List<RoadChain> chain(Collection<Way> roads) {
+        final List<Way> usable = roads.stream().filter(way -> way.isUsable() && way.getNodesCount() >= 2).distinct()
+                .toList();
+        // The number of road ends at a node; a road passing through a node counts twice
+        final Map<Node, Integer> degree = new HashMap<>();
+        for (Way way : usable) {
+            final int last = way.getNodesCount() - 1;
+            for (int i = 0; i <= last; i++) {
+                degree.merge(way.getNode(i), i == 0 || i == last ? 1 : 2, Integer::sum);
+            }
+        }
+        // Split the roads at junctions
+        final List<Piece> pieces = new ArrayList<>();
+        final Map<Node, List<Piece>> ends = new HashMap<>();
+        for (Way way : usable) {
+            final int last = way.getNodesCount() - 1;
+            int start = 0;
+            for (int i = 1; i <= last; i++) {
+                if (i == last || degree.get(way.getNode(i)) >= 3) {
+                    final var piece = new Piece(way, start, i);
+                    pieces.add(piece);
+                    ends.computeIfAbsent(piece.first(), node -> new ArrayList<>(2)).add(piece);
+                    ends.computeIfAbsent(piece.last(), node -> new ArrayList<>(2)).add(piece);
+                    start = i;
+                }
+            }
+        }
+        final Set<Piece> used = new HashSet<>(pieces.size());
+        final List<RoadChain> chains = new ArrayList<>();
+        for (Piece piece : pieces) {
+            if (used.add(piece)) {
+                final Deque<Step> steps = new ArrayDeque<>();
+                steps.add(new Step(piece, false));
+                Step next;
+                while ((next = getNext(steps.getLast(), true, degree, ends, used)) != null) {
+                    steps.addLast(next);
+                }
+                while ((next = getNext(steps.getFirst(), false, degree, ends, used)) != null) {
+                    steps.addFirst(next);
+                }
+                chains.add(toChain(steps));
+            }
+        }
+        return chains;
+    }
+
+    /**
+     * Get the piece that continues a chain
+     *
+     * @param step    The step at the end of the chain
+     * @param forward {@code true} to continue past the end of the chain, {@code false} to continue before the start
+     * @param degree  The degree of each node
+     * @param ends    The pieces that end at each node
+     * @param used    The pieces that are already in a chain; the next piece is added to this
+     * @return The next step, or {@code null} if the chain ends here
+     */
+    private static Step getNext(Step step, boolean forward, Map<Node, Integer> degree, Map<Node, List<Piece>> ends,
+            Set<Piece> used) {
+        final Node node = forward ? step.last() : step.first();
+        final List<Piece> candidates = ends.get(node);
+        if (degree.get(node) != 2 || candidates.size() != 2) {
+            return null;
+        }
+        final Piece other = candidates.get(0).equals(step.piece()) ? candidates.get(1) : candidates.get(0);
+        if (used.contains(other)) {
+            return null;
+        }
+        // Walking forward, the next piece should start at the node
+        final boolean reversed = forward != other.first().equals(node);
+        final var next = new Step(other, reversed);
+        if (!isCompatible(step, next)) {
+            return null;
+        }
+        used.add(other);
+        return next;
+    }
+
+    private static boolean isCompatible(Step first, Step second) {
+        return Objects.equals(first.piece().way().get("highway"), second.piece().way().get("highway"))
+                && Math.abs(first.rightOffset() - second.rightOffset()) < OFFSET_EPSILON
+                && Math.abs(first.leftOffset() - second.leftOffset()) < OFFSET_EPSILON;
+    }
+
+    private static RoadChain toChain(Collection<Step> steps) {
+        final var ways = new LinkedHashSet<Way>();
+        final var nodes = new ArrayList<Node>();
+        for (Step step : steps) {
+            ways.add(step.piece().way());
+            final Piece piece = step.piece();
+            final int length = piece.to() - piece.from();
+            // Consecutive steps share a node
+            for (int i = nodes.isEmpty() ? 0 : 1; i <= length; i++) {
+                nodes.add(piece.way().getNode(step.reversed() ? piece.to() - i : piece.from() + i));
+            }
+        }
+        final Step first = steps.iterator().next();
+        return new RoadChain(List.copyOf(ways), nodes, first.rightOffset(), first.leftOffset());
+    }
+
+    private static void addArm(Map<Node, List<Arm>> arms, Node junction, Node next, End right, End left) {
+        final double heading = junction.getEastNorth().heading(next.getEastNorth());
+        arms.computeIfAbsent(junction, node -> new ArrayList<>(4)).add(new Arm(heading, right, left));
+    }
+
+    /**
+     * Join the sidewalks at a junction. Going clockwise around the junction, the sidewalk on the right of one road
+     * meets the sidewalk on the left of the next road.
+     *
+     * @param arms The roads that leave the junction
+     */
+    private static void join(List<Arm> arms) {
+        arms.sort(Comparator.comparingDouble(Arm::heading));
+        for (int i = 0; i < arms.size(); i++) {
+            joinEnds(arms.get(i).right(), arms.get((i + 1) % arms.size()).left());
+        }
+    }
+
+    /**
+     * Move the ends of two sidewalks to where their end segments cross, and make them share a node
+     *
+     * @param first  The end of the first sidewalk
+     * @param second The end of the second sidewalk
+     */
+    private static void joinEnds(End first, End second) {
+        final Node firstEnd = first.way().getNode(first.index());
+        final Node secondEnd = second.way().getNode(second.index());
+        final EastNorth a0 = firstEnd.getEastNorth();
+        final EastNorth a1 = first.way().getNode(first.next()).getEastNorth();
+        final EastNorth b0 = secondEnd.getEastNorth();
+        final EastNorth b1 = second.way().getNode(second.next()).getEastNorth();
+        final double firstEast = a1.east() - a0.east();
+        final double firstNorth = a1.north() - a0.north();
+        final double secondEast = b1.east() - b0.east();
+        final double secondNorth = b1.north() - b0.north();
+        final double betweenEast = b0.east() - a0.east();
+        final double betweenNorth = b0.north() - a0.north();
+        final double denominator = firstEast * secondNorth - firstNorth * secondEast;
+        final EastNorth corner;
+        if (Math.abs(denominator) <= 1e-9 * Math.hypot(firstEast, firstNorth) * Math.hypot(secondEast, secondNorth)) {
+            corner = a0.getCenter(b0);
+            if (firstEnd.greatCircleDistance(toLatLon(corner)) > PARALLEL_JOIN_DISTANCE) {
+                return;
+            }
+        } else {
+            final double t = (betweenEast * secondNorth - betweenNorth * secondEast) / denominator;
+            final double u = (betweenEast * firstNorth - betweenNorth * firstEast) / denominator;
+            // Past the next vertex, trimming would remove a whole segment
+            if (t >= 1 || u >= 1) {
+                return;
+            }
+            corner = new EastNorth(a0.east() + t * firstEast, a0.north() + t * firstNorth);
+            final var latLon = toLatLon(corner);
+            if (firstEnd.greatCircleDistance(latLon) > MAX_JOIN_EXTENSION
+                    || secondEnd.greatCircleDistance(latLon) > MAX_JOIN_EXTENSION) {
+                return;
+            }
+        }
+        firstEnd.setCoor(toLatLon(corner));
+        final List<Node> nodes = second.way().getNodes();
+        nodes.set(second.index(), firstEnd);
+        second.way().setNodes(nodes);
+    }
+
+    private static LatLon toLatLon(EastNorth eastNorth) {
+        return ProjectionRegistry.getProjection().eastNorth2latlon(eastNorth);
+    }
+
+    /**
+     * Connected roads that are offset together
+     *
+     * @param ways        The roads in the chain
+     * @param nodes       The nodes of the chain, in order
+     * @param rightOffset The distance to the sidewalk on the right of the chain
+     * @param leftOffset  The distance to the sidewalk on the left of the chain
+     */
+    record RoadChain(List<Way> ways, List<Node> nodes, double rightOffset, double leftOffset) {
+        /**
+         * Check if the chain is a loop
+         *
+         * @return {@code true} if the chain starts and ends at the same node
+         */
+        boolean isClosed() {
+            return this.nodes.size() > 2 && this.nodes.get(0).equals(this.nodes.get(this.nodes.size() - 1));
+        }
+    }
+
+    /**
+     * The part of a road between two junctions (or road ends)
+     *
+     * @param way  The road
+     * @param from The index of the first node
+     * @param to   The index of the last node
+     */
+    private record Piece(Way way, int from, int to) {
+        Node first() {
+            return this.way.getNode(this.from);
+        }
+
+        Node last() {
+            return this.way.getNode(this.to);
+        }
+    }
+
+    /**
+     * A piece in a chain
+     *
+     * @param piece    The piece
+     * @param reversed {@code true} if the chain goes against the direction of the road
+     */
+    private record Step(Piece piece, boolean reversed) {
+        Node first() {
+            return this.reversed ? this.piece.last() : this.piece.first();
+        }
+
+        Node last() {
+            return this.reversed ? this.piece.first() : this.piece.last();
+        }
+
+        double rightOffset() {
+            return ParallelSidewalkCreation.getOffset(this.piece.way(),
+                    this.reversed ? ParallelSidewalkCreation.Options.LEFT : ParallelSidewalkCreation.Options.RIGHT);
+        }
+
+        double leftOffset() {
+            return ParallelSidewalkCreation.getOffset(this.piece.way(),
+                    this.reversed ? ParallelSidewalkCreation.Options.RIGHT : ParallelSidewalkCreation.Options.LEFT);
+        }
+    }
+
+    /**
+     * The end of a sidewalk at a junction
+     *
+     * @param way   The sidewalk
+     * @param index The index of the node at the junction
+     * @param next  The index of the node next to it
+     */
+    private record End(Way way, int index, int next) {
+    }
+
+    /**
+     * A road chain that leaves a junction
+     *
+     * @param heading The direction the chain leaves the junction in
+     * @param right   The end of the sidewalk on the right, walking away from the junction
+     * @param left    The end of the sidewalk on the left, walking away from the junction
+     */
+    private record Arm(double heading, End right, End left) {
+    }
+}
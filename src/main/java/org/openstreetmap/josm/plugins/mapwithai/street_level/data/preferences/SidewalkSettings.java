@@ -0,0 +1,219 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.street_level.data.preferences;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.spi.preferences.IPreferences;
+import org.openstreetmap.josm.spi.preferences.PreferenceChangeEvent;
+import org.openstreetmap.josm.spi.preferences.PreferenceChangedListener;
+
+/**
+ * An immutable snapshot of the {@code sidewalk.*} preferences. The snapshot is only rebuilt when one of those
+ * preferences changes, so callers on hot paths don't have to parse preferences or build maps.
+ *
+ * @author Taylor Smock
+ */
+public final class SidewalkSettings {
+    private static final String PREFIX = "sidewalk.";
+    private static final String CROSSING_MAX_LENGTH = "sidewalk.crossing.maxlength";
+    private static final String CROSSING_KERB = "sidewalk.crossing.kerb";
+    private static final String CROSSING_KERB_TAGS = "sidewalk.crossing.kerb.tags";
+    private static final String CROSSING_NODE_MAX_DISTANCE = "sidewalk.crossing.node.maxdistance";
+    private static final String CROSSING_NODE_DUPE_DISTANCE = "sidewalk.crossing.node.dupedistance";
+    private static final String CROSSING_SYNC = "sidewalk.crossing.sync";
+    private static final String CROSSING_SYNC_COALESCE = "sidewalk.crossing.sync.coalesce";
+    private static final String LATENCY_ENABLED = "sidewalk.latency.enabled";
+    private static final String PARALLEL_BATCH = "sidewalk.parallel.batch";
+    private static final String PARALLEL_CHAIN = "sidewalk.parallel.chain";
+    private static final String PARALLEL_SIMPLIFY_DISTANCE = "sidewalk.parallel.simplifydistance";
+    private static final String PARALLEL_SNAP_DISTANCE = "sidewalk.parallel.snapdistance";
+
+    private static final PreferenceChangedListener LISTENER = SidewalkSettings::preferenceChanged;
+    /** The preferences the current snapshot was read from */
+    private static volatile IPreferences preferences;
+    private static volatile SidewalkSettings current;
+
+    private final int crossingMaxLength;
+    private final boolean crossingKerb;
+    private final Map<String, String> crossingKerbTags;
+    private final double crossingNodeMaxDistance;
+    private final double crossingNodeDupeDistance;
+    private final boolean crossingSync;
+    private final boolean crossingSyncCoalesce;
+    private final boolean latencyEnabled;
+    private final boolean parallelBatch;
+    private final boolean parallelChain;
+    private final double parallelSimplifyDistance;
+    private final double parallelSnapDistance;
+
+    private SidewalkSettings(IPreferences pref) {
+        this.crossingMaxLength = pref.getInt(CROSSING_MAX_LENGTH, 30);
+        this.crossingKerb = pref.getBoolean(CROSSING_KERB, true);
+        final var kerbTags = new TreeMap<String, String>();
+        for (Map<String, String> map : pref.getListOfMaps(CROSSING_KERB_TAGS)) {
+            kerbTags.putAll(map);
+        }
+        kerbTags.putIfAbsent("barrier", "kerb");
+        this.crossingKerbTags = Collections.unmodifiableMap(kerbTags);
+        this.crossingNodeMaxDistance = pref.getDouble(CROSSING_NODE_MAX_DISTANCE, 6);
+        this.crossingNodeDupeDistance = pref.getDouble(CROSSING_NODE_DUPE_DISTANCE, 1);
+        this.crossingSync = pref.getBoolean(CROSSING_SYNC, true);
+        this.crossingSyncCoalesce = pref.getBoolean(CROSSING_SYNC_COALESCE, false);
+        this.latencyEnabled = pref.getBoolean(LATENCY_ENABLED, false);
+        this.parallelBatch = pref.getBoolean(PARALLEL_BATCH, false);
+        this.parallelChain = pref.getBoolean(PARALLEL_CHAIN, false);
+        this.parallelSimplifyDistance = pref.getDouble(PARALLEL_SIMPLIFY_DISTANCE, 0);
+        this.parallelSnapDistance = pref.getDouble(PARALLEL_SNAP_DISTANCE, 0.5);
+    }
+
+    /**
+     * Get the current settings
+     *
+     * @return The current settings
+     */
+    public static SidewalkSettings get() {
+        final var settings = current;
+        if (settings != null && preferences == Config.getPref()) {
+            return settings;
+        }
+        return reload();
+    }
+
+    /**
+     * Reload the settings, moving the change listener if the preference instance has changed
+     *
+     * @return The new settings
+     */
+    private static synchronized SidewalkSettings reload() {
+        final var pref = Config.getPref();
+        if (pref != preferences) {
+            if (preferences != null) {
+                preferences.removePreferenceChangeListener(LISTENER);
+            }
+            pref.addPreferenceChangeListener(LISTENER);
+            preferences = pref;
+        }
+        final var settings = new SidewalkSettings(pref);
+        current = settings;
+        return settings;
+    }
+
+    private static void preferenceChanged(PreferenceChangeEvent event) {
+        if (event.getKey() != null && event.getKey().startsWith(PREFIX)) {
+            reload();
+        }
+    }
+
+    /**
+     * Get the maximum length of a drawn segment that will be turned into a crossing way
+     *
+     * @return The maximum length in meters ({@code sidewalk.crossing.maxlength})
+     */
+    public int getCrossingMaxLength() {
+        return this.crossingMaxLength;
+    }
+
+    /**
+     * Check if kerb nodes should be tagged
+     *
+     * @return {@code true} if kerb nodes should be tagged ({@code sidewalk.crossing.kerb})
+     */
+    public boolean isCrossingKerb() {
+        return this.crossingKerb;
+    }
+
+    /**
+     * Get the tags to add to kerb nodes
+     *
+     * @return The unmodifiable kerb tags, always including a {@code barrier} tag
+     *         ({@code sidewalk.crossing.kerb.tags})
+     */
+    public Map<String, String> getCrossingKerbTags() {
+        return this.crossingKerbTags;
+    }
+
+    /**
+     * Get the maximum distance to look for an existing crossing node
+     *
+     * @return The distance in meters ({@code sidewalk.crossing.node.maxdistance})
+     */
+    public double getCrossingNodeMaxDistance() {
+        return this.crossingNodeMaxDistance;
+    }
+
+    /**
+     * Get the maximum distance to look for an existing untagged node to use as a crossing node
+     *
+     * @return The distance in meters ({@code sidewalk.crossing.node.dupedistance})
+     */
+    public double getCrossingNodeDupeDistance() {
+        return this.crossingNodeDupeDistance;
+    }
+
+    /**
+     * Check if crossing way and crossing node tags should be synchronized
+     *
+     * @return {@code true} if tags should be synchronized ({@code sidewalk.crossing.sync})
+     */
+    public boolean isCrossingSync() {
+        return this.crossingSync;
+    }
+
+    /**
+     * Check if crossing tags changed during one event should be synchronized with a single command
+     *
+     * @return {@code true} if synchronization should be coalesced ({@code sidewalk.crossing.sync.coalesce})
+     */
+    public boolean isCrossingSyncCoalesce() {
+        return this.crossingSyncCoalesce;
+    }
+
+    /**
+     * Check if latency statistics should be recorded
+     *
+     * @return {@code true} if latency statistics should be recorded ({@code sidewalk.latency.enabled})
+     */
+    public boolean isLatencyEnabled() {
+        return this.latencyEnabled;
+    }
+
+    /**
+     * Check if parallel sidewalks should be offset in a single batch
+     *
+     * @return {@code true} if the vertices of every road should be offset at once ({@code sidewalk.parallel.batch})
+     */
+    public boolean isParallelBatch() {
+        return this.parallelBatch;
+    }
+
+    /**
+     * Check if connected roads should get continuous sidewalks
+     *
+     * @return {@code true} if connected roads should be chained, with the sidewalks joined at junctions
+     *         ({@code sidewalk.parallel.chain})
+     */
+    public boolean isParallelChain() {
+        return this.parallelChain;
+    }
+
+    /**
+     * Get the maximum distance between a parallel sidewalk and the vertices that are removed from it
+     *
+     * @return The distance in meters, {@code 0} to keep every vertex ({@code sidewalk.parallel.simplifydistance})
+     */
+    public double getParallelSimplifyDistance() {
+        return this.parallelSimplifyDistance;
+    }
+
+    /**
+     * Get the maximum distance to look for an existing footway node to use instead of a new parallel sidewalk node
+     *
+     * @return The distance in meters, {@code 0} to never reuse nodes ({@code sidewalk.parallel.snapdistance})
+     */
+    public double getParallelSnapDistance() {
+        return this.parallelSnapDistance;
+    }
+}
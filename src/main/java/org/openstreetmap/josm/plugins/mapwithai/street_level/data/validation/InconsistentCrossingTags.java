@@ -0,0 +1,89 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.street_level.data.validation;
+
+import static org.openstreetmap.josm.tools.I18n.marktr;
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.validation.Severity;
+import org.openstreetmap.josm.data.validation.Test;
+import org.openstreetmap.josm.data.validation.TestError;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+import org.openstreetmap.josm.plugins.mapwithai.street_level.data.CrossingConsistency;
+import org.openstreetmap.josm.plugins.mapwithai.street_level.data.osm.CrossingLinkIndex;
+
+/**
+ * Find crossing nodes and crossing ways with different crossing tags. The crossing nodes are collected while the
+ * validator visits the data, and are checked in parallel at the end.
+ *
+ * @author Taylor Smock
+ */
+public class InconsistentCrossingTags extends Test {
+    private static final int MISSING_TAGS = 7_354_001;
+    private static final int CONFLICTING_TAGS = 7_354_002;
+
+    private final Set<Node> crossingNodes = new LinkedHashSet<>();
+
+    /**
+     * Create a new test
+     */
+    public InconsistentCrossingTags() {
+        super(tr("Crossing tags"), tr("Checks that crossing nodes and crossing ways have the same crossing tags"));
+    }
+
+    @Override
+    public void startTest(ProgressMonitor progressMonitor) {
+        super.startTest(progressMonitor);
+        this.crossingNodes.clear();
+    }
+
+    @Override
+    public void visit(Node n) {
+        if (CrossingLinkIndex.isCrossingNode(n)) {
+            this.crossingNodes.add(n);
+        }
+    }
+
+    @Override
+    public void visit(Way w) {
+        // Only the way may be selected for validation
+        if (CrossingLinkIndex.isCrossingWay(w)) {
+            for (Node node : w.getNodes()) {
+                if (CrossingLinkIndex.isCrossingNode(node)) {
+                    this.crossingNodes.add(node);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void endTest() {
+        for (CrossingConsistency.Mismatch mismatch : CrossingConsistency.scan(this.crossingNodes)) {
+            if (mismatch.isFixable()) {
+                final var missing = new TreeSet<>(mismatch.nodeMissing().keySet());
+                missing.addAll(mismatch.wayMissing().keySet());
+                final Node node = mismatch.node();
+                this.errors.add(TestError.builder(this, Severity.WARNING, MISSING_TAGS)
+                        .message(tr("Crossing tags are missing on the crossing node or way"),
+                                marktr("Missing: {0}"), String.join(", ", missing))
+                        .primitives(node, mismatch.way())
+                        .fix(() -> CrossingConsistency.createFixCommand(CrossingConsistency.scan(List.of(node))))
+                        .build());
+            }
+            if (!mismatch.conflicts().isEmpty()) {
+                this.errors.add(TestError.builder(this, Severity.WARNING, CONFLICTING_TAGS)
+                        .message(tr("Crossing node and way have different crossing tags"), marktr("Different: {0}"),
+                                String.join(", ", mismatch.conflicts()))
+                        .primitives(mismatch.node(), mismatch.way()).build());
+            }
+        }
+        this.crossingNodes.clear();
+        super.endTest();
+    }
+}
@@ -0,0 +1,134 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.street_level.tools;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of latencies. Values are stored in log-linear buckets (16 buckets per power of two), so
+ * percentiles are accurate to about 6%. Recording a value is a couple of atomic increments, and never allocates.
+ *
+ * @author Taylor Smock
+ */
+public final class LatencyHistogram {
+    /** The number of bits used for the linear buckets in each power of two */
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record a value
+     *
+     * @param nanos The latency in nanoseconds. Negative values are ignored.
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            return;
+        }
+        this.counts.incrementAndGet(bucket(nanos));
+        this.count.incrementAndGet();
+        this.total.addAndGet(nanos);
+        this.max.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Get the number of recorded values
+     *
+     * @return The count
+     */
+    public long getCount() {
+        return this.count.get();
+    }
+
+    /**
+     * Get the largest recorded value
+     *
+     * @return The maximum latency in nanoseconds
+     */
+    public long getMax() {
+        return this.max.get();
+    }
+
+    /**
+     * Get the mean of the recorded values
+     *
+     * @return The mean latency in nanoseconds, or {@code 0} if nothing has been recorded
+     */
+    public long getMean() {
+        final long currentCount = this.count.get();
+        return currentCount == 0 ? 0 : this.total.get() / currentCount;
+    }
+
+    /**
+     * Get a percentile
+     *
+     * @param percentile The percentile to get ({@code 0} to {@code 100})
+     * @return The highest value in the bucket holding the percentile in nanoseconds, but never more than
+     *         {@link #getMax()}. {@code 0} if nothing has been recorded.
+     */
+    public long getPercentile(double percentile) {
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += this.counts.get(i);
+        }
+        if (seen == 0) {
+            return 0;
+        }
+        final long target = Math.max(1, (long) Math.ceil(seen * Math.min(100, Math.max(0, percentile)) / 100));
+        long cumulative = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            cumulative += this.counts.get(i);
+            if (cumulative >= target) {
+                return Math.min(upperBound(i), this.max.get());
+            }
+        }
+        return this.max.get();
+    }
+
+    /**
+     * Clear the recorded values
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            this.counts.set(i, 0);
+        }
+        this.count.set(0);
+        this.total.set(0);
+        this.max.set(0);
+    }
+
+    /**
+     * Get the bucket for a value
+     *
+     * @param value The non-negative value
+     * @return The bucket index
+     */
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        final int shift = exponent - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    /**
+     * Get the largest value that goes into a bucket
+     *
+     * @param bucket The bucket index
+     * @return The largest value for the bucket
+     */
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        final int shift = bucket / SUB_BUCKETS - 1;
+        final long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lower + (1L << shift) - 1;
+    }
+}
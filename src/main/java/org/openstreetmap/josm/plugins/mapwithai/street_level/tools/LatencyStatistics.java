@@ -0,0 +1,138 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.street_level.tools;
+
+import static org.openstreetmap.josm.tools.I18n.marktr;
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.openstreetmap.josm.plugins.mapwithai.street_level.data.preferences.SidewalkSettings;
+
+/**
+ * Latency statistics for {@link org.openstreetmap.josm.plugins.mapwithai.street_level.actions.mapmode.SidewalkMode}.
+ * This is only enabled when {@code sidewalk.latency.enabled} is {@code true}; when it is disabled, {@link #start()}
+ * only reads the cached settings.
+ *
+ * @author Taylor Smock
+ */
+public final class LatencyStatistics {
+    /**
+     * The phases of handling a click in sidewalk mode
+     */
+    public enum Phase {
+        /** Searching the highway index for ways that may cross the drawn segment */
+        CANDIDATE_SEARCH(marktr("Candidate search")),
+        /** Checking the candidate ways for intersections with the drawn segment */
+        INTERSECTION_TESTS(marktr("Intersection tests")),
+        /** Finding or creating the nodes where the drawn segment crosses other ways */
+        CROSSING_NODES(marktr("Crossing nodes")),
+        /** Building the command for the click, including the crossing nodes */
+        COMMAND_CONSTRUCTION(marktr("Command construction")),
+        /** Executing the command and notifying listeners */
+        UNDO_REDO_ADD(marktr("Undo/redo add")),
+        /** From the mouse release to the end of the last phase, including time spent waiting for other threads */
+        TOTAL(marktr("Total"));
+
+        private final String name;
+
+        Phase(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Get the translated name of the phase
+         *
+         * @return The name to show the user
+         */
+        public String getDisplayName() {
+            return tr(this.name);
+        }
+    }
+
+    private static final Map<Phase, LatencyHistogram> HISTOGRAMS = new EnumMap<>(Phase.class);
+
+    static {
+        for (Phase phase : Phase.values()) {
+            HISTOGRAMS.put(phase, new LatencyHistogram());
+        }
+    }
+
+    private LatencyStatistics() {
+        // Hide constructor
+    }
+
+    /**
+     * Start timing a phase
+     *
+     * @return The start time to pass to {@link #stop(Phase, long)}, or {@code 0} if statistics are disabled
+     */
+    public static long start() {
+        return SidewalkSettings.get().isLatencyEnabled() ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Stop timing a phase
+     *
+     * @param phase The phase that was timed
+     * @param start The value from {@link #start()}
+     */
+    public static void stop(Phase phase, long start) {
+        if (start != 0) {
+            HISTOGRAMS.get(phase).record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Record a time for a phase, if statistics are enabled
+     *
+     * @param phase The phase that was timed
+     * @param nanos The time spent in the phase
+     */
+    public static void record(Phase phase, long nanos) {
+        if (SidewalkSettings.get().isLatencyEnabled()) {
+            HISTOGRAMS.get(phase).record(nanos);
+        }
+    }
+
+    /**
+     * Get the histogram for a phase
+     *
+     * @param phase The phase
+     * @return The histogram
+     */
+    public static LatencyHistogram getHistogram(Phase phase) {
+        return HISTOGRAMS.get(phase);
+    }
+
+    /**
+     * Clear all recorded statistics
+     */
+    public static void reset() {
+        HISTOGRAMS.values().forEach(LatencyHistogram::reset);
+    }
+
+    /**
+     * Get a plain text table of the statistics
+     *
+     * @return The statistics, with times in milliseconds
+     */
+    public static String getReport() {
+        final var builder = new StringBuilder(512);
+        builder.append(String.format(Locale.ROOT, "%-24s %8s %10s %10s %10s %10s %10s%n", tr("Phase"), tr("Count"),
+                tr("Mean"), "p50", "p95", "p99", tr("Max")));
+        for (Phase phase : Phase.values()) {
+            final var histogram = HISTOGRAMS.get(phase);
+            builder.append(String.format(Locale.ROOT, "%-24s %8d %10.3f %10.3f %10.3f %10.3f %10.3f%n",
+                    phase.getDisplayName(), histogram.getCount(), millis(histogram.getMean()),
+                    millis(histogram.getPercentile(50)), millis(histogram.getPercentile(95)),
+                    millis(histogram.getPercentile(99)), millis(histogram.getMax())));
+        }
+        return builder.toString();
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000d;
+    }
+}
@@ -0,0 +1,39 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.street_level.data.osm;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * A {@link OffsetKernel#offsetBatch} kernel that uses the Vector API. This is loaded by {@link OffsetKernel} when
+ * the {@code jdk.incubator.vector} module is available; it is kept out of the main sources, since compiling it needs
+ * {@code --add-modules jdk.incubator.vector}.
+ *
+ * @author Taylor Smock
+ */
+final class VectorOffsetKernel implements OffsetKernel.BatchKernel {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public void offset(double[] lat, double[] lon, double[] angles, double[] sinDistance, double[] cosDistance,
+            int count, double[] resultLat, double[] resultLon) {
+        final int bound = SPECIES.loopBound(count);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            final var latitude = DoubleVector.fromArray(SPECIES, lat, i);
+            final var sinLat = latitude.lanewise(VectorOperators.SIN);
+            final var cosLat = latitude.lanewise(VectorOperators.COS);
+            final var angle = DoubleVector.fromArray(SPECIES, angles, i);
+            final var sinD = DoubleVector.fromArray(SPECIES, sinDistance, i);
+            final var cosD = DoubleVector.fromArray(SPECIES, cosDistance, i);
+            final var sinNewLat = sinLat.mul(cosD).add(cosLat.mul(sinD).mul(angle.lanewise(VectorOperators.COS)));
+            final var y = angle.lanewise(VectorOperators.SIN).mul(sinD).mul(cosLat);
+            final var x = cosD.sub(sinLat.mul(sinNewLat));
+            sinNewLat.lanewise(VectorOperators.ASIN).intoArray(resultLat, i);
+            DoubleVector.fromArray(SPECIES, lon, i).add(y.lanewise(VectorOperators.ATAN2, x)).intoArray(resultLon, i);
+        }
+        // The tail is shorter than a vector
+        OffsetKernel.offsetBatchScalar(lat, lon, angles, sinDistance, cosDistance, i, count, resultLat, resultLon);
+    }
+}
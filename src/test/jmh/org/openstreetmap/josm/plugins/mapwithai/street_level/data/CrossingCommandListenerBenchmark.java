@@ -0,0 +1,117 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.street_level.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openstreetmap.josm.command.ChangePropertyCommand;
+import org.openstreetmap.josm.command.Command;
+import org.openstreetmap.josm.command.SequenceCommand;
+import org.openstreetmap.josm.data.UndoRedoHandler;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.plugins.mapwithai.street_level.testutils.BenchmarkUtils;
+
+/**
+ * Benchmarks for {@link CrossingCommandListener}. The listener is called from {@link UndoRedoHandler#add(Command)},
+ * so {@link #commandAddedBaseline()} measures the same command without the listener; the difference is the cost of
+ * the listener.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CrossingCommandListenerBenchmark {
+    /** The number of {@link ChangePropertyCommand}s in the command */
+    @Param({ "1", "10000" })
+    public int commandSize;
+    /** The key that the commands change; {@code name} is not a crossing tag, so it measures the fast path */
+    @Param({ "crossing:markings", "name" })
+    public String key;
+
+    private final CrossingCommandListener listener = new CrossingCommandListener();
+    private List<Node> crossingNodes;
+    private Command command;
+    private int invocation;
+
+    /**
+     * Create the crossings. Every other crossing node is tagged; the rest are untagged nodes on a footway.
+     */
+    @Setup(Level.Trial)
+    public void setupTrial() {
+        BenchmarkUtils.setUpJosm();
+        final var dataSet = new DataSet();
+        this.crossingNodes = new ArrayList<>(this.commandSize);
+        for (int i = 0; i < this.commandSize; i++) {
+            final double lat = BenchmarkUtils.GRID_LAT + i * 0.0001;
+            final var crossingNode = new Node(new LatLon(lat, BenchmarkUtils.GRID_LON));
+            if (i % 2 == 0) {
+                crossingNode.put("highway", "crossing");
+            }
+            final var crossingWay = new Way();
+            crossingWay.setNodes(List.of(new Node(new LatLon(lat, BenchmarkUtils.GRID_LON - 0.0001)), crossingNode,
+                    new Node(new LatLon(lat, BenchmarkUtils.GRID_LON + 0.0001))));
+            crossingWay.put("highway", "footway");
+            crossingWay.put("footway", i % 2 == 0 ? "crossing" : "sidewalk");
+            dataSet.addPrimitiveRecursive(crossingWay);
+            this.crossingNodes.add(crossingNode);
+        }
+    }
+
+    /**
+     * Create a new command that changes the {@link #key} of every crossing node
+     */
+    @Setup(Level.Invocation)
+    public void setupInvocation() {
+        final var markings = this.invocation++ % 2 == 0 ? "zebra" : "lines";
+        final var commands = new ArrayList<Command>(this.commandSize);
+        for (Node node : this.crossingNodes) {
+            commands.add(new ChangePropertyCommand(node, this.key, markings));
+        }
+        this.command = SequenceCommand.wrapIfNeeded("Benchmark", commands);
+    }
+
+    /**
+     * Remove the commands from the undo/redo handler
+     */
+    @TearDown(Level.Invocation)
+    public void tearDownInvocation() {
+        UndoRedoHandler.getInstance().removeCommandQueuePreciseListener(this.listener);
+        UndoRedoHandler.getInstance().clean();
+    }
+
+    /**
+     * Add the command with the crossing listener
+     */
+    @Benchmark
+    public void commandAdded() {
+        UndoRedoHandler.getInstance().addCommandQueuePreciseListener(this.listener);
+        UndoRedoHandler.getInstance().add(this.command);
+    }
+
+    /**
+     * Add the command without the crossing listener
+     */
+    @Benchmark
+    public void commandAddedBaseline() {
+        UndoRedoHandler.getInstance().add(this.command);
+    }
+}
@@ -0,0 +1,110 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.street_level.data.osm;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openstreetmap.josm.command.Command;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.plugins.mapwithai.street_level.testutils.BenchmarkUtils;
+import org.openstreetmap.josm.plugins.mapwithai.street_level.testutils.SidewalkTestUtils;
+
+/**
+ * Benchmarks for the crossing pipeline used by sidewalk mode and crossing generation, against a synthetic road grid
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CrossingPipelineBenchmark {
+    /** The number of roads in each direction */
+    @Param({ "10", "100" })
+    public int gridSize;
+
+    private DataSet dataSet;
+    private HighwayIndex index;
+    private List<Way> sidewalks;
+    /** A copy of the grid that also has the drawn segments, so that they do not slow down the other benchmarks */
+    private DataSet drawnDataSet;
+    private Way[] drawn;
+    private int segment;
+
+    /**
+     * Create the road grid, sidewalks, and the segments that are "drawn"
+     */
+    @Setup
+    public void setup() {
+        BenchmarkUtils.setUpJosm();
+        this.dataSet = new DataSet();
+        BenchmarkUtils.createRoadGrid(this.dataSet, this.gridSize);
+        // One node per block, so that no sidewalk node is on a road
+        this.sidewalks = BenchmarkUtils.createSidewalks(this.dataSet, this.gridSize, 1);
+        this.index = HighwayIndex.getIndex(this.dataSet);
+        this.drawnDataSet = new DataSet();
+        BenchmarkUtils.createRoadGrid(this.drawnDataSet, this.gridSize);
+        BenchmarkUtils.createSidewalks(this.drawnDataSet, this.gridSize, 1);
+        // Short segments that cross a road, as would be drawn in sidewalk mode
+        final var random = new Random(42);
+        this.drawn = new Way[1024];
+        for (int i = 0; i < this.drawn.length; i++) {
+            final double road = BenchmarkUtils.GRID_LON + (random.nextInt(this.gridSize) + 0.5)
+                    * BenchmarkUtils.GRID_SPACING;
+            final double lat = BenchmarkUtils.GRID_LAT + random.nextDouble() * this.gridSize
+                    * BenchmarkUtils.GRID_SPACING;
+            this.drawn[i] = SidewalkTestUtils.newWay("highway=footway footway=sidewalk", lat, road - 0.0001, lat,
+                    road + 0.0001);
+            this.drawnDataSet.addPrimitiveRecursive(this.drawn[i]);
+        }
+        CrossingEngine.prepareIndexes(this.drawnDataSet);
+    }
+
+    /**
+     * Plan the crossings for a single drawn segment and build the commands (without executing them), the same way
+     * sidewalk mode does
+     *
+     * @return The commands
+     */
+    @Benchmark
+    public List<Command> interactiveSegment() {
+        final var way = this.drawn[this.segment++ & (this.drawn.length - 1)];
+        final var engine = new CrossingEngine(this.drawnDataSet);
+        return engine.createCommands(engine.plan(way, true, List.of(), true));
+    }
+
+    /**
+     * Find the crossings for every sidewalk in the grid
+     *
+     * @param blackhole Consumes the crossings
+     */
+    @Benchmark
+    public void findAllCrossings(Blackhole blackhole) {
+        blackhole.consume(CrossingGenerator.findCrossings(this.sidewalks, this.index));
+    }
+
+    /**
+     * Find the crossings for every sidewalk in the grid and build the command (without executing it)
+     *
+     * @return The command
+     */
+    @Benchmark
+    public Command generateAllCrossings() {
+        return new CrossingEngine(this.dataSet).generateCrossings(new ArrayList<>(this.sidewalks));
+    }
+}
@@ -0,0 +1,88 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.street_level.data.osm;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openstreetmap.josm.plugins.mapwithai.street_level.testutils.BenchmarkUtils;
+
+/**
+ * Benchmarks for {@link OffsetKernel#offsetBatch}, comparing the scalar and Vector API kernels. The Vector API
+ * kernel is only used if the benchmark is run with {@code --add-modules jdk.incubator.vector} (the {@code jmh} task
+ * does this).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OffsetKernelBenchmark {
+    /** The number of vertices to offset */
+    @Param({ "100", "10000", "1000000" })
+    public int vertices;
+
+    private double[] lat;
+    private double[] lon;
+    private double[] angles;
+    private double[] sinDistance;
+    private double[] cosDistance;
+    private double[] resultLat;
+    private double[] resultLon;
+
+    /**
+     * Create the vertices
+     */
+    @Setup
+    public void setup() {
+        this.lat = new double[this.vertices];
+        this.lon = new double[this.vertices];
+        this.angles = new double[this.vertices];
+        this.sinDistance = new double[this.vertices];
+        this.cosDistance = new double[this.vertices];
+        this.resultLat = new double[this.vertices];
+        this.resultLon = new double[this.vertices];
+        final double angularDistance = OffsetKernel.angularDistance(5.75);
+        for (int i = 0; i < this.vertices; i++) {
+            this.lat[i] = Math.toRadians(BenchmarkUtils.GRID_LAT + (i % 1000) * 0.0001);
+            this.lon[i] = Math.toRadians(BenchmarkUtils.GRID_LON + (i / 1000) * 0.0001);
+            this.angles[i] = (i % 4) * Math.PI / 2;
+            this.sinDistance[i] = Math.sin(angularDistance);
+            this.cosDistance[i] = Math.cos(angularDistance);
+        }
+    }
+
+    /**
+     * Offset the vertices with the scalar kernel
+     *
+     * @return The offset latitudes
+     */
+    @Benchmark
+    public double[] scalar() {
+        OffsetKernel.offsetBatchScalar(this.lat, this.lon, this.angles, this.sinDistance, this.cosDistance, 0,
+                this.vertices, this.resultLat, this.resultLon);
+        return this.resultLat;
+    }
+
+    /**
+     * Offset the vertices with the Vector API kernel, if it is available
+     *
+     * @return The offset latitudes
+     */
+    @Benchmark
+    public double[] batch() {
+        OffsetKernel.offsetBatch(this.lat, this.lon, this.angles, this.sinDistance, this.cosDistance, this.vertices,
+                this.resultLat, this.resultLon);
+        return this.resultLat;
+    }
+}
@@ -0,0 +1,113 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.street_level.data.osm;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.plugins.mapwithai.street_level.testutils.BenchmarkUtils;
+import org.openstreetmap.josm.plugins.mapwithai.street_level.testutils.SidewalkTestUtils;
+
+/**
+ * Benchmarks for {@link ParallelSidewalkCreation}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParallelSidewalkCreationBenchmark {
+    /** The number of nodes in the road */
+    @Param({ "2", "10", "100", "1000" })
+    public int nodes;
+
+    private Way road;
+    private Way roadWithWidth;
+    private List<Way> roads;
+
+    /**
+     * Create the roads
+     */
+    @Setup
+    public void setup() {
+        BenchmarkUtils.setUpJosm();
+        final var coordinates = new double[2 * this.nodes];
+        for (int i = 0; i < this.nodes; i++) {
+            // A gentle zig-zag, so that every node is a corner
+            coordinates[2 * i] = BenchmarkUtils.GRID_LAT + (i % 2) * 0.0001;
+            coordinates[2 * i + 1] = BenchmarkUtils.GRID_LON + i * 0.0005;
+        }
+        this.road = SidewalkTestUtils.newWay("highway=residential", coordinates);
+        this.roadWithWidth = SidewalkTestUtils.newWay("highway=residential width=12'6\"", coordinates);
+        this.roads = Collections.nCopies(100, this.road);
+    }
+
+    /**
+     * Create sidewalks on both sides of a road without a width
+     *
+     * @return The sidewalks
+     */
+    @Benchmark
+    public Map<ParallelSidewalkCreation.Options, Way> createParallelSidewalks() {
+        return ParallelSidewalkCreation.createParallelSidewalks(this.road, ParallelSidewalkCreation.Options.values());
+    }
+
+    /**
+     * Create sidewalks on both sides of a road with a width that must be parsed
+     *
+     * @return The sidewalks
+     */
+    @Benchmark
+    public Map<ParallelSidewalkCreation.Options, Way> createParallelSidewalksWithWidth() {
+        return ParallelSidewalkCreation.createParallelSidewalks(this.roadWithWidth,
+                ParallelSidewalkCreation.Options.values());
+    }
+
+    /**
+     * Create sidewalks on both sides of a road without a width, with node and way factories instead of reflection
+     *
+     * @return The sidewalks
+     */
+    @Benchmark
+    public Map<ParallelSidewalkCreation.Options, Way> createParallelSidewalksWithFactories() {
+        return ParallelSidewalkCreation.createParallelSidewalks(this.road, Node::new, Way::new,
+                ParallelSidewalkCreation.Options.values());
+    }
+
+    /**
+     * Create sidewalks on both sides of many roads, one road at a time
+     *
+     * @return The sidewalks
+     */
+    @Benchmark
+    public List<ParallelSidewalkCreation.ParallelSidewalk> createAllParallelSidewalks() {
+        return ParallelSidewalkCreation.createAllParallelSidewalks(this.roads,
+                ParallelSidewalkCreation.Options.values());
+    }
+
+    /**
+     * Create sidewalks on both sides of many roads, offsetting every road at once
+     *
+     * @return The sidewalks
+     */
+    @Benchmark
+    public List<ParallelSidewalkCreation.ParallelSidewalk> createAllParallelSidewalksBatched() {
+        return ParallelSidewalkCreation.createAllParallelSidewalksBatched(this.roads,
+                ParallelSidewalkCreation.Options.values());
+    }
+}
@@ -0,0 +1,90 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.street_level.testutils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openstreetmap.josm.data.Preferences;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.preferences.JosmBaseDirectories;
+import org.openstreetmap.josm.data.preferences.JosmUrls;
+import org.openstreetmap.josm.data.projection.ProjectionRegistry;
+import org.openstreetmap.josm.data.projection.Projections;
+import org.openstreetmap.josm.spi.preferences.Config;
+
+/**
+ * Various utilities for benchmarks
+ */
+public final class BenchmarkUtils {
+    /** The distance between roads in the synthetic road grid, in degrees (roughly 100m) */
+    public static final double GRID_SPACING = 0.001;
+    /** The latitude of the bottom of the synthetic road grid */
+    public static final double GRID_LAT = 39.0;
+    /** The longitude of the left side of the synthetic road grid */
+    public static final double GRID_LON = -108.5;
+
+    private BenchmarkUtils() {
+        // Hide the constructor
+    }
+
+    /**
+     * Set up the minimal JOSM environment (preferences and projection) needed by the benchmarks. This is the
+     * equivalent of the {@code @BasicPreferences} and {@code @Projection} test annotations.
+     */
+    public static void setUpJosm() {
+        final var preferences = new Preferences();
+        preferences.enableSaveOnPut(false);
+        Config.setPreferencesInstance(preferences);
+        Config.setBaseDirectoriesProvider(JosmBaseDirectories.getInstance());
+        Config.setUrlsProvider(JosmUrls.getInstance());
+        ProjectionRegistry.setProjection(Projections.getProjectionByCode("EPSG:3857"));
+    }
+
+    /**
+     * Create a grid of roads. Each road is a single straight way across the grid.
+     *
+     * @param dataSet The dataset to add the roads to
+     * @param size    The number of roads in each direction
+     * @return The roads
+     */
+    public static List<Way> createRoadGrid(DataSet dataSet, int size) {
+        final var roads = new ArrayList<Way>(2 * size);
+        final double extent = size * GRID_SPACING;
+        for (int i = 0; i < size; i++) {
+            final double offset = (i + 0.5) * GRID_SPACING;
+            roads.add(SidewalkTestUtils.newWay("highway=residential", GRID_LAT, GRID_LON + offset, GRID_LAT + extent,
+                    GRID_LON + offset));
+            roads.add(SidewalkTestUtils.newWay("highway=residential", GRID_LAT + offset, GRID_LON, GRID_LAT + offset,
+                    GRID_LON + extent));
+        }
+        roads.forEach(dataSet::addPrimitiveRecursive);
+        return roads;
+    }
+
+    /**
+     * Create sidewalks in the middle of each block of a road grid. Each sidewalk runs across the entire grid, so it
+     * crosses every road running the other way.
+     *
+     * @param dataSet       The dataset to add the sidewalks to
+     * @param size          The number of roads in each direction
+     * @param nodesPerBlock The number of sidewalk nodes in each block
+     * @return The sidewalks
+     */
+    public static List<Way> createSidewalks(DataSet dataSet, int size, int nodesPerBlock) {
+        final var sidewalks = new ArrayList<Way>(size);
+        final double extent = size * GRID_SPACING;
+        final int nodeCount = size * nodesPerBlock + 1;
+        for (int i = 0; i < size; i++) {
+            final double lat = GRID_LAT + (i + 0.75) * GRID_SPACING;
+            final var coordinates = new double[2 * nodeCount];
+            for (int j = 0; j < nodeCount; j++) {
+                coordinates[2 * j] = lat;
+                coordinates[2 * j + 1] = GRID_LON + extent * j / (nodeCount - 1);
+            }
+            sidewalks.add(SidewalkTestUtils.newWay("highway=footway footway=sidewalk", coordinates));
+        }
+        sidewalks.forEach(dataSet::addPrimitiveRecursive);
+        return sidewalks;
+    }
+}
@@ -133,6 +133,27 @@ class SidewalkModeTest {
         assertEquals(2, links.size());
     }
 
+    @Test
+    void testCrossingIsSingleCommand() {
+        final var highway = newWay("highway=residential", 39.0700657, -108.4654122, 39.0701854, -108.4654118);
+        this.ds.addPrimitiveRecursive(highway);
+        clickAt(39.0701499, -108.4653012);
+        clickAt(39.0701499, -108.4653312);
+        // The sidewalk tags for a new way are added right away
+        final var sidewalk = this.ds.getWays().stream().filter(w -> w.hasTag("footway", "sidewalk")).findFirst()
+                .orElseThrow();
+        assertEquals(2, sidewalk.getNodesCount());
+        final int undoCommands = UndoRedoHandler.getInstance().getUndoCommands().size();
+        clickAt(39.0701494, -108.4654942);
+        // One command for drawing the segment, and one for everything the sidewalk mode did
+        assertEquals(undoCommands + 2, UndoRedoHandler.getInstance().getUndoCommands().size());
+        assertEquals(1, this.ds.getWays().stream().filter(w -> w.hasTag("footway", "crossing")).count());
+        assertEquals(3, highway.getNodesCount());
+        GuiHelper.runInEDTAndWait(() -> UndoRedoHandler.getInstance().undo());
+        assertAll(() -> assertEquals(2, highway.getNodesCount()),
+                () -> assertEquals(0, this.ds.getWays().stream().filter(w -> w.hasTag("footway", "crossing")).count()));
+    }
+
     @Test
     void testLayer() {
         final var highway = newWay("highway=residential layer=1", 39.0619158, -108.4891703, 39.0619153, -108.4876649);
@@ -548,6 +569,9 @@ class SidewalkModeTest {
         final var click = mouseClickAt(location);
         MainApplication.getMap().mapModeDraw.mouseReleased(click);
         this.action.mouseReleased(click);
+        // Crossings are found in the worker thread, and then applied in the UI thread
+        assertDoesNotThrow(() -> MainApplication.worker.submit(() -> {
+            /* Sync worker thread */ }).get());
         GuiHelper.runInEDTAndWait(() -> {
             /* Sync UI thread */ });
     }
@@ -0,0 +1,53 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.street_level.command;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.openstreetmap.josm.plugins.mapwithai.street_level.testutils.SidewalkTestUtils.newWay;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.PrimitiveData;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataSetListenerAdapter;
+
+/**
+ * Test class for {@link BulkAddPrimitivesCommand}
+ */
+class BulkAddPrimitivesCommandTest {
+    @Test
+    void testSingleEvent() {
+        final var dataSet = new DataSet();
+        final var data = new ArrayList<PrimitiveData>();
+        final var ways = new ArrayList<PrimitiveData>();
+        for (int i = 0; i < 50; i++) {
+            final var way = newWay("highway=footway", 39.07, -108.46 + i * 0.001, 39.071, -108.46 + i * 0.001);
+            for (Node node : way.getNodes()) {
+                data.add(node.save());
+            }
+            data.add(way.save());
+            ways.add(way.save());
+        }
+        final List<AbstractDatasetChangedEvent> events = new ArrayList<>();
+        dataSet.addDataSetListener(new DataSetListenerAdapter(events::add));
+        final var command = new BulkAddPrimitivesCommand(data, ways, dataSet);
+
+        command.executeCommand();
+        assertAll(() -> assertEquals(50, dataSet.getWays().size()), () -> assertEquals(100, dataSet.getNodes().size()),
+                () -> assertEquals(50, dataSet.getSelectedWays().size()),
+                () -> assertTrue(dataSet.getWays().stream().allMatch(way -> way.getNodesCount() == 2)),
+                () -> assertEquals(1, events.size()), () -> assertInstanceOf(DataChangedEvent.class, events.get(0)));
+
+        events.clear();
+        command.undoCommand();
+        assertAll(() -> assertTrue(dataSet.allPrimitives().isEmpty()), () -> assertEquals(1, events.size()),
+                () -> assertInstanceOf(DataChangedEvent.class, events.get(0)));
+    }
+}
@@ -8,15 +8,21 @@ import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.openstreetmap.josm.plugins.mapwithai.street_level.testutils.SidewalkTestUtils.newWay;
 
+import java.util.ArrayList;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
 import org.openstreetmap.josm.TestUtils;
 import org.openstreetmap.josm.command.ChangePropertyCommand;
+import org.openstreetmap.josm.command.SequenceCommand;
 import org.openstreetmap.josm.data.UndoRedoHandler;
 import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
 import org.openstreetmap.josm.testutils.annotations.ThreadSync;
 
 /**
@@ -88,4 +94,148 @@ class CrossingCommandListenerTest {
         threadSyncExtension.threadSync();
         assertEquals("crossing", crossing.get("highway"));
     }
+
+    @Test
+    void testOtherTagsAreIgnored() {
+        final var crossingNode = TestUtils.newNode("highway=crossing crossing=uncontrolled");
+        final var crossingWay = TestUtils.newWay("highway=footway footway=crossing", new Node(LatLon.NORTH_POLE),
+                crossingNode, new Node(LatLon.SOUTH_POLE));
+        new DataSet().addPrimitiveRecursive(crossingWay);
+        final var changePropertyCommand = new ChangePropertyCommand(crossingNode, "name", "Main Street");
+        UndoRedoHandler.getInstance().add(changePropertyCommand);
+        threadSyncExtension.threadSync();
+        assertSame(changePropertyCommand, UndoRedoHandler.getInstance().getLastCommand());
+        assertFalse(crossingWay.hasKey("crossing"));
+    }
+
+    @Test
+    void testSequenceCommand() {
+        final var crossingNode = TestUtils.newNode("highway=crossing");
+        final var crossingWay = TestUtils.newWay("highway=footway footway=crossing", new Node(LatLon.NORTH_POLE),
+                crossingNode, new Node(LatLon.SOUTH_POLE));
+        new DataSet().addPrimitiveRecursive(crossingWay);
+        final var sequence = new SequenceCommand("Change tags",
+                new ChangePropertyCommand(crossingNode, "name", "Main Street"),
+                new ChangePropertyCommand(crossingNode, "crossing", "marked"));
+        UndoRedoHandler.getInstance().add(sequence);
+        threadSyncExtension.threadSync();
+        assertNotSame(sequence, UndoRedoHandler.getInstance().getLastCommand());
+        assertAll(() -> assertEquals("marked", crossingWay.get("crossing")),
+                () -> assertFalse(crossingWay.hasKey("name")));
+    }
+
+    @Test
+    void testMultiplePrimitives() {
+        final var dataSet = new DataSet();
+        final var crossingNodes = new ArrayList<Node>();
+        final var crossingWays = new ArrayList<Way>();
+        for (int i = 0; i < 4; i++) {
+            // Two different tag sets, so two commands
+            final var crossing = i % 2 == 0 ? "marked" : "unmarked";
+            final var crossingNode = TestUtils.newNode("highway=crossing crossing=" + crossing);
+            final var crossingWay = TestUtils.newWay("highway=footway footway=crossing", new Node(LatLon.NORTH_POLE),
+                    crossingNode, new Node(LatLon.SOUTH_POLE));
+            dataSet.addPrimitiveRecursive(crossingWay);
+            crossingNodes.add(crossingNode);
+            crossingWays.add(crossingWay);
+        }
+        final var changePropertyCommand = new ChangePropertyCommand(crossingNodes, "crossing:markings", "zebra");
+        UndoRedoHandler.getInstance().add(changePropertyCommand);
+        threadSyncExtension.threadSync();
+        final var sync = UndoRedoHandler.getInstance().getLastCommand();
+        assertNotSame(changePropertyCommand, sync);
+        assertEquals(2, sync.getChildren().size());
+        for (int i = 0; i < crossingWays.size(); i++) {
+            final Way crossingWay = crossingWays.get(i);
+            assertAll(() -> assertEquals("zebra", crossingWay.get("crossing:markings")),
+                    () -> assertEquals("footway", crossingWay.get("highway")));
+            assertEquals(i % 2 == 0 ? "marked" : "unmarked", crossingWay.get("crossing"));
+        }
+    }
+
+    @Test
+    void testCyclewayCrossing() {
+        final var crossingNode = TestUtils.newNode("highway=crossing");
+        final var cycleway = TestUtils.newWay("highway=cycleway cycleway=crossing", new Node(LatLon.NORTH_POLE),
+                crossingNode, new Node(LatLon.SOUTH_POLE));
+        new DataSet().addPrimitiveRecursive(cycleway);
+        UndoRedoHandler.getInstance().add(new ChangePropertyCommand(cycleway, "crossing", "marked"));
+        threadSyncExtension.threadSync();
+        assertAll(() -> assertEquals("marked", crossingNode.get("crossing")),
+                () -> assertEquals("crossing", crossingNode.get("cycleway")),
+                () -> assertEquals("crossing", crossingNode.get("highway")));
+    }
+
+    @Test
+    void testBatch() {
+        final var crossingNode = TestUtils.newNode("highway=crossing");
+        final var crossingWay = TestUtils.newWay("highway=footway footway=crossing", new Node(LatLon.NORTH_POLE),
+                crossingNode, new Node(LatLon.SOUTH_POLE));
+        new DataSet().addPrimitiveRecursive(crossingWay);
+        final var undoRedo = UndoRedoHandler.getInstance();
+        try (var batch = CrossingCommandListener.batch()) {
+            undoRedo.add(new ChangePropertyCommand(crossingNode, "crossing", "marked"));
+            undoRedo.add(new ChangePropertyCommand(crossingNode, "crossing:markings", "zebra"));
+            threadSyncExtension.threadSync();
+            assertAll(() -> assertEquals(2, undoRedo.getUndoCommands().size()),
+                    () -> assertFalse(crossingWay.hasKey("crossing")));
+        }
+        // One command for both changes
+        assertEquals(3, undoRedo.getUndoCommands().size());
+        assertAll(() -> assertEquals("marked", crossingWay.get("crossing")),
+                () -> assertEquals("zebra", crossingWay.get("crossing:markings")));
+    }
+
+    @Test
+    @BasicPreferences
+    void testCoalesce() {
+        Config.getPref().putBoolean("sidewalk.crossing.sync.coalesce", true);
+        final var dataSet = new DataSet();
+        final var crossingNodes = new ArrayList<Node>();
+        final var crossingWays = new ArrayList<Way>();
+        for (int i = 0; i < 3; i++) {
+            final var crossingNode = TestUtils.newNode("highway=crossing");
+            final var crossingWay = TestUtils.newWay("highway=footway footway=crossing", new Node(LatLon.NORTH_POLE),
+                    crossingNode, new Node(LatLon.SOUTH_POLE));
+            dataSet.addPrimitiveRecursive(crossingWay);
+            crossingNodes.add(crossingNode);
+            crossingWays.add(crossingWay);
+        }
+        final var undoRedo = UndoRedoHandler.getInstance();
+        for (Node crossingNode : crossingNodes) {
+            undoRedo.add(new ChangePropertyCommand(crossingNode, "crossing", "marked"));
+        }
+        // The same primitive changed twice is only synchronized once
+        undoRedo.add(new ChangePropertyCommand(crossingNodes.get(0), "crossing:markings", "zebra"));
+        threadSyncExtension.threadSync();
+        assertEquals(5, undoRedo.getUndoCommands().size());
+        final var sync = undoRedo.getLastCommand();
+        // One command for crossing=marked, and one for crossing=marked + crossing:markings=zebra
+        assertEquals(2, sync.getChildren().size());
+        assertEquals("zebra", crossingWays.get(0).get("crossing:markings"));
+        for (Way crossingWay : crossingWays) {
+            assertEquals("marked", crossingWay.get("crossing"));
+        }
+    }
+
+    @Test
+    void testUndoRedo() {
+        final var crossingNode = TestUtils.newNode("highway=crossing");
+        final var crossingWay = TestUtils.newWay("highway=footway footway=crossing", new Node(LatLon.NORTH_POLE),
+                crossingNode, new Node(LatLon.SOUTH_POLE));
+        new DataSet().addPrimitiveRecursive(crossingWay);
+        final var undoRedo = UndoRedoHandler.getInstance();
+        undoRedo.add(new ChangePropertyCommand(crossingWay, "footway", "sidewalk"));
+        undoRedo.add(new ChangePropertyCommand(crossingNode, "crossing", "marked"));
+        threadSyncExtension.threadSync();
+        // Not a crossing way anymore
+        assertFalse(crossingWay.hasKey("crossing"));
+        undoRedo.undo(2);
+        undoRedo.redo();
+        undoRedo.undo();
+        assertEquals("crossing", crossingWay.get("footway"));
+        undoRedo.add(new ChangePropertyCommand(crossingNode, "crossing", "marked"));
+        threadSyncExtension.threadSync();
+        assertEquals("marked", crossingWay.get("crossing"));
+    }
 }
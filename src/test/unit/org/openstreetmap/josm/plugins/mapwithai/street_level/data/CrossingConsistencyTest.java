@@ -0,0 +1,125 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.street_level.data;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+
+/**
+ * Test class for {@link CrossingConsistency}
+ */
+class CrossingConsistencyTest {
+    private DataSet dataSet;
+
+    @BeforeEach
+    void setup() {
+        this.dataSet = new DataSet();
+    }
+
+    private Way addCrossing(String nodeTags, String wayTags) {
+        final var crossingNode = TestUtils.newNode(nodeTags);
+        final var crossingWay = TestUtils.newWay(wayTags, new Node(LatLon.NORTH_POLE), crossingNode,
+                new Node(LatLon.SOUTH_POLE));
+        this.dataSet.addPrimitiveRecursive(crossingWay);
+        return crossingWay;
+    }
+
+    @Test
+    void testConsistentCrossings() {
+        addCrossing("highway=crossing crossing=marked", "highway=footway footway=crossing crossing=marked");
+        // Not a crossing way
+        addCrossing("highway=crossing crossing=marked", "highway=footway footway=sidewalk");
+        assertTrue(CrossingConsistency.scan(this.dataSet).isEmpty());
+    }
+
+    @Test
+    void testMissingTags() {
+        final var crossingWay = addCrossing("highway=crossing crossing=marked",
+                "highway=footway footway=crossing crossing:markings=zebra");
+        final var crossingNode = crossingWay.getNode(1);
+        final var mismatches = CrossingConsistency.scan(this.dataSet);
+        assertEquals(1, mismatches.size());
+        final var mismatch = mismatches.get(0);
+        assertAll(() -> assertEquals(Map.of("crossing:markings", "zebra"), mismatch.nodeMissing()),
+                () -> assertEquals(Map.of("crossing", "marked"), mismatch.wayMissing()),
+                () -> assertTrue(mismatch.conflicts().isEmpty()), () -> assertTrue(mismatch.isFixable()));
+        final var command = CrossingConsistency.createFixCommand(mismatches);
+        assertNotNull(command);
+        command.executeCommand();
+        assertAll(() -> assertEquals("zebra", crossingNode.get("crossing:markings")),
+                () -> assertEquals("marked", crossingWay.get("crossing")),
+                () -> assertEquals("crossing", crossingNode.get("highway")),
+                () -> assertEquals("footway", crossingWay.get("highway")));
+        assertTrue(CrossingConsistency.scan(this.dataSet).isEmpty());
+    }
+
+    @Test
+    void testCyclewayAndPathCrossings() {
+        final var cycleway = addCrossing("highway=crossing", "highway=cycleway cycleway=crossing crossing=marked");
+        final var path = addCrossing("highway=crossing crossing=marked", "highway=path path=crossing");
+        final var mismatches = CrossingConsistency.scan(this.dataSet);
+        assertEquals(2, mismatches.size());
+        final var command = CrossingConsistency.createFixCommand(mismatches);
+        assertNotNull(command);
+        command.executeCommand();
+        // The cycleway=crossing tag is what makes the way a crossing, so it is not copied to the node
+        assertAll(() -> assertEquals("marked", cycleway.getNode(1).get("crossing")),
+                () -> assertFalse(cycleway.getNode(1).hasKey("cycleway")),
+                () -> assertEquals("marked", path.get("crossing")),
+                () -> assertTrue(CrossingConsistency.scan(this.dataSet).isEmpty()));
+    }
+
+    @Test
+    void testConflictingTags() {
+        addCrossing("highway=crossing crossing=marked", "highway=footway footway=crossing crossing=unmarked");
+        final var mismatches = CrossingConsistency.scan(this.dataSet);
+        assertEquals(1, mismatches.size());
+        assertAll(() -> assertEquals(Set.of("crossing"), mismatches.get(0).conflicts()),
+                () -> assertFalse(mismatches.get(0).isFixable()),
+                () -> assertNull(CrossingConsistency.createFixCommand(mismatches)));
+    }
+
+    @Test
+    void testManyCrossingsAreFixedTogether() {
+        for (int i = 0; i < 100; i++) {
+            addCrossing("highway=crossing crossing=" + (i % 2 == 0 ? "marked" : "unmarked"),
+                    "highway=footway footway=crossing");
+        }
+        final var mismatches = CrossingConsistency.scan(this.dataSet);
+        assertEquals(100, mismatches.size());
+        final var command = CrossingConsistency.createFixCommand(mismatches);
+        assertNotNull(command);
+        // One command for each value
+        assertEquals(2, command.getChildren().size());
+        command.executeCommand();
+        assertTrue(CrossingConsistency.scan(this.dataSet).isEmpty());
+    }
+
+    @Test
+    void testAmbiguousTagsAreSkipped() {
+        final var first = addCrossing("highway=crossing", "highway=footway footway=crossing crossing=marked");
+        final var crossingNode = first.getNode(1);
+        final var second = TestUtils.newWay("highway=footway footway=crossing crossing=unmarked crossing_ref=zebra",
+                crossingNode, new Node(LatLon.ZERO));
+        this.dataSet.addPrimitiveRecursive(second);
+        final var command = CrossingConsistency.createFixCommand(CrossingConsistency.scan(this.dataSet));
+        assertNotNull(command);
+        command.executeCommand();
+        assertAll(() -> assertFalse(crossingNode.hasKey("crossing")),
+                () -> assertEquals("zebra", crossingNode.get("crossing_ref")));
+    }
+}
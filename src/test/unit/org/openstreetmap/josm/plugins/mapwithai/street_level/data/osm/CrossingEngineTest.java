@@ -0,0 +1,158 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.street_level.data.osm;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.openstreetmap.josm.plugins.mapwithai.street_level.testutils.SidewalkTestUtils.newWay;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.command.AddCommand;
+import org.openstreetmap.josm.command.ChangePropertyCommand;
+import org.openstreetmap.josm.command.SequenceCommand;
+import org.openstreetmap.josm.data.UndoRedoHandler;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+import org.openstreetmap.josm.testutils.annotations.Projection;
+
+/**
+ * Test class for {@link CrossingEngine}
+ */
+@BasicPreferences
+@Projection
+class CrossingEngineTest {
+    private DataSet dataSet;
+
+    @BeforeEach
+    void setup() {
+        UndoRedoHandler.getInstance().clean();
+        this.dataSet = new DataSet();
+    }
+
+    @Test
+    void testShortSegmentBecomesCrossingWay() {
+        final var highway = newWay("highway=residential", 39.0700657, -108.4654122, 39.0701854, -108.4654118);
+        final var sidewalk = newWay("highway=footway footway=sidewalk", 39.07015, -108.466, 39.07015, -108.46555,
+                39.07015, -108.46525);
+        this.dataSet.addPrimitiveRecursive(highway);
+        this.dataSet.addPrimitiveRecursive(sidewalk);
+        final var engine = new CrossingEngine(this.dataSet);
+        final var plan = engine.plan(sidewalk, true, Collections.emptyList(), true);
+        assertAll(() -> assertEquals(1, plan.crossings().size()), () -> assertTrue(plan.createWay()),
+                () -> assertTrue(engine.isCurrent(plan)),
+                () -> assertEquals(List.of(sidewalk), plan.end().getReferrers()));
+        final var commands = engine.createCommands(plan);
+        assertFalse(commands.isEmpty());
+        // Nothing is executed until the caller does so, and no temporary ways are left behind
+        assertAll(() -> assertEquals(2, this.dataSet.getWays().size()),
+                () -> assertEquals(3, sidewalk.getNodesCount()),
+                () -> assertEquals(List.of(sidewalk), plan.start().getReferrers()),
+                () -> assertEquals(List.of(sidewalk), plan.end().getReferrers()));
+        UndoRedoHandler.getInstance().add(SequenceCommand.wrapIfNeeded("Test", commands));
+        final var crossings = this.dataSet.getWays().stream().filter(w -> w.hasTag("footway", "crossing")).toList();
+        assertEquals(1, crossings.size());
+        final var crossing = crossings.get(0);
+        assertAll(() -> assertEquals(3, this.dataSet.getWays().size()),
+                () -> assertEquals(2, sidewalk.getNodesCount()),
+                () -> assertEquals(3, highway.getNodesCount()),
+                () -> assertEquals(3, crossing.getNodesCount()),
+                () -> assertTrue(crossing.getNode(1).hasTag("highway", "crossing")),
+                () -> assertTrue(highway.containsNode(crossing.getNode(1))),
+                () -> assertTrue(crossing.lastNode().hasTag("barrier", "kerb")));
+    }
+
+    @Test
+    void testLongSegmentOnlyGetsNode() {
+        final var highway = newWay("highway=residential", 39.0700657, -108.4654122, 39.0701854, -108.4654118);
+        final var sidewalk = newWay("highway=footway footway=sidewalk", 39.07015, -108.466, 39.07015, -108.4648);
+        this.dataSet.addPrimitiveRecursive(highway);
+        this.dataSet.addPrimitiveRecursive(sidewalk);
+        final var engine = new CrossingEngine(this.dataSet);
+        final var plan = engine.plan(sidewalk, true, Collections.emptyList(), true);
+        assertFalse(plan.createWay());
+        UndoRedoHandler.getInstance().add(SequenceCommand.wrapIfNeeded("Test", engine.createCommands(plan)));
+        assertAll(() -> assertEquals(2, this.dataSet.getWays().size()),
+                () -> assertEquals(3, sidewalk.getNodesCount()),
+                () -> assertEquals(3, highway.getNodesCount()),
+                () -> assertEquals(sidewalk.getNode(1), highway.getNode(1)));
+    }
+
+    @Test
+    void testSegmentThroughSharedRoadNode() {
+        final var junction = new Node(new LatLon(39.0701, -108.4654));
+        final var road = TestUtils.newWay("highway=residential", new Node(new LatLon(39.07, -108.4654)), junction,
+                new Node(new LatLon(39.0702, -108.4654)));
+        final var otherRoad = TestUtils.newWay("highway=residential", new Node(new LatLon(39.07, -108.4655)),
+                junction, new Node(new LatLon(39.0702, -108.4653)));
+        final var sidewalk = newWay("highway=footway footway=sidewalk", 39.0701, -108.466, 39.0701, -108.4648);
+        this.dataSet.addPrimitiveRecursive(road);
+        this.dataSet.addPrimitiveRecursive(otherRoad);
+        this.dataSet.addPrimitiveRecursive(sidewalk);
+        final var engine = new CrossingEngine(this.dataSet);
+        final var plan = engine.plan(sidewalk, true, Collections.emptyList(), true);
+        assertEquals(2, plan.crossings().size());
+        UndoRedoHandler.getInstance().add(SequenceCommand.wrapIfNeeded("Test", engine.createCommands(plan)));
+        assertEquals(List.of(sidewalk.firstNode(), junction, sidewalk.lastNode()), sidewalk.getNodes());
+    }
+
+    @Test
+    void testNoCrossings() {
+        final var sidewalk = newWay("highway=footway footway=sidewalk", 39.07015, -108.466, 39.07015, -108.4648);
+        this.dataSet.addPrimitiveRecursive(sidewalk);
+        final var engine = new CrossingEngine(this.dataSet);
+        final var plan = engine.plan(sidewalk, true, Collections.emptyList(), true);
+        assertAll(() -> assertTrue(plan.crossings().isEmpty()),
+                () -> assertTrue(engine.createCommands(plan).isEmpty()));
+    }
+
+    @Test
+    void testPlanIsStaleAfterChange() {
+        final var highway = newWay("highway=residential", 39.0700657, -108.4654122, 39.0701854, -108.4654118);
+        final var sidewalk = newWay("highway=footway footway=sidewalk", 39.07015, -108.466, 39.07015, -108.4648);
+        this.dataSet.addPrimitiveRecursive(highway);
+        this.dataSet.addPrimitiveRecursive(sidewalk);
+        final var engine = new CrossingEngine(this.dataSet);
+        final var plan = engine.plan(sidewalk, true, Collections.emptyList(), true);
+        UndoRedoHandler.getInstance().add(new ChangePropertyCommand(List.of(highway), "name", "Test Street"));
+        assertFalse(engine.isCurrent(plan));
+    }
+
+    @Test
+    void testReplanAfterDrawingContinued() {
+        final var highway = newWay("highway=residential", 39.0700657, -108.4654122, 39.0701854, -108.4654118);
+        final var sidewalk = newWay("highway=footway footway=sidewalk", 39.07015, -108.466, 39.07015, -108.46555,
+                39.07015, -108.46525);
+        this.dataSet.addPrimitiveRecursive(highway);
+        this.dataSet.addPrimitiveRecursive(sidewalk);
+        final var engine = new CrossingEngine(this.dataSet);
+        final var plan = engine.plan(sidewalk, true, Collections.emptyList(), true);
+        // The user draws the next segment before the plan is applied
+        final var next = new Node(new LatLon(39.07015, -108.4649));
+        UndoRedoHandler.getInstance().add(new AddCommand(this.dataSet, next));
+        sidewalk.addNode(next);
+        assertFalse(engine.isCurrent(plan));
+        final var replanned = engine.replan(plan);
+        assertNotNull(replanned);
+        // The segment is no longer at the end of the way, so it can't become a crossing way
+        assertAll(() -> assertTrue(engine.isCurrent(replanned)), () -> assertFalse(replanned.createWay()),
+                () -> assertEquals(1, replanned.crossings().size()));
+        UndoRedoHandler.getInstance().add(SequenceCommand.wrapIfNeeded("Test", engine.createCommands(replanned)));
+        assertAll(() -> assertEquals(5, sidewalk.getNodesCount()),
+                () -> assertEquals(3, highway.getNodesCount()),
+                () -> assertEquals(sidewalk.getNode(2), highway.getNode(1)),
+                () -> assertEquals(next, sidewalk.lastNode()));
+        // The segment is gone
+        sidewalk.setNodes(List.of(sidewalk.firstNode(), next));
+        assertNull(engine.replan(plan));
+    }
+}
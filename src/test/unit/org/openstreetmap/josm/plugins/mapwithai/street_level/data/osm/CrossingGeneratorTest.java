@@ -0,0 +1,180 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.street_level.data.osm;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.openstreetmap.josm.plugins.mapwithai.street_level.testutils.SidewalkTestUtils.newWay;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.command.Command;
+import org.openstreetmap.josm.data.UndoRedoHandler;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+import org.openstreetmap.josm.testutils.annotations.Projection;
+
+/**
+ * Test class for {@link CrossingGenerator}
+ */
+@BasicPreferences
+@Projection
+class CrossingGeneratorTest {
+    private DataSet dataSet;
+
+    @BeforeEach
+    void setup() {
+        UndoRedoHandler.getInstance().clean();
+        this.dataSet = new DataSet();
+    }
+
+    private Command generateCrossings(Collection<Way> footways) {
+        return new CrossingEngine(this.dataSet).generateCrossings(footways);
+    }
+
+    @Test
+    void testShortSegmentBecomesCrossingWay() {
+        final var highway = newWay("highway=residential", 39.0700657, -108.4654122, 39.0701854, -108.4654118);
+        final var sidewalk = newWay("highway=footway footway=sidewalk", 39.07015, -108.466, 39.07015, -108.46555,
+                39.07015, -108.46525, 39.07015, -108.4648);
+        this.dataSet.addPrimitiveRecursive(highway);
+        this.dataSet.addPrimitiveRecursive(sidewalk);
+        final var firstKerb = sidewalk.getNode(1);
+        final var secondKerb = sidewalk.getNode(2);
+        final var command = generateCrossings(List.of(sidewalk));
+        assertNotNull(command);
+        UndoRedoHandler.getInstance().add(command);
+        final var crossings = this.dataSet.getWays().stream().filter(w -> w.hasTag("footway", "crossing")).toList();
+        assertEquals(1, crossings.size());
+        final var crossing = crossings.get(0);
+        assertAll(() -> assertEquals(4, this.dataSet.getWays().size()),
+                () -> assertEquals(3, highway.getNodesCount()),
+                () -> assertEquals(2, sidewalk.getNodesCount()),
+                () -> assertEquals(3, crossing.getNodesCount()),
+                () -> assertEquals(firstKerb, crossing.firstNode()),
+                () -> assertEquals(secondKerb, crossing.lastNode()),
+                () -> assertEquals(highway.getNode(1), crossing.getNode(1)),
+                () -> assertTrue(crossing.getNode(1).hasTag("highway", "crossing")),
+                () -> assertTrue(firstKerb.hasTag("barrier", "kerb")),
+                () -> assertTrue(secondKerb.hasTag("barrier", "kerb")),
+                () -> assertEquals(2, this.dataSet.getWays().stream().filter(w -> w.hasTag("footway", "sidewalk"))
+                        .count()));
+        UndoRedoHandler.getInstance().undo();
+        assertAll(() -> assertEquals(2, this.dataSet.getWays().size()),
+                () -> assertEquals(2, highway.getNodesCount()),
+                () -> assertEquals(4, sidewalk.getNodesCount()),
+                () -> assertFalse(firstKerb.hasKey("barrier")));
+    }
+
+    @Test
+    void testDiscardedCommandLeavesNoReferrers() {
+        final var highway = newWay("highway=residential", 39.0700657, -108.4654122, 39.0701854, -108.4654118);
+        final var sidewalk = newWay("highway=footway footway=sidewalk", 39.07015, -108.466, 39.07015, -108.46555,
+                39.07015, -108.46525, 39.07015, -108.4648);
+        this.dataSet.addPrimitiveRecursive(highway);
+        this.dataSet.addPrimitiveRecursive(sidewalk);
+        // The command is built on a worker thread, and is thrown away if the data changed in the meantime
+        assertNotNull(generateCrossings(List.of(sidewalk)));
+        assertTrue(sidewalk.getNodes().stream().allMatch(node -> node.getReferrers().equals(List.of(sidewalk))));
+    }
+
+    @Test
+    void testLongSegmentOnlyGetsNode() {
+        final var highway = newWay("highway=residential", 39.0700657, -108.4654122, 39.0701854, -108.4654118);
+        final var sidewalk = newWay("highway=footway footway=sidewalk", 39.07015, -108.466, 39.07015, -108.4648);
+        this.dataSet.addPrimitiveRecursive(highway);
+        this.dataSet.addPrimitiveRecursive(sidewalk);
+        final var command = generateCrossings(List.of(sidewalk));
+        assertNotNull(command);
+        UndoRedoHandler.getInstance().add(command);
+        assertAll(() -> assertEquals(2, this.dataSet.getWays().size()),
+                () -> assertEquals(3, highway.getNodesCount()),
+                () -> assertEquals(3, sidewalk.getNodesCount()),
+                () -> assertEquals(highway.getNode(1), sidewalk.getNode(1)),
+                () -> assertFalse(sidewalk.firstNode().hasKey("barrier")));
+    }
+
+    @Test
+    void testSegmentThroughSharedRoadNode() {
+        final var junction = new Node(new LatLon(39.0701, -108.4654));
+        final var road = TestUtils.newWay("highway=residential", new Node(new LatLon(39.07, -108.4654)), junction,
+                new Node(new LatLon(39.0702, -108.4654)));
+        final var otherRoad = TestUtils.newWay("highway=residential", new Node(new LatLon(39.07, -108.4655)),
+                junction, new Node(new LatLon(39.0702, -108.4653)));
+        final var sidewalk = newWay("highway=footway footway=sidewalk", 39.0701, -108.466, 39.0701, -108.4648);
+        this.dataSet.addPrimitiveRecursive(road);
+        this.dataSet.addPrimitiveRecursive(otherRoad);
+        this.dataSet.addPrimitiveRecursive(sidewalk);
+        UndoRedoHandler.getInstance().add(generateCrossings(List.of(sidewalk)));
+        // Both roads resolve to the same node, which must only be added to the sidewalk once
+        assertAll(() -> assertEquals(3, sidewalk.getNodesCount()),
+                () -> assertEquals(junction, sidewalk.getNode(1)),
+                () -> assertTrue(junction.hasTag("highway", "crossing")),
+                () -> assertEquals(3, road.getNodesCount()),
+                () -> assertEquals(3, otherRoad.getNodesCount()));
+    }
+
+    @Test
+    void testRoadsCrossingWithoutNode() {
+        final var road = newWay("highway=residential", 39.07, -108.4654, 39.0702, -108.4654);
+        final var otherRoad = newWay("highway=residential", 39.07, -108.4655, 39.0702, -108.4653);
+        final var sidewalk = newWay("highway=footway footway=sidewalk", 39.0701, -108.466, 39.0701, -108.4648);
+        this.dataSet.addPrimitiveRecursive(road);
+        this.dataSet.addPrimitiveRecursive(otherRoad);
+        this.dataSet.addPrimitiveRecursive(sidewalk);
+        final int nodes = this.dataSet.getNodes().size();
+        UndoRedoHandler.getInstance().add(generateCrossings(List.of(sidewalk)));
+        // A single crossing node is used where both roads cross the sidewalk
+        assertAll(() -> assertEquals(nodes + 1, this.dataSet.getNodes().size()),
+                () -> assertEquals(3, sidewalk.getNodesCount()),
+                () -> assertEquals(sidewalk.getNode(1), road.getNode(1)),
+                () -> assertEquals(sidewalk.getNode(1), otherRoad.getNode(1)));
+    }
+
+    @Test
+    void testNoCrossings() {
+        final var path = newWay("highway=path", 39.0700657, -108.4654122, 39.0701854, -108.4654118);
+        final var sidewalk = newWay("highway=footway footway=sidewalk", 39.07015, -108.466, 39.07015, -108.4648);
+        this.dataSet.addPrimitiveRecursive(path);
+        this.dataSet.addPrimitiveRecursive(sidewalk);
+        assertNull(generateCrossings(List.of(sidewalk, path)));
+    }
+
+    @Test
+    void testManyFootways() {
+        final var roads = new ArrayList<Way>();
+        for (int i = 0; i < 20; i++) {
+            final var road = newWay("highway=residential", 39.0, -108.5 + i * 0.002, 39.05, -108.5 + i * 0.002);
+            this.dataSet.addPrimitiveRecursive(road);
+            roads.add(road);
+        }
+        final var footways = new ArrayList<Way>();
+        for (int j = 1; j < 50; j++) {
+            final var footway = newWay("highway=footway footway=sidewalk", 39.0 + j * 0.001, -108.501,
+                    39.0 + j * 0.001, -108.459);
+            this.dataSet.addPrimitiveRecursive(footway);
+            footways.add(footway);
+        }
+        final var command = generateCrossings(this.dataSet.getWays());
+        assertNotNull(command);
+        UndoRedoHandler.getInstance().add(command);
+        assertAll(() -> assertEquals(69, this.dataSet.getWays().size()),
+                () -> assertTrue(roads.stream().allMatch(road -> road.getNodesCount() == 51)),
+                () -> assertTrue(footways.stream().allMatch(footway -> footway.getNodesCount() == 22)),
+                () -> assertEquals(49 * 20 + 49 * 2 + 20 * 2, this.dataSet.getNodes().size()));
+        UndoRedoHandler.getInstance().undo();
+        assertAll(() -> assertTrue(roads.stream().allMatch(road -> road.getNodesCount() == 2)),
+                () -> assertTrue(footways.stream().allMatch(footway -> footway.getNodesCount() == 2)));
+    }
+}
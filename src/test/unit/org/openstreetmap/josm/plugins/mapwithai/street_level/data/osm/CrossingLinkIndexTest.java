@@ -0,0 +1,138 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.street_level.data.osm;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.command.ChangePropertyCommand;
+import org.openstreetmap.josm.command.DeleteCommand;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+
+/**
+ * Test class for {@link CrossingLinkIndex}
+ */
+class CrossingLinkIndexTest {
+    private DataSet dataSet;
+    private CrossingLinkIndex index;
+    private Node crossingNode;
+    private Way crossingWay;
+
+    @BeforeEach
+    void setup() {
+        this.dataSet = new DataSet();
+        this.index = CrossingLinkIndex.getIndex(this.dataSet);
+        this.crossingNode = TestUtils.newNode("highway=crossing");
+        this.crossingWay = TestUtils.newWay("highway=footway footway=crossing", new Node(LatLon.NORTH_POLE),
+                this.crossingNode, new Node(LatLon.SOUTH_POLE));
+        this.dataSet.addPrimitiveRecursive(this.crossingWay);
+    }
+
+    private void assertLinked() {
+        assertAll(() -> assertEquals(Set.of(this.crossingWay), this.index.getCrossingWays(this.crossingNode)),
+                () -> assertEquals(Set.of(this.crossingNode), this.index.getCrossingNodes(this.crossingWay)));
+    }
+
+    private void assertNotLinked() {
+        assertAll(() -> assertTrue(this.index.getCrossingWays(this.crossingNode).isEmpty()),
+                () -> assertTrue(this.index.getCrossingNodes(this.crossingWay).isEmpty()));
+    }
+
+    @Test
+    void testExistingDataIsIndexed() {
+        final var ds = new DataSet();
+        final var node = TestUtils.newNode("highway=crossing");
+        final var way = TestUtils.newWay("highway=footway footway=crossing", new Node(LatLon.NORTH_POLE), node,
+                new Node(LatLon.SOUTH_POLE));
+        ds.addPrimitiveRecursive(way);
+        assertEquals(Set.of(way), CrossingLinkIndex.getIndex(ds).getCrossingWays(node));
+    }
+
+    @Test
+    void testAdded() {
+        assertLinked();
+        // The other nodes are not crossing nodes
+        assertTrue(this.index.getCrossingWays(this.crossingWay.firstNode()).isEmpty());
+    }
+
+    @Test
+    void testCyclewayAndPathCrossings() {
+        final var cycleway = TestUtils.newWay("highway=cycleway cycleway=crossing", this.crossingNode,
+                new Node(LatLon.ZERO));
+        final var path = TestUtils.newWay("highway=path path=crossing", this.crossingNode, new Node(LatLon.ZERO));
+        // Not a crossing
+        final var cyclewaySidewalk = TestUtils.newWay("highway=cycleway cycleway=sidewalk", this.crossingNode,
+                new Node(LatLon.ZERO));
+        this.dataSet.addPrimitiveRecursive(cycleway);
+        this.dataSet.addPrimitiveRecursive(path);
+        this.dataSet.addPrimitiveRecursive(cyclewaySidewalk);
+        assertAll(() -> assertEquals(Set.of(this.crossingWay, cycleway, path),
+                this.index.getCrossingWays(this.crossingNode)),
+                () -> assertEquals(Set.of(this.crossingNode), this.index.getCrossingNodes(cycleway)),
+                () -> assertTrue(this.index.getCrossingNodes(cyclewaySidewalk).isEmpty()));
+    }
+
+    @Test
+    void testTagChanges() {
+        final var command = new ChangePropertyCommand(this.crossingWay, "footway", "sidewalk");
+        command.executeCommand();
+        assertNotLinked();
+        command.undoCommand();
+        assertLinked();
+        this.crossingNode.remove("highway");
+        assertNotLinked();
+        this.crossingNode.put("highway", "crossing");
+        assertLinked();
+    }
+
+    @Test
+    void testWayNodesChanged() {
+        this.crossingWay.setNodes(List.of(this.crossingWay.firstNode(), this.crossingWay.lastNode()));
+        assertNotLinked();
+        this.crossingWay.addNode(1, this.crossingNode);
+        assertLinked();
+    }
+
+    @Test
+    void testDeleteUndoRedo() {
+        final var command = new DeleteCommand(this.crossingWay);
+        command.executeCommand();
+        assertNotLinked();
+        command.undoCommand();
+        assertLinked();
+        command.executeCommand();
+        assertNotLinked();
+    }
+
+    @Test
+    void testBulkUpdate() {
+        this.dataSet.beginUpdate();
+        try {
+            this.crossingWay.put("footway", "sidewalk");
+            this.crossingWay.put("footway", "crossing");
+            this.crossingNode.put("highway", "traffic_signals");
+        } finally {
+            this.dataSet.endUpdate();
+        }
+        assertNotLinked();
+    }
+
+    @Test
+    void testRefresh() {
+        CrossingLinkIndex.removeIndex(this.dataSet);
+        this.crossingNode.remove("highway");
+        // The index is no longer listening
+        assertLinked();
+        this.index.updateAll(List.of(this.crossingNode));
+        assertNotLinked();
+    }
+}
@@ -0,0 +1,58 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.street_level.data.osm;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+
+/**
+ * Test class for {@link DataSetChangeCounter}
+ */
+class DataSetChangeCounterTest {
+    @Test
+    void testCount() {
+        final var dataSet = new DataSet();
+        final var counter = DataSetChangeCounter.getCounter(dataSet);
+        // Counting changes must not build any of the (expensive) indexes
+        assertAll(() -> assertSame(counter, DataSetChangeCounter.getCounter(dataSet)),
+                () -> assertNull(DataSetIndexes.peek(dataSet, HighwayIndex.class)));
+        final long start = counter.getCount();
+        final var node = new Node(LatLon.ZERO);
+        dataSet.addPrimitive(node);
+        final long added = counter.getCount();
+        assertNotEquals(start, added);
+        node.put("highway", "crossing");
+        final long tagged = counter.getCount();
+        assertNotEquals(added, tagged);
+        node.setCoor(LatLon.NORTH_POLE);
+        assertNotEquals(tagged, counter.getCount());
+    }
+
+    @Test
+    void testBulkUpdate() {
+        final var dataSet = new DataSet();
+        final var counter = DataSetChangeCounter.getCounter(dataSet);
+        final long start = counter.getCount();
+        dataSet.beginUpdate();
+        try {
+            for (int i = 0; i < 1000; i++) {
+                dataSet.addPrimitive(TestUtils.newNode("highway=crossing"));
+            }
+        } finally {
+            dataSet.endUpdate();
+        }
+        assertNotEquals(start, counter.getCount());
+        DataSetIndexes.removeAll(dataSet);
+        final long removed = counter.getCount();
+        dataSet.addPrimitive(new Node(LatLon.ZERO));
+        assertEquals(removed, counter.getCount());
+    }
+}
@@ -0,0 +1,60 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.street_level.data.osm;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.gui.MainApplication;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+import org.openstreetmap.josm.testutils.annotations.Main;
+import org.openstreetmap.josm.testutils.annotations.Projection;
+
+/**
+ * Test class for {@link DataSetIndexes}
+ */
+class DataSetIndexesTest {
+    @Test
+    void testGetAndRemove() {
+        final var dataSet = new DataSet();
+        final var index = HighwayIndex.getIndex(dataSet);
+        assertAll(() -> assertSame(index, HighwayIndex.getIndex(dataSet)),
+                () -> assertSame(index, DataSetIndexes.peek(dataSet, HighwayIndex.class)),
+                () -> assertNull(DataSetIndexes.peek(dataSet, FootwayGraph.class)),
+                () -> assertNotSame(index, HighwayIndex.getIndex(new DataSet())));
+        HighwayIndex.removeIndex(dataSet);
+        assertAll(() -> assertNull(DataSetIndexes.peek(dataSet, HighwayIndex.class)),
+                () -> assertFalse(DataSetIndexes.hasIndexes(dataSet)),
+                () -> assertNotSame(index, HighwayIndex.getIndex(dataSet)));
+    }
+
+    @Test
+    @BasicPreferences
+    @Main
+    @Projection
+    void testLayerRemovalDropsIndexes() {
+        final var layerCleanup = new DataSetIndexes.LayerCleanup();
+        final var layerManager = MainApplication.getLayerManager();
+        layerManager.addLayerChangeListener(layerCleanup);
+        try {
+            final var layer = new OsmDataLayer(new DataSet(), "testLayerRemovalDropsIndexes", null);
+            layerManager.addLayer(layer);
+            final var dataSet = layer.getDataSet();
+            HighwayIndex.getIndex(dataSet);
+            FootwayGraph.getGraph(dataSet);
+            assertTrue(DataSetIndexes.hasIndexes(dataSet));
+            layerManager.removeLayer(layer);
+            assertAll(() -> assertFalse(DataSetIndexes.hasIndexes(dataSet)),
+                    () -> assertNull(DataSetIndexes.peek(dataSet, HighwayIndex.class)),
+                    () -> assertNull(DataSetIndexes.peek(dataSet, FootwayGraph.class)));
+        } finally {
+            layerManager.removeLayerChangeListener(layerCleanup);
+        }
+    }
+}
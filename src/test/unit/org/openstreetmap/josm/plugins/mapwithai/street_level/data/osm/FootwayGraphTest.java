@@ -0,0 +1,127 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.street_level.data.osm;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.openstreetmap.josm.plugins.mapwithai.street_level.testutils.SidewalkTestUtils.newWay;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+
+/**
+ * Test class for {@link FootwayGraph}
+ */
+class FootwayGraphTest {
+    private DataSet dataSet;
+    private FootwayGraph graph;
+
+    @BeforeEach
+    void setup() {
+        this.dataSet = new DataSet();
+        this.graph = FootwayGraph.getGraph(this.dataSet);
+    }
+
+    @Test
+    void testOnlyFootwaysAreTracked() {
+        final var footway = newWay("highway=footway footway=sidewalk", 39.07, -108.46, 39.07, -108.45);
+        final var road = newWay("highway=residential", 39.06, -108.46, 39.06, -108.45);
+        this.dataSet.addPrimitiveRecursive(footway);
+        this.dataSet.addPrimitiveRecursive(road);
+        assertAll(() -> assertTrue(this.graph.contains(footway)), () -> assertFalse(this.graph.contains(road)),
+                () -> assertEquals(1, this.graph.getDegree(footway.firstNode())),
+                () -> assertEquals(0, this.graph.getDegree(road.firstNode())),
+                () -> assertTrue(this.graph.hasType(footway.firstNode(), FootwayGraph.TYPE_SIDEWALK)),
+                () -> assertFalse(this.graph.hasType(footway.firstNode(), FootwayGraph.TYPE_CROSSING)));
+    }
+
+    @Test
+    void testExistingDataIsTracked() {
+        final var ds = new DataSet();
+        final var footway = newWay("highway=footway", 39.07, -108.46, 39.07, -108.45);
+        ds.addPrimitiveRecursive(footway);
+        assertEquals(List.of(footway), FootwayGraph.getGraph(ds).getFootways(footway.lastNode(), null));
+    }
+
+    @Test
+    void testInnerNodesAndEndpoints() {
+        final var footway = newWay("highway=footway", 39.07, -108.46, 39.07, -108.455, 39.07, -108.45);
+        final var closed = newWay("highway=footway", 39.08, -108.46, 39.08, -108.45, 39.085, -108.455);
+        this.dataSet.addPrimitiveRecursive(footway);
+        this.dataSet.addPrimitiveRecursive(closed);
+        closed.addNode(closed.firstNode());
+        assertAll(() -> assertFalse(this.graph.isInnerNode(footway.firstNode(), footway)),
+                () -> assertTrue(this.graph.isInnerNode(footway.getNode(1), footway)),
+                () -> assertEquals(2, this.graph.getDegree(footway.getNode(1))),
+                () -> assertFalse(this.graph.isInMiddleOfFootway(footway.lastNode(), null, null)),
+                () -> assertTrue(this.graph.isInMiddleOfFootway(footway.getNode(1), null, null)),
+                () -> assertFalse(this.graph.isInMiddleOfFootway(footway.getNode(1), footway, null)),
+                () -> assertTrue(this.graph.isInnerNode(closed.firstNode(), closed)),
+                () -> assertTrue(this.graph.isInMiddleOfFootway(closed.firstNode(), null, null)));
+    }
+
+    @Test
+    void testJunction() {
+        final var first = newWay("highway=footway", 39.07, -108.46, 39.07, -108.455);
+        this.dataSet.addPrimitiveRecursive(first);
+        final var second = newWay("highway=footway footway=crossing", 39.07, -108.45);
+        second.addNode(0, first.lastNode());
+        this.dataSet.addPrimitive(second.lastNode());
+        this.dataSet.addPrimitive(second);
+        final var junction = first.lastNode();
+        assertAll(() -> assertEquals(2, this.graph.getFootwayCount(junction, null)),
+                () -> assertEquals(1, this.graph.getFootwayCount(junction, first)),
+                () -> assertEquals(List.of(second), this.graph.getFootways(junction, first)),
+                () -> assertTrue(this.graph.isInMiddleOfFootway(junction, null, null)),
+                () -> assertFalse(this.graph.isInMiddleOfFootway(junction, first, null)),
+                () -> assertFalse(this.graph.isInMiddleOfFootway(junction, first, second)),
+                () -> assertTrue(this.graph.hasType(junction, FootwayGraph.TYPE_CROSSING)));
+    }
+
+    @Test
+    void testChanges() {
+        final var footway = newWay("highway=footway", 39.07, -108.46, 39.07, -108.455);
+        this.dataSet.addPrimitiveRecursive(footway);
+        final var first = footway.firstNode();
+        final var last = footway.lastNode();
+        footway.put("footway", "sidewalk");
+        assertTrue(this.graph.hasType(first, FootwayGraph.TYPE_SIDEWALK));
+        footway.put("highway", "path");
+        assertAll(() -> assertFalse(this.graph.contains(footway)), () -> assertEquals(0, this.graph.getDegree(first)));
+        footway.put("highway", "footway");
+        final var replacement = new Node(new LatLon(39.075, -108.46));
+        this.dataSet.addPrimitive(replacement);
+        footway.setNodes(List.of(replacement, last));
+        assertAll(() -> assertEquals(0, this.graph.getDegree(first)), () -> assertEquals(1, this.graph.getDegree(last)),
+                () -> assertEquals(1, this.graph.getDegree(replacement)));
+        this.dataSet.removePrimitive(footway);
+        assertAll(() -> assertFalse(this.graph.contains(footway)), () -> assertEquals(0, this.graph.getDegree(last)));
+    }
+
+    @Test
+    void testSlotsAreReused() {
+        final var footways = new ArrayList<Way>();
+        for (int i = 0; i < 1000; i++) {
+            final var footway = newWay("highway=footway", 39.07, -108.46 + i * 0.001, 39.07, -108.4595 + i * 0.001);
+            this.dataSet.addPrimitiveRecursive(footway);
+            footways.add(footway);
+        }
+        final int slots = this.graph.getSlotCount();
+        for (int round = 0; round < 5; round++) {
+            for (Way footway : footways) {
+                footway.put("highway", "path");
+                footway.put("highway", "footway");
+            }
+        }
+        assertAll(() -> assertTrue(this.graph.getSlotCount() <= 3 * slots),
+                () -> footways.forEach(footway -> assertEquals(1, this.graph.getDegree(footway.firstNode()))));
+    }
+}
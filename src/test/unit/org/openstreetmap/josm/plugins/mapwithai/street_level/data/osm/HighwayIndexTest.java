@@ -0,0 +1,99 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.street_level.data.osm;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.openstreetmap.josm.plugins.mapwithai.street_level.testutils.SidewalkTestUtils.newWay;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Way;
+
+/**
+ * Test class for {@link HighwayIndex}
+ */
+class HighwayIndexTest {
+    private DataSet dataSet;
+    private HighwayIndex index;
+
+    @BeforeEach
+    void setup() {
+        this.dataSet = new DataSet();
+        this.index = HighwayIndex.getIndex(this.dataSet);
+    }
+
+    private static BBox bbox(double lat1, double lon1, double lat2, double lon2) {
+        return new BBox(lon1, lat1, lon2, lat2);
+    }
+
+    @Test
+    void testOnlyHighwaysAreIndexed() {
+        final var highway = newWay("highway=residential", 39.0700657, -108.4654122, 39.0701854, -108.4654118);
+        final var building = newWay("building=yes", 39.0700657, -108.4654122, 39.0701854, -108.4654118);
+        this.dataSet.addPrimitiveRecursive(highway);
+        this.dataSet.addPrimitiveRecursive(building);
+        final List<Way> found = this.index.search(bbox(39.0701, -108.4655, 39.0702, -108.4653));
+        assertEquals(List.of(highway), found);
+        assertTrue(this.index.search(bbox(39.1, -108.4655, 39.2, -108.4653)).isEmpty());
+    }
+
+    @Test
+    void testExistingDataIsIndexed() {
+        final var ds = new DataSet();
+        final var highway = newWay("highway=residential", 39.0700657, -108.4654122, 39.0701854, -108.4654118);
+        ds.addPrimitiveRecursive(highway);
+        assertEquals(List.of(highway),
+                HighwayIndex.getIndex(ds).search(bbox(39.0701, -108.4655, 39.0702, -108.4653)));
+    }
+
+    @Test
+    void testTagChanges() {
+        final var way = newWay("", 39.0700657, -108.4654122, 39.0701854, -108.4654118);
+        this.dataSet.addPrimitiveRecursive(way);
+        final var bbox = bbox(39.0701, -108.4655, 39.0702, -108.4653);
+        assertTrue(this.index.search(bbox).isEmpty());
+        way.put("highway", "service");
+        assertEquals(List.of(way), this.index.search(bbox));
+        way.remove("highway");
+        assertTrue(this.index.search(bbox).isEmpty());
+    }
+
+    @Test
+    void testNodeMoved() {
+        final var highway = newWay("highway=residential", 39.0700657, -108.4654122, 39.0701854, -108.4654118);
+        this.dataSet.addPrimitiveRecursive(highway);
+        final var oldBBox = bbox(39.0701, -108.4655, 39.0702, -108.4653);
+        final var newBBox = bbox(39.5, -108.5, 39.6, -108.4);
+        assertFalse(this.index.search(oldBBox).isEmpty());
+        highway.firstNode().setCoor(new LatLon(39.55, -108.45));
+        highway.lastNode().setCoor(new LatLon(39.56, -108.45));
+        assertAll(() -> assertTrue(this.index.search(oldBBox).isEmpty()),
+                () -> assertEquals(List.of(highway), this.index.search(newBBox)));
+    }
+
+    @Test
+    void testWayRemoved() {
+        final var highway = newWay("highway=residential", 39.0700657, -108.4654122, 39.0701854, -108.4654118);
+        this.dataSet.addPrimitiveRecursive(highway);
+        final long count = this.index.getModificationCount();
+        this.dataSet.removePrimitive(highway);
+        assertAll(() -> assertFalse(this.index.contains(highway)),
+                () -> assertTrue(this.index.search(bbox(39.0701, -108.4655, 39.0702, -108.4653)).isEmpty()),
+                () -> assertNotEquals(count, this.index.getModificationCount()));
+    }
+
+    @Test
+    void testLongSegment() {
+        final var highway = newWay("highway=motorway", 39.0, -109.0, 40.0, -108.0);
+        this.dataSet.addPrimitiveRecursive(highway);
+        assertEquals(List.of(highway), this.index.search(bbox(39.5, -108.51, 39.51, -108.5)));
+    }
+}
@@ -0,0 +1,38 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.street_level.data.osm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Test class for {@link LengthParser}
+ */
+class LengthParserTest {
+    @ParameterizedTest
+    @CsvSource(delimiter = ';', value = { "3;3", "3.5;3.5", "3,5;3.5", ".5;0.5", "12.;12", " 3.5 ;3.5", "3.5 m;3.5",
+            "3.5m;3.5", "1.2 km;1200", "1 mi;1609.344", "1 nmi;1852", "10 ft;3.048", "6 in;0.1524", "12';3.6576",
+            "12'6\";3.81", "12' 6\";3.81", "6\";0.1524", "12 ft 6 in;3.81", "0.1;0.1", "2.675;2.675" })
+    void testParse(String value, double expected) {
+        assertEquals(expected, LengthParser.parseUncached(value), 1e-9, value);
+        assertEquals(expected, LengthParser.parse(value), 1e-9, value);
+        // Cached
+        assertEquals(expected, LengthParser.parse(value), 1e-9, value);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "", " ", "wide", "m", "3 furlongs", "3.5.5", "3 m wide", "-3", "12'6", "12' 6 ft",
+            "1234567890123456", "3 M" })
+    void testNotUnderstood(String value) {
+        assertTrue(Double.isNaN(LengthParser.parse(value)), value);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "0.1", "2.675", "3.14159", "0,3" })
+    void testCorrectlyRounded(String value) {
+        assertEquals(Double.parseDouble(value.replace(',', '.')), LengthParser.parseUncached(value));
+    }
+}
@@ -0,0 +1,112 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.street_level.data.osm;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.openstreetmap.josm.plugins.mapwithai.street_level.testutils.SidewalkTestUtils.newWay;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+
+/**
+ * Test class for {@link NodeSnapper}
+ */
+class NodeSnapperTest {
+    private static final double LAT = 39.07;
+    private static final double LON = -108.46;
+    /** Roughly 0.11m of latitude */
+    private static final double STEP = 1e-6;
+
+    @Test
+    void testNearest() {
+        final var first = new Node(new LatLon(LAT, LON));
+        final var second = new Node(new LatLon(LAT + 3 * STEP, LON));
+        final var snapper = new NodeSnapper(List.of(first, second), 0.5, LAT);
+        assertAll(() -> assertSame(first, snapper.snap(new LatLon(LAT + STEP, LON))),
+                () -> assertSame(second, snapper.snap(new LatLon(LAT + 2 * STEP, LON))),
+                () -> assertNull(snapper.snap(new LatLon(LAT + 10 * STEP, LON))),
+                () -> assertNull(snapper.snap(new LatLon(LAT, LON + 10 * STEP))));
+    }
+
+    @Test
+    void testNeighbouringCells() {
+        // Nodes on either side of a cell boundary are still found
+        for (int i = 0; i < 20; i++) {
+            final var node = new Node(new LatLon(LAT + i * STEP, LON - i * STEP));
+            final var snapper = new NodeSnapper(List.of(node), 0.25, LAT);
+            final var point = new LatLon(LAT + (i + 1) * STEP, LON - (i + 1) * STEP);
+            assertSame(node, snapper.snap(point), Integer.toString(i));
+        }
+    }
+
+    @Test
+    void testInvalidTolerance() {
+        final List<Node> nodes = List.of();
+        assertThrows(IllegalArgumentException.class, () -> new NodeSnapper(nodes, 0, LAT));
+    }
+
+    @Test
+    void testForFootways() {
+        final var dataSet = new DataSet();
+        final var footway = newWay("highway=footway footway=sidewalk", LAT, LON, LAT + 0.001, LON);
+        final var road = newWay("highway=residential", LAT, LON + 0.001, LAT + 0.001, LON + 0.001);
+        dataSet.addPrimitiveRecursive(footway);
+        dataSet.addPrimitiveRecursive(road);
+        // Starts at the end of the footway, and ends at the end of the road
+        final var generated = newWay("highway=footway", LAT + 0.001 + STEP, LON, LAT + 0.001 + STEP, LON + 0.001);
+        final var snapped = NodeSnapper.forFootways(dataSet, List.of(generated), 0.5).snap(List.of(generated));
+        assertEquals(1, snapped.size());
+        assertSame(footway.lastNode(), snapped.get(generated.firstNode()));
+    }
+
+    @Test
+    void testConsecutiveNodesAreKept() {
+        final var existing = new Node(new LatLon(LAT, LON));
+        final var generated = newWay("highway=footway", LAT + STEP, LON, LAT - STEP, LON, LAT - 0.001, LON);
+        final var snapped = new NodeSnapper(List.of(existing), 0.5, LAT).snap(List.of(generated));
+        assertAll(() -> assertEquals(1, snapped.size()),
+                () -> assertSame(existing, snapped.get(generated.firstNode())));
+    }
+
+    @Test
+    void testNodesAreNotReused() {
+        // The first and the last node are both close to the existing node, but they are not consecutive
+        final var existing = new Node(new LatLon(LAT, LON));
+        final var generated = newWay("highway=footway", LAT + STEP, LON, LAT + 10 * STEP, LON, LAT - STEP, LON);
+        final var snapped = new NodeSnapper(List.of(existing), 0.5, LAT).snap(List.of(generated));
+        assertAll(() -> assertEquals(1, snapped.size()),
+                () -> assertSame(existing, snapped.get(generated.firstNode())));
+    }
+
+    @Test
+    void testForFootwaysHighLatitude() {
+        // A degree of longitude is only half as long at 60 degrees, so the footway is 0.4m away from the generated way
+        final double lat = 60;
+        final double lon = LON + 0.4 / (NodeSnapper.METRES_PER_DEGREE * 0.5);
+        final var dataSet = new DataSet();
+        final var footway = newWay("highway=footway footway=sidewalk", lat, lon, lat, lon + 0.001);
+        dataSet.addPrimitiveRecursive(footway);
+        final var generated = newWay("highway=footway", lat, LON, lat, LON - 0.001);
+        final var snapped = NodeSnapper.forFootways(dataSet, List.of(generated), 0.5).snap(List.of(generated));
+        assertSame(footway.firstNode(), snapped.get(generated.firstNode()));
+    }
+
+    @Test
+    void testClosedWay() {
+        final var existing = new Node(new LatLon(LAT, LON));
+        final var generated = newWay("highway=footway", LAT + STEP, LON, LAT + 0.001, LON, LAT + 0.001, LON + 0.001);
+        generated.addNode(generated.firstNode());
+        final var snapped = new NodeSnapper(List.of(existing), 0.5, LAT).snap(List.of(generated));
+        assertAll(() -> assertEquals(1, snapped.size()),
+                () -> assertTrue(generated.isClosed()),
+                () -> assertSame(existing, snapped.get(generated.lastNode())));
+    }
+}
@@ -0,0 +1,106 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.street_level.data.osm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.openstreetmap.josm.plugins.mapwithai.street_level.testutils.SidewalkTestUtils.assertLatLonEquals;
+import static org.openstreetmap.josm.plugins.mapwithai.street_level.testutils.SidewalkTestUtils.newWay;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.testutils.annotations.Projection;
+import org.openstreetmap.josm.tools.Geometry;
+
+/**
+ * Test class for {@link OffsetKernel}
+ */
+@Projection
+class OffsetKernelTest {
+    private static final double OFFSET = 5.75;
+
+    /**
+     * The offset point for a corner, computed with {@link Geometry}
+     */
+    private static double[] expectedCorner(Node first, Node second, Node third) {
+        final double cornerAngle = Geometry.getCornerAngle(first.getEastNorth(), second.getEastNorth(),
+                third.getEastNorth());
+        final double lastAngle = second.getEastNorth().heading(third.getEastNorth());
+        final double angle = Geometry.angleIsClockwise(second, first, third)
+                ? lastAngle + (2 * Math.PI - cornerAngle) / 2
+                : lastAngle - cornerAngle / 2;
+        final var latLon = Geometry.getLatLonFrom(second, angle, OFFSET);
+        return new double[] { latLon.lat(), latLon.lon() };
+    }
+
+    private static double[] expectedEnd(Node from, Node to, Node end) {
+        final var latLon = Geometry.getLatLonFrom(end, from.getEastNorth().heading(to.getEastNorth()) + Math.PI / 2,
+                OFFSET);
+        return new double[] { latLon.lat(), latLon.lon() };
+    }
+
+    private static void assertPoint(double[] expected, double[] actual, int index) {
+        assertLatLonEquals(expected[0], expected[1], actual[2 * index], actual[2 * index + 1]);
+    }
+
+    @Test
+    void testOpenLine() {
+        final var way = newWay("", 39.1693132, -108.7186835, 39.1693101, -108.7175632, 39.1693223, -108.7166861,
+                39.1699, -108.716);
+        final double[] right = OffsetKernel.offset(way.getNodes(), false, false, OFFSET);
+        assertEquals(8, right.length);
+        assertPoint(expectedEnd(way.getNode(0), way.getNode(1), way.getNode(0)), right, 0);
+        assertPoint(expectedCorner(way.getNode(0), way.getNode(1), way.getNode(2)), right, 1);
+        assertPoint(expectedCorner(way.getNode(1), way.getNode(2), way.getNode(3)), right, 2);
+        assertPoint(expectedEnd(way.getNode(2), way.getNode(3), way.getNode(3)), right, 3);
+
+        final double[] left = OffsetKernel.offset(way.getNodes(), false, true, OFFSET);
+        assertPoint(expectedEnd(way.getNode(3), way.getNode(2), way.getNode(3)), left, 0);
+        assertPoint(expectedCorner(way.getNode(3), way.getNode(2), way.getNode(1)), left, 1);
+        assertPoint(expectedEnd(way.getNode(1), way.getNode(0), way.getNode(0)), left, 3);
+    }
+
+    @Test
+    void testClosedLine() {
+        final var way = newWay("", 39.0680771, -108.5655669, 39.0679765, -108.5655681, 39.0679718, -108.5652099,
+                39.0680968, -108.5652026);
+        way.addNode(way.firstNode());
+        final double[] right = OffsetKernel.offset(way.getNodes(), true, false, OFFSET);
+        assertEquals(10, right.length);
+        final double[] first = expectedCorner(way.getNode(3), way.getNode(0), way.getNode(1));
+        assertPoint(first, right, 0);
+        assertPoint(first, right, 4);
+        assertPoint(expectedCorner(way.getNode(0), way.getNode(1), way.getNode(2)), right, 1);
+    }
+
+    @Test
+    void testBatch() {
+        // Enough vertices for several vectors and a tail
+        final int count = 37;
+        final double[] lat = new double[count];
+        final double[] lon = new double[count];
+        final double[] angles = new double[count];
+        final double[] sinDistance = new double[count];
+        final double[] cosDistance = new double[count];
+        for (int i = 0; i < count; i++) {
+            lat[i] = Math.toRadians(39.07 + i * 0.01);
+            lon[i] = Math.toRadians(-108.46 - i * 0.01);
+            angles[i] = i * 0.3;
+            final double angularDistance = OffsetKernel.angularDistance(OFFSET + i);
+            sinDistance[i] = Math.sin(angularDistance);
+            cosDistance[i] = Math.cos(angularDistance);
+        }
+        final double[] scalarLat = new double[count];
+        final double[] scalarLon = new double[count];
+        OffsetKernel.offsetBatchScalar(lat, lon, angles, sinDistance, cosDistance, 0, count, scalarLat, scalarLon);
+        final double[] batchLat = new double[count];
+        final double[] batchLon = new double[count];
+        OffsetKernel.offsetBatch(lat, lon, angles, sinDistance, cosDistance, count, batchLat, batchLon);
+        final double[] latLon = { Math.toDegrees(lat[5]), Math.toDegrees(lon[5]) };
+        final double[] single = new double[2];
+        OffsetKernel.offset(latLon, new double[] { angles[5] }, 1, false, OFFSET + 5, single);
+        assertLatLonEquals(single[0], single[1], Math.toDegrees(scalarLat[5]), Math.toDegrees(scalarLon[5]));
+        for (int i = 0; i < count; i++) {
+            assertLatLonEquals(Math.toDegrees(scalarLat[i]), Math.toDegrees(scalarLon[i]),
+                    Math.toDegrees(batchLat[i]), Math.toDegrees(batchLon[i]));
+        }
+    }
+}
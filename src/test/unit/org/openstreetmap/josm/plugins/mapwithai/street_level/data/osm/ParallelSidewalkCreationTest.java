@@ -1,16 +1,26 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.plugins.mapwithai.street_level.data.osm;
 
+import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.openstreetmap.josm.plugins.mapwithai.street_level.testutils.SidewalkTestUtils.assertLatLonEquals;
 import static org.openstreetmap.josm.plugins.mapwithai.street_level.testutils.SidewalkTestUtils.newWay;
 
 import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.testutils.annotations.Projection;
 
@@ -99,4 +109,165 @@ class ParallelSidewalkCreationTest {
         assertSame(sidewalk.firstNode(), sidewalk.lastNode());
         assertLatLonEquals(39.0681125, -108.5656153, sidewalk.firstNode().lat(), sidewalk.firstNode().lon());
     }
+
+    @Test
+    void testManyWays() {
+        final var ways = new ArrayList<Way>();
+        for (int i = 0; i < 100; i++) {
+            ways.add(newWay("highway=residential", 39.1693132 + i * 0.001, -108.7186835, 39.1693101 + i * 0.001,
+                    -108.7175632));
+        }
+        // A width that cannot be parsed falls back to the default width
+        ways.add(newWay("highway=residential width=wide", 39.2, -108.7186835, 39.2, -108.7175632));
+        final List<ParallelSidewalkCreation.ParallelSidewalk> sidewalks = ParallelSidewalkCreation
+                .createAllParallelSidewalks(ways, ParallelSidewalkCreation.Options.values());
+        assertEquals(202, sidewalks.size());
+        assertEquals(11.5 / 2, sidewalks.get(200).offset());
+        for (int i = 0; i < 100; i++) {
+            assertSame(ways.get(i), sidewalks.get(2 * i).road());
+            assertSame(ParallelSidewalkCreation.Options.RIGHT, sidewalks.get(2 * i).side());
+            assertEquals(11.5 / 2, sidewalks.get(2 * i).offset());
+            final var right = sidewalks.get(2 * i).sidewalk();
+            assertEquals(ways.get(i).getNodesCount(), right.getNodesCount());
+            assertTrue(right.firstNode().lat() < ways.get(i).firstNode().lat());
+        }
+    }
+
+    @Test
+    void testArea() {
+        final var dataSet = new DataSet();
+        final var road = newWay("highway=residential", 39.1693132, -108.7186835, 39.1693101, -108.7175632);
+        final var footway = newWay("highway=footway", 39.1694, -108.7186835, 39.1694, -108.7175632);
+        final var outside = newWay("highway=residential", 39.3, -108.7186835, 39.3, -108.7175632);
+        dataSet.addPrimitiveRecursive(road);
+        dataSet.addPrimitiveRecursive(footway);
+        dataSet.addPrimitiveRecursive(outside);
+        final var bbox = new BBox(-108.72, 39.16, -108.71, 39.17);
+        assertEquals(2, ParallelSidewalkCreation.createAllParallelSidewalks(dataSet, bbox,
+                ParallelSidewalkCreation.Options.values()).size());
+    }
+
+    @Test
+    void testAreaSkipsRoadsWithSidewalks() {
+        final var dataSet = new DataSet();
+        final var road = newWay("highway=residential", 39.1693132, -108.7186835, 39.1693101, -108.7175632);
+        final var tagged = newWay("highway=residential sidewalk=separate", 39.1650, -108.7186835, 39.1650,
+                -108.7175632);
+        final var linked = newWay("highway=residential", 39.1620, -108.7186835, 39.1620, -108.7175632);
+        dataSet.addPrimitiveRecursive(road);
+        dataSet.addPrimitiveRecursive(tagged);
+        dataSet.addPrimitiveRecursive(linked);
+        final var links = SidewalkLinks.getLinks(dataSet);
+        for (ParallelSidewalkCreation.ParallelSidewalk sidewalk : ParallelSidewalkCreation
+                .createAllParallelSidewalks(List.of(linked), ParallelSidewalkCreation.Options.values())) {
+            dataSet.addPrimitiveRecursive(sidewalk.sidewalk());
+            links.link(sidewalk);
+        }
+        final var bbox = new BBox(-108.72, 39.16, -108.71, 39.17);
+        assertEquals(List.of(road), ParallelSidewalkCreation.getRoadsWithoutSidewalks(dataSet, bbox));
+        final var sidewalks = ParallelSidewalkCreation.createAllParallelSidewalks(dataSet, bbox,
+                ParallelSidewalkCreation.Options.values());
+        assertAll(() -> assertEquals(2, sidewalks.size()),
+                () -> assertTrue(sidewalks.stream().map(ParallelSidewalkCreation.ParallelSidewalk::road)
+                        .allMatch(road::equals)));
+    }
+
+    @Test
+    void testMarkSeparate() {
+        final var dataSet = new DataSet();
+        final var road = newWay("highway=residential", 39.1693132, -108.7186835, 39.1693101, -108.7175632);
+        final var tagged = newWay("highway=residential sidewalk:left=no", 39.1650, -108.7186835, 39.1650,
+                -108.7175632);
+        dataSet.addPrimitiveRecursive(road);
+        dataSet.addPrimitiveRecursive(tagged);
+        final var command = ParallelSidewalkCreation.createMarkSeparateCommand(List.of(road, road, tagged));
+        assertNotNull(command);
+        command.executeCommand();
+        assertAll(() -> assertEquals("separate", road.get("sidewalk")), () -> assertFalse(tagged.hasKey("sidewalk")));
+        // The road is skipped the next time, even without the links from this session
+        assertTrue(ParallelSidewalkCreation.getRoadsWithoutSidewalks(dataSet, new BBox(-108.72, 39.16, -108.71, 39.17))
+                .isEmpty());
+        assertNull(ParallelSidewalkCreation.createMarkSeparateCommand(List.of(road, tagged)));
+    }
+
+    @Test
+    void testFactories() {
+        final var way = newWay("", 39.1693132, -108.7186835, 39.1693101, -108.7175632, 39.1693223, -108.7166861);
+        final var nodes = new AtomicInteger();
+        final var ways = new AtomicInteger();
+        final Map<ParallelSidewalkCreation.Options, Way> parallelSidewalks = ParallelSidewalkCreation
+                .createParallelSidewalks(way, () -> {
+                    nodes.incrementAndGet();
+                    return new Node();
+                }, () -> {
+                    ways.incrementAndGet();
+                    return new Way();
+                }, ParallelSidewalkCreation.Options.values());
+        assertEquals(2, parallelSidewalks.size());
+        assertEquals(6, nodes.get());
+        assertEquals(2, ways.get());
+        final var reflective = ParallelSidewalkCreation.createParallelSidewalks(way,
+                ParallelSidewalkCreation.Options.values());
+        for (ParallelSidewalkCreation.Options option : ParallelSidewalkCreation.Options.values()) {
+            for (int i = 0; i < way.getNodesCount(); i++) {
+                assertLatLonEquals(reflective.get(option).getNode(i), parallelSidewalks.get(option).getNode(i));
+            }
+        }
+    }
+
+    @Test
+    void testBatched() {
+        final var ways = new ArrayList<Way>();
+        for (int i = 0; i < 50; i++) {
+            ways.add(newWay("highway=residential", 39.1693132 + i * 0.001, -108.7186835, 39.1693101 + i * 0.001,
+                    -108.7175632, 39.1693223 + i * 0.001, -108.7166861));
+        }
+        final var closed = newWay("highway=residential width=12", 39.0680771, -108.5655669, 39.0679765, -108.5655681,
+                39.0679718, -108.5652099, 39.0680968, -108.5652026);
+        closed.addNode(closed.firstNode());
+        ways.add(closed);
+        ways.add(newWay("highway=residential width=wide", 39.2, -108.7186835, 39.2, -108.7175632));
+        final List<Way> expected = ParallelSidewalkCreation
+                .createAllParallelSidewalks(ways, ParallelSidewalkCreation.Options.values()).stream()
+                .map(ParallelSidewalkCreation.ParallelSidewalk::sidewalk).toList();
+        final List<Way> batched = ParallelSidewalkCreation
+                .createAllParallelSidewalksBatched(ways, ParallelSidewalkCreation.Options.values()).stream()
+                .map(ParallelSidewalkCreation.ParallelSidewalk::sidewalk).toList();
+        assertEquals(expected.size(), batched.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getNodesCount(), batched.get(i).getNodesCount());
+            assertEquals(expected.get(i).isClosed(), batched.get(i).isClosed());
+            for (int j = 0; j < expected.get(i).getNodesCount(); j++) {
+                assertLatLonEquals(expected.get(i).getNode(j), batched.get(i).getNode(j));
+            }
+        }
+    }
+
+    @Test
+    void testOffsets() {
+        final var right = ParallelSidewalkCreation.Options.RIGHT;
+        final var left = ParallelSidewalkCreation.Options.LEFT;
+        assertAll(() -> assertEquals(5.75, ParallelSidewalkCreation.getOffset(newWay("highway=residential"), right)),
+                () -> assertEquals(7.5, ParallelSidewalkCreation.getOffset(newWay("highway=residential width=12"),
+                        left)),
+                () -> assertEquals(4.5, ParallelSidewalkCreation
+                        .getOffset(newWay("highway=residential width=12 width:carriageway=6"), left)),
+                () -> assertEquals(8.5, ParallelSidewalkCreation.getOffset(newWay("highway=residential lanes=4"),
+                        right)),
+                () -> assertEquals(5.75, ParallelSidewalkCreation.getOffset(newWay("highway=residential lanes=x"),
+                        right)),
+                // The way is on the left edge of the road, so the left sidewalk is right next to it
+                () -> assertEquals(1.5, ParallelSidewalkCreation
+                        .getOffset(newWay("highway=residential lanes=2 placement=left_of:1"), left)),
+                () -> assertEquals(8.5, ParallelSidewalkCreation
+                        .getOffset(newWay("highway=residential lanes=2 placement=left_of:1"), right)),
+                () -> assertEquals(3.25, ParallelSidewalkCreation
+                        .getOffset(newWay("highway=residential lanes=2 placement=middle_of:1"), left)),
+                () -> assertEquals(5, ParallelSidewalkCreation
+                        .getOffset(newWay("highway=residential lanes=2 placement=right_of:1"), left)),
+                () -> assertEquals(5, ParallelSidewalkCreation
+                        .getOffset(newWay("highway=residential lanes=2 placement=right_of:3"), left)),
+                () -> assertEquals(5, ParallelSidewalkCreation
+                        .getOffset(newWay("highway=residential lanes=2 placement=transition"), left)));
+    }
 }
@@ -0,0 +1,74 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.street_level.data.osm;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.openstreetmap.josm.plugins.mapwithai.street_level.testutils.SidewalkTestUtils.newWay;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for {@link PolylineSimplifier}
+ */
+class PolylineSimplifierTest {
+    private static final double LAT = 39.07;
+    private static final double LON = -108.46;
+    /** Roughly 1.1m of latitude */
+    private static final double STEP = 1e-5;
+
+    @Test
+    void testNearlyStraightLine() {
+        final int count = 20;
+        final double[] latLon = new double[2 * count];
+        for (int i = 0; i < count; i++) {
+            // Wobbles by about 5cm
+            latLon[2 * i] = LAT + i * STEP;
+            latLon[2 * i + 1] = LON + (i % 2) * STEP / 20;
+        }
+        final boolean[] keep = new boolean[count];
+        assertEquals(2, PolylineSimplifier.simplify(latLon, count, 0.2, keep));
+        assertAll(() -> assertTrue(keep[0]), () -> assertTrue(keep[count - 1]));
+        assertEquals(count, PolylineSimplifier.simplify(latLon, count, 0.01, keep));
+        assertEquals(count, PolylineSimplifier.simplify(latLon, count, 0, keep));
+    }
+
+    @Test
+    void testCornersAreKept() {
+        final double[] latLon = { LAT, LON, LAT + STEP, LON, LAT + 2 * STEP, LON, LAT + 2 * STEP, LON + STEP, LAT
+                + 2 * STEP, LON + 2 * STEP };
+        final boolean[] keep = new boolean[5];
+        assertEquals(3, PolylineSimplifier.simplify(latLon, 5, 100, keep));
+        assertArrayEquals(new boolean[] { true, false, true, false, true }, keep);
+    }
+
+    @Test
+    void testGentleCurve() {
+        // A quarter circle with a 100m radius, with a vertex every degree
+        final int count = 91;
+        final double[] latLon = new double[2 * count];
+        for (int i = 0; i < count; i++) {
+            final double angle = Math.toRadians(i);
+            latLon[2 * i] = LAT + 100 * Math.sin(angle) / 111_195;
+            latLon[2 * i + 1] = LON + 100 * (1 - Math.cos(angle)) / (111_195 * Math.cos(Math.toRadians(LAT)));
+        }
+        final boolean[] keep = new boolean[count];
+        final int kept = PolylineSimplifier.simplify(latLon, count, 0.5, keep);
+        // The sagitta of an arc of angle a is r (1 - cos(a / 2)), so about 11 degrees fit in 0.5m
+        assertTrue(kept > 8 && kept < 20, Integer.toString(kept));
+    }
+
+    @Test
+    void testWays() {
+        final var square = newWay("highway=footway", LAT, LON, LAT + STEP, LON, LAT + 2 * STEP, LON, LAT + 2 * STEP,
+                LON + 2 * STEP, LAT, LON + 2 * STEP);
+        square.addNode(square.firstNode());
+        final var line = newWay("highway=footway", LAT, LON, LAT + STEP, LON, LAT + 2 * STEP, LON);
+        PolylineSimplifier.simplify(List.of(square, line), 0.5);
+        assertAll(() -> assertEquals(5, square.getNodesCount()), () -> assertTrue(square.isClosed()),
+                () -> assertEquals(2, line.getNodesCount()));
+    }
+}
@@ -0,0 +1,76 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.street_level.data.osm;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.openstreetmap.josm.plugins.mapwithai.street_level.testutils.SidewalkTestUtils.assertLatLonEquals;
+import static org.openstreetmap.josm.plugins.mapwithai.street_level.testutils.SidewalkTestUtils.newWay;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.testutils.annotations.Projection;
+import org.openstreetmap.josm.tools.Geometry;
+
+/**
+ * Test class for {@link SegmentIntersection}
+ */
+@Projection
+class SegmentIntersectionTest {
+    @Test
+    void testIntersection() {
+        assertAll(() -> assertEquals(0.5, SegmentIntersection.intersection(0, 0, 2, 0, 1, -1, 1, 1)),
+                () -> assertEquals(0, SegmentIntersection.intersection(0, 0, 2, 0, 0, -1, 0, 1)),
+                () -> assertTrue(Double.isNaN(SegmentIntersection.intersection(0, 0, 2, 0, 3, -1, 3, 1))),
+                () -> assertTrue(Double.isNaN(SegmentIntersection.intersection(0, 0, 2, 0, 0, 1, 2, 1))));
+    }
+
+    @Test
+    void testFind() {
+        final var highway = newWay("highway=residential", 39.0700657, -108.4654122, 39.0701254, -108.465412,
+                39.0701854, -108.4654118);
+        final var start = new Node(new LatLon(39.0701499, -108.4653312));
+        final var end = new Node(new LatLon(39.0701494, -108.4654942));
+        final var intersection = SegmentIntersection.find(start, end, highway);
+        assertNotNull(intersection);
+        final var expected = Geometry.getSegmentSegmentIntersection(start.getEastNorth(), end.getEastNorth(),
+                highway.getNode(1).getEastNorth(), highway.getNode(2).getEastNorth());
+        assertAll(() -> assertEquals(1, intersection.getSegmentIndex()),
+                () -> assertTrue(intersection.isUnique()),
+                () -> assertLatLonEquals(new LatLon(39.0701497, -108.4654119), intersection.getLatLon()),
+                () -> assertTrue(expected.equalsEpsilon(intersection.getEastNorth(), 1e-6)));
+    }
+
+    @Test
+    void testFindNoIntersection() {
+        final var highway = newWay("highway=residential", 39.0700657, -108.4654122, 39.0701854, -108.4654118);
+        final var start = new Node(new LatLon(39.0701499, -108.4653312));
+        final var end = new Node(new LatLon(39.0701494, -108.4653942));
+        assertNull(SegmentIntersection.find(start, end, highway));
+    }
+
+    @Test
+    void testFindMultipleIntersections() {
+        final var highway = newWay("highway=residential", 39.07, -108.466, 39.071, -108.465, 39.07, -108.464);
+        final var start = new Node(new LatLon(39.0705, -108.467));
+        final var end = new Node(new LatLon(39.0705, -108.463));
+        final var intersection = SegmentIntersection.find(start, end, highway);
+        assertNotNull(intersection);
+        assertFalse(intersection.isUnique());
+    }
+
+    @Test
+    void testFindAtNode() {
+        final var highway = newWay("highway=residential", 39.07, -108.466, 39.0705, -108.465, 39.07, -108.464);
+        final var start = new Node(new LatLon(39.0705, -108.467));
+        final var end = new Node(new LatLon(39.0705, -108.463));
+        final var intersection = SegmentIntersection.find(start, end, highway);
+        assertNotNull(intersection);
+        assertTrue(intersection.isUnique());
+        assertTrue(intersection.getLatLon().equalsEpsilon(highway.getNode(1)));
+    }
+}
@@ -0,0 +1,121 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.street_level.data.osm;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.openstreetmap.josm.plugins.mapwithai.street_level.testutils.SidewalkTestUtils.assertLatLonEquals;
+import static org.openstreetmap.josm.plugins.mapwithai.street_level.testutils.SidewalkTestUtils.newWay;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.testutils.annotations.Projection;
+
+/**
+ * Test class for {@link SidewalkLinks}
+ */
+@Projection
+class SidewalkLinksTest {
+    private DataSet dataSet;
+    private SidewalkLinks links;
+    private Way road;
+    private List<ParallelSidewalkCreation.ParallelSidewalk> sidewalks;
+
+    @BeforeEach
+    void setup() {
+        this.dataSet = new DataSet();
+        this.links = SidewalkLinks.getLinks(this.dataSet);
+        this.road = newWay("highway=residential", 39.1693132, -108.7186835, 39.1693101, -108.7175632, 39.1693223,
+                -108.7166861, 39.1693, -108.7155, 39.1694, -108.7145);
+        this.dataSet.addPrimitiveRecursive(this.road);
+        this.sidewalks = ParallelSidewalkCreation.createAllParallelSidewalks(List.of(this.road),
+                ParallelSidewalkCreation.Options.values());
+        for (ParallelSidewalkCreation.ParallelSidewalk sidewalk : this.sidewalks) {
+            this.dataSet.addPrimitiveRecursive(sidewalk.sidewalk());
+            this.links.link(sidewalk);
+        }
+    }
+
+    /**
+     * Check that the sidewalks match sidewalks generated from scratch
+     */
+    private void assertSidewalksMatchRoad() {
+        final var expected = ParallelSidewalkCreation.createAllParallelSidewalks(List.of(this.road),
+                ParallelSidewalkCreation.Options.values());
+        for (int i = 0; i < expected.size(); i++) {
+            final Way expectedWay = expected.get(i).sidewalk();
+            final Way actualWay = this.sidewalks.get(i).sidewalk();
+            for (int j = 0; j < expectedWay.getNodesCount(); j++) {
+                assertLatLonEquals(expectedWay.getNode(j), actualWay.getNode(j));
+            }
+        }
+    }
+
+    @Test
+    void testNothingMoved() {
+        assertAll(() -> assertFalse(this.links.hasMovedRoads()), () -> assertNull(this.links.createUpdateCommand()),
+                () -> assertEquals(2, this.links.getSidewalks(this.road).size()));
+    }
+
+    @Test
+    void testOnlyAffectedVerticesMove() {
+        final Way right = this.sidewalks.get(0).sidewalk();
+        final var untouched = new LatLon(right.getNode(3).lat(), right.getNode(3).lon());
+        this.road.firstNode().setCoor(new LatLon(39.1692, -108.7187));
+        assertTrue(this.links.hasMovedRoads());
+        final var command = this.links.createUpdateCommand();
+        assertNotNull(command);
+        assertFalse(this.links.hasMovedRoads());
+        // The first node and its neighbour, on both sides
+        assertEquals(4, command.getParticipatingPrimitives().size());
+        command.executeCommand();
+        assertSidewalksMatchRoad();
+        assertLatLonEquals(untouched, right.getNode(3));
+        // Moving the road back after undoing the update leaves nothing to update
+        command.undoCommand();
+        this.road.firstNode().setCoor(new LatLon(39.1693132, -108.7186835));
+        assertNull(this.links.createUpdateCommand());
+    }
+
+    @Test
+    void testClosedRoad() {
+        final var closed = newWay("highway=residential", 39.0680771, -108.5655669, 39.0679765, -108.5655681,
+                39.0679718, -108.5652099, 39.0680968, -108.5652026);
+        closed.addNode(closed.firstNode());
+        this.dataSet.addPrimitiveRecursive(closed);
+        final var closedSidewalks = ParallelSidewalkCreation.createAllParallelSidewalks(List.of(closed),
+                ParallelSidewalkCreation.Options.RIGHT);
+        this.dataSet.addPrimitiveRecursive(closedSidewalks.get(0).sidewalk());
+        this.links.link(closedSidewalks.get(0));
+        closed.firstNode().setCoor(new LatLon(39.06809, -108.56558));
+        final var command = this.links.createUpdateCommand();
+        assertNotNull(command);
+        command.executeCommand();
+        final var expected = ParallelSidewalkCreation
+                .createAllParallelSidewalks(List.of(closed), ParallelSidewalkCreation.Options.RIGHT).get(0).sidewalk();
+        final Way actual = closedSidewalks.get(0).sidewalk();
+        assertTrue(actual.isClosed());
+        for (int i = 0; i < expected.getNodesCount(); i++) {
+            assertLatLonEquals(expected.getNode(i), actual.getNode(i));
+        }
+    }
+
+    @Test
+    void testRemovedSidewalkIsIgnored() {
+        final Way left = this.sidewalks.get(1).sidewalk();
+        this.dataSet.removePrimitive(left);
+        this.road.getNode(2).setCoor(new LatLon(39.1694, -108.7166861));
+        final var command = this.links.createUpdateCommand();
+        assertNotNull(command);
+        assertFalse(command.getParticipatingPrimitives().stream().anyMatch(left.getNodes()::contains));
+        assertEquals(List.of(this.sidewalks.get(0).sidewalk()), this.links.getSidewalks(this.road));
+    }
+}
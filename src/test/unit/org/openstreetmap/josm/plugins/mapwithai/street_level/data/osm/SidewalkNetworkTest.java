@@ -0,0 +1,111 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.street_level.data.osm;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.openstreetmap.josm.plugins.mapwithai.street_level.testutils.SidewalkTestUtils.newWay;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.testutils.annotations.Projection;
+
+/**
+ * Test class for {@link SidewalkNetwork}
+ */
+@Projection
+class SidewalkNetworkTest {
+    private static final double LAT = 39.07;
+    private static final double LON = -108.46;
+
+    /**
+     * Create a road that starts at the end of another road
+     */
+    private static Way continueWay(String tags, Node start, double... coordinates) {
+        final var way = newWay(tags, coordinates);
+        way.addNode(0, start);
+        return way;
+    }
+
+    @Test
+    void testConnectedRoadsAreChained() {
+        final var first = newWay("highway=residential", LAT, LON, LAT, LON + 0.001, LAT, LON + 0.002);
+        // Drawn in the other direction
+        final var second = newWay("highway=residential", LAT + 0.0001, LON + 0.003);
+        second.addNode(first.lastNode());
+        final var chains = SidewalkNetwork.chain(List.of(first, second));
+        assertEquals(1, chains.size());
+        final var chain = chains.get(0);
+        assertAll(() -> assertEquals(4, chain.nodes().size()), () -> assertEquals(2, chain.ways().size()),
+                () -> assertEquals(5.75, chain.rightOffset()), () -> assertEquals(5.75, chain.leftOffset()));
+        final List<Way> sidewalks = SidewalkNetwork.createSidewalks(List.of(first, second));
+        assertEquals(2, sidewalks.size());
+        assertTrue(sidewalks.stream().allMatch(sidewalk -> sidewalk.getNodesCount() == 4));
+    }
+
+    @Test
+    void testDifferentRoadsAreNotChained() {
+        final var first = newWay("highway=residential", LAT, LON, LAT, LON + 0.001);
+        final var wider = continueWay("highway=residential width=12", first.lastNode(), LAT, LON + 0.002);
+        final var other = continueWay("highway=tertiary", wider.lastNode(), LAT, LON + 0.003);
+        assertEquals(3, SidewalkNetwork.chain(List.of(first, wider, other)).size());
+    }
+
+    @Test
+    void testLoop() {
+        final var first = newWay("highway=residential", LAT, LON, LAT, LON + 0.001, LAT + 0.001, LON + 0.001);
+        final var second = continueWay("highway=residential", first.lastNode(), LAT + 0.001, LON);
+        second.addNode(first.firstNode());
+        final var chains = SidewalkNetwork.chain(List.of(first, second));
+        assertEquals(1, chains.size());
+        assertTrue(chains.get(0).isClosed());
+        final List<Way> sidewalks = SidewalkNetwork.createSidewalks(List.of(first, second));
+        assertTrue(sidewalks.stream().allMatch(Way::isClosed));
+    }
+
+    @Test
+    void testJunction() {
+        // A road through the junction, and a road that ends at it
+        final var through = newWay("highway=residential", LAT, LON, LAT, LON + 0.001, LAT, LON + 0.002);
+        final var junction = through.getNode(1);
+        final var side = continueWay("highway=residential", junction, LAT + 0.001, LON + 0.001);
+        final var chains = SidewalkNetwork.chain(List.of(through, side));
+        assertEquals(3, chains.size());
+        final List<Way> sidewalks = SidewalkNetwork.createSidewalks(List.of(through, side));
+        assertEquals(6, sidewalks.size());
+        final var nodes = new ArrayList<Node>();
+        sidewalks.forEach(sidewalk -> nodes.addAll(sidewalk.getNodes()));
+        // Each of the three corners is shared by two sidewalks
+        assertEquals(nodes.size() - 3, new HashSet<>(nodes).size());
+    }
+
+    @Test
+    void testCornerPosition() {
+        final var east = newWay("highway=residential", LAT, LON, LAT, LON + 0.001);
+        final var junction = east.firstNode();
+        final var north = continueWay("highway=residential", junction, LAT + 0.001, LON);
+        final var west = continueWay("highway=residential", junction, LAT, LON - 0.001);
+        final var south = continueWay("highway=residential", junction, LAT - 0.001, LON);
+        final List<Way> sidewalks = SidewalkNetwork.createSidewalks(List.of(east, north, west, south));
+        assertEquals(8, sidewalks.size());
+        final var corners = new HashSet<Node>();
+        final var seen = new HashSet<Node>();
+        for (Way sidewalk : sidewalks) {
+            for (Node node : sidewalk.getNodes()) {
+                if (!seen.add(node)) {
+                    corners.add(node);
+                }
+            }
+        }
+        assertEquals(4, corners.size());
+        for (Node corner : corners) {
+            // The roads are perpendicular, so the corners are on the diagonals
+            assertEquals(5.75 * Math.sqrt(2), corner.greatCircleDistance(junction), 0.1);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.street_level.data.preferences;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+
+/**
+ * Test class for {@link SidewalkSettings}
+ */
+@BasicPreferences
+class SidewalkSettingsTest {
+    @Test
+    void testDefaults() {
+        final var settings = SidewalkSettings.get();
+        assertAll(() -> assertEquals(30, settings.getCrossingMaxLength()),
+                () -> assertTrue(settings.isCrossingKerb()),
+                () -> assertEquals(Map.of("barrier", "kerb"), settings.getCrossingKerbTags()),
+                () -> assertEquals(6, settings.getCrossingNodeMaxDistance()),
+                () -> assertEquals(1, settings.getCrossingNodeDupeDistance()),
+                () -> assertTrue(settings.isCrossingSync()), () -> assertFalse(settings.isCrossingSyncCoalesce()),
+                () -> assertFalse(settings.isParallelBatch()),
+                () -> assertFalse(settings.isParallelChain()),
+                () -> assertEquals(0, settings.getParallelSimplifyDistance()),
+                () -> assertEquals(0.5, settings.getParallelSnapDistance()),
+                () -> assertThrows(UnsupportedOperationException.class,
+                        () -> settings.getCrossingKerbTags().put("kerb", "raised")));
+    }
+
+    @Test
+    void testCached() {
+        assertSame(SidewalkSettings.get(), SidewalkSettings.get());
+        Config.getPref().put("some.other.key", "value");
+        assertSame(SidewalkSettings.get(), SidewalkSettings.get());
+    }
+
+    @Test
+    void testPreferenceChange() {
+        final var original = SidewalkSettings.get();
+        Config.getPref().putInt("sidewalk.crossing.maxlength", 15);
+        Config.getPref().putBoolean("sidewalk.crossing.sync", false);
+        Config.getPref().putListOfMaps("sidewalk.crossing.kerb.tags", List.of(Map.of("kerb", "raised")));
+        final var settings = SidewalkSettings.get();
+        assertNotSame(original, settings);
+        assertAll(() -> assertEquals(15, settings.getCrossingMaxLength()),
+                () -> assertFalse(settings.isCrossingSync()),
+                () -> assertEquals(Map.of("barrier", "kerb", "kerb", "raised"), settings.getCrossingKerbTags()));
+    }
+}
@@ -0,0 +1,51 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.street_level.data.validation;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+
+/**
+ * Test class for {@link InconsistentCrossingTags}
+ */
+@BasicPreferences
+class InconsistentCrossingTagsTest {
+    @Test
+    void testErrors() {
+        final var dataSet = new DataSet();
+        final var missingNode = TestUtils.newNode("highway=crossing crossing=marked");
+        final var missingWay = TestUtils.newWay("highway=footway footway=crossing", new Node(LatLon.NORTH_POLE),
+                missingNode, new Node(LatLon.SOUTH_POLE));
+        final var conflictNode = TestUtils.newNode("highway=crossing crossing=marked");
+        final var conflictWay = TestUtils.newWay("highway=footway footway=crossing crossing=unmarked",
+                new Node(LatLon.NORTH_POLE), conflictNode, new Node(LatLon.SOUTH_POLE));
+        dataSet.addPrimitiveRecursive(missingWay);
+        dataSet.addPrimitiveRecursive(conflictWay);
+
+        final var test = new InconsistentCrossingTags();
+        test.startTest(NullProgressMonitor.INSTANCE);
+        test.visit(dataSet.allPrimitives());
+        test.endTest();
+        final var errors = test.getErrors();
+        assertEquals(2, errors.size());
+        final var missing = errors.stream().filter(error -> error.getPrimitives().contains(missingWay)).findFirst()
+                .orElseThrow();
+        final var conflict = errors.stream().filter(error -> error.getPrimitives().contains(conflictWay)).findFirst()
+                .orElseThrow();
+        assertAll(() -> assertTrue(missing.isFixable()), () -> assertFalse(conflict.isFixable()),
+                () -> assertEquals(List.of(missingNode, missingWay), List.copyOf(missing.getPrimitives())));
+        missing.getFix().executeCommand();
+        assertEquals("marked", missingWay.get("crossing"));
+    }
+}
@@ -0,0 +1,61 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.street_level.tools;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+
+/**
+ * Test class for {@link LatencyHistogram} and {@link LatencyStatistics}
+ */
+@BasicPreferences
+class LatencyHistogramTest {
+    @ParameterizedTest
+    @ValueSource(longs = { 0, 1, 15, 16, 17, 31, 32, 33, 1000, 123_456_789, Long.MAX_VALUE })
+    void testBuckets(long value) {
+        final int bucket = LatencyHistogram.bucket(value);
+        assertAll(() -> assertTrue(LatencyHistogram.upperBound(bucket) >= value),
+                () -> assertTrue(bucket == 0 || LatencyHistogram.upperBound(bucket - 1) < value),
+                // Buckets are accurate to 1/16th of the value
+                () -> assertTrue(LatencyHistogram.upperBound(bucket) - value <= value / 16));
+    }
+
+    @Test
+    void testPercentiles() {
+        final var histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentile(50));
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        histogram.record(-1);
+        assertAll(() -> assertEquals(1000, histogram.getCount()),
+                () -> assertEquals(1_000_000, histogram.getMax()),
+                () -> assertEquals(500_500, histogram.getMean()),
+                () -> assertEquals(500_000, histogram.getPercentile(50), 500_000 / 16d),
+                () -> assertEquals(950_000, histogram.getPercentile(95), 950_000 / 16d),
+                () -> assertEquals(990_000, histogram.getPercentile(99), 990_000 / 16d),
+                () -> assertEquals(1_000_000, histogram.getPercentile(100)));
+        histogram.reset();
+        assertAll(() -> assertEquals(0, histogram.getCount()), () -> assertEquals(0, histogram.getMax()));
+    }
+
+    @Test
+    void testStatisticsDisabledByDefault() {
+        LatencyStatistics.reset();
+        LatencyStatistics.stop(LatencyStatistics.Phase.TOTAL, LatencyStatistics.start());
+        LatencyStatistics.record(LatencyStatistics.Phase.TOTAL, 10);
+        assertEquals(0, LatencyStatistics.getHistogram(LatencyStatistics.Phase.TOTAL).getCount());
+        Config.getPref().putBoolean("sidewalk.latency.enabled", true);
+        LatencyStatistics.stop(LatencyStatistics.Phase.TOTAL, LatencyStatistics.start());
+        LatencyStatistics.record(LatencyStatistics.Phase.TOTAL, 10);
+        assertEquals(2, LatencyStatistics.getHistogram(LatencyStatistics.Phase.TOTAL).getCount());
+        assertTrue(LatencyStatistics.getReport().contains("p99"));
+        LatencyStatistics.reset();
+    }
+}